@@ -2,32 +2,106 @@ package se.alipsa.mavenutils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.maven.settings.building.SettingsBuildingException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Looks up the latest version of a Maven artifact from a remote repository
  * and optionally compares it against a known version.
+ * <p>
+ * All lookups of an instance share one HttpClient, so connections (and TLS sessions) to the repository are
+ * pooled and reused. Metadata is requested gzip compressed, and the async variants of the lookups do not
+ * block the calling thread.
+ * </p>
+ * <p>
+ * By default every lookup goes to the remote repository. With {@link #withLocalRepository(File, ResolutionMode, Duration)}
+ * the local repository is consulted first, and in {@link ResolutionMode#OFFLINE} mode no connection is ever opened.
+ * </p>
+ * <p>
+ * An ArtifactLookup can be created over an ordered list of repositories (e.g. a primary repository and its mirrors).
+ * The first repository is asked first and, if it has not answered within a high percentile of its recent response
+ * times, a hedged request is sent to the next one. The first valid response wins and the other requests are
+ * cancelled, so one slow repository does not stall the lookup. See {@link #withHedging(double, Duration)}.
+ * </p>
  */
 public class ArtifactLookup {
 
+  /**
+   * Where lookups are answered from.
+   */
+  public enum ResolutionMode {
+    /** Always ask the remote repository. */
+    REMOTE,
+    /**
+     * Answer from the local repository when its metadata is younger than the maximum age, otherwise ask the remote
+     * repository and fall back to the local repository if the remote repository cannot be reached.
+     */
+    LOCAL_FIRST,
+    /** Only use the local repository, never open a connection. */
+    OFFLINE
+  }
+
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactLookup.class);
+  /** The default time allowed to establish a connection to the repository. */
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  /** The default time allowed for a metadata request to complete. */
+  public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  /** The default maximum number of requests in flight during a bulk lookup. */
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+  /** The default maximum number of requests per second sent to one host during a bulk lookup. */
+  public static final double DEFAULT_REQUESTS_PER_SECOND = 50;
+  /** The default percentile of a repository's response times after which the next repository is asked. */
+  public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+  /** The default time to wait before asking the next repository while too few response times are recorded. */
+  public static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(250);
+  /** The number of response times a repository needs before its percentile replaces the initial hedge delay. */
+  private static final int MIN_HEDGE_SAMPLES = 20;
+  /** The requests per second of a lookup that is not rate limited. */
+  private static final double UNLIMITED = 0;
+
+  private final List<String> repositoryUrls;
+  private final HttpClient httpClient;
+  private final Duration requestTimeout;
+  @Nullable
+  private final MetadataCache metadataCache;
+  private final ResolutionMode resolutionMode;
+  @Nullable
+  private final LocalMetadataReader localMetadataReader;
+  private final Duration localMaxAge;
+  private final double hedgePercentile;
+  private final Duration hedgeDelay;
+  private final Map<String, LatencyHistogram> latencies;
+  private final Map<String, HostRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+  private final Map<String, IndexedMetadata> versionIndexes = new ConcurrentHashMap<>();
 
-  private final String repositoryUrl;
+  private record IndexedMetadata(ArtifactMetadata metadata, VersionIndex index) {
+  }
 
   /**
    * Creates an ArtifactLookup that queries Maven Central.
@@ -42,40 +116,258 @@ public class ArtifactLookup {
    * @param repositoryUrl the base URL of the Maven repository
    */
   public ArtifactLookup(String repositoryUrl) {
-    this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+    this(repositoryUrl, newHttpClient(DEFAULT_CONNECT_TIMEOUT), DEFAULT_REQUEST_TIMEOUT);
+  }
+
+  /**
+   * Creates an ArtifactLookup that queries the given repository URL using the given HttpClient.
+   *
+   * @param repositoryUrl the base URL of the Maven repository
+   * @param httpClient the client used for all lookups, see {@link #newHttpClient(Duration)}
+   * @param requestTimeout the time allowed for each metadata request to complete
+   */
+  public ArtifactLookup(String repositoryUrl, HttpClient httpClient, Duration requestTimeout) {
+    this(repositoryUrl, httpClient, requestTimeout, null);
+  }
+
+  /**
+   * Creates an ArtifactLookup that queries the given repository URL using the given HttpClient and caches the
+   * fetched metadata.
+   *
+   * @param repositoryUrl the base URL of the Maven repository
+   * @param httpClient the client used for all lookups, see {@link #newHttpClient(Duration)}
+   * @param requestTimeout the time allowed for each metadata request to complete
+   * @param metadataCache the cache of fetched metadata, or null to always download the metadata
+   */
+  public ArtifactLookup(String repositoryUrl, HttpClient httpClient, Duration requestTimeout,
+                        @Nullable MetadataCache metadataCache) {
+    this(List.of(repositoryUrl), httpClient, requestTimeout, metadataCache);
+  }
+
+  /**
+   * Creates an ArtifactLookup that queries an ordered list of repositories holding the same artifacts, typically
+   * a primary repository followed by its mirrors. Each lookup asks the first repository and hedges to the next one
+   * when the answer is slow, see {@link #withHedging(double, Duration)}.
+   *
+   * @param repositoryUrls the base URLs of the repositories, in order of preference
+   * @param httpClient the client used for all lookups, see {@link #newHttpClient(Duration)}
+   * @param requestTimeout the time allowed for each metadata request to complete
+   * @param metadataCache the cache of fetched metadata, or null to always download the metadata. Metadata is
+   *                      cached under the URL of the first repository regardless of which repository answered
+   */
+  public ArtifactLookup(List<String> repositoryUrls, HttpClient httpClient, Duration requestTimeout,
+                        @Nullable MetadataCache metadataCache) {
+    this(normalize(repositoryUrls), httpClient, requestTimeout, metadataCache, ResolutionMode.REMOTE, null,
+        Duration.ZERO, DEFAULT_HEDGE_PERCENTILE, DEFAULT_HEDGE_DELAY, null);
+  }
+
+  private ArtifactLookup(List<String> repositoryUrls, HttpClient httpClient, Duration requestTimeout,
+                         @Nullable MetadataCache metadataCache, ResolutionMode resolutionMode,
+                         @Nullable LocalMetadataReader localMetadataReader, Duration localMaxAge,
+                         double hedgePercentile, Duration hedgeDelay,
+                         @Nullable Map<String, LatencyHistogram> latencies) {
+    this.repositoryUrls = repositoryUrls;
+    this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+    this.requestTimeout = Objects.requireNonNull(requestTimeout, "requestTimeout");
+    this.metadataCache = metadataCache;
+    this.resolutionMode = Objects.requireNonNull(resolutionMode, "resolutionMode");
+    this.localMetadataReader = localMetadataReader;
+    this.localMaxAge = Objects.requireNonNull(localMaxAge, "localMaxAge");
+    this.hedgePercentile = hedgePercentile;
+    this.hedgeDelay = Objects.requireNonNull(hedgeDelay, "hedgeDelay");
+    if (latencies == null) {
+      latencies = new ConcurrentHashMap<>();
+      for (String url : repositoryUrls) {
+        latencies.put(url, new LatencyHistogram());
+      }
+    }
+    this.latencies = latencies;
+  }
+
+  private static List<String> normalize(List<String> repositoryUrls) {
+    if (repositoryUrls.isEmpty()) {
+      throw new IllegalArgumentException("At least one repository URL is required");
+    }
+    List<String> normalized = new ArrayList<>(repositoryUrls.size());
+    for (String url : repositoryUrls) {
+      String withSlash = url.endsWith("/") ? url : url + "/";
+      if (!normalized.contains(withSlash)) {
+        normalized.add(withSlash);
+      }
+    }
+    return List.copyOf(normalized);
+  }
+
+  /**
+   * Create a copy of this lookup that consults the local repository defined in the user's settings.xml
+   * (see {@link MavenUtils#getLocalRepository()}).
+   *
+   * @param resolutionMode where lookups are answered from
+   * @param localMaxAge in {@link ResolutionMode#LOCAL_FIRST} mode, how old the local metadata may be before the
+   *                    remote repository is asked
+   * @return a new ArtifactLookup sharing the HttpClient and metadata cache of this one
+   * @throws SettingsBuildingException if the maven settings could not be read
+   */
+  public ArtifactLookup withLocalRepository(ResolutionMode resolutionMode, Duration localMaxAge)
+      throws SettingsBuildingException {
+    return withLocalRepository(MavenUtils.getLocalRepository().getBasedir(), resolutionMode, localMaxAge);
+  }
+
+  /**
+   * Create a copy of this lookup that consults the given local repository.
+   *
+   * @param localRepository the local repository directory (e.g. ~/.m2/repository)
+   * @param resolutionMode where lookups are answered from
+   * @param localMaxAge in {@link ResolutionMode#LOCAL_FIRST} mode, how old the local metadata may be before the
+   *                    remote repository is asked
+   * @return a new ArtifactLookup sharing the HttpClient and metadata cache of this one
+   */
+  public ArtifactLookup withLocalRepository(File localRepository, ResolutionMode resolutionMode, Duration localMaxAge) {
+    return new ArtifactLookup(repositoryUrls, httpClient, requestTimeout, metadataCache, resolutionMode,
+        new LocalMetadataReader(localRepository), localMaxAge, hedgePercentile, hedgeDelay, latencies);
+  }
+
+  /**
+   * Create a copy of this lookup that hedges requests with the given settings. When a repository has not answered
+   * within the given percentile of its recorded response times, the same request is sent to the next repository;
+   * until enough response times are recorded, the initial delay is used instead. Has no effect when the lookup
+   * has a single repository.
+   *
+   * @param percentile the percentile of the response times, between 0 and 1 (e.g. 0.95)
+   * @param initialDelay the delay used before enough response times are recorded
+   * @return a new ArtifactLookup sharing the HttpClient, metadata cache and latency histograms of this one
+   */
+  public ArtifactLookup withHedging(double percentile, Duration initialDelay) {
+    if (percentile <= 0 || percentile > 1) {
+      throw new IllegalArgumentException("percentile must be above 0 and at most 1, was " + percentile);
+    }
+    return new ArtifactLookup(repositoryUrls, httpClient, requestTimeout, metadataCache, resolutionMode,
+        localMetadataReader, localMaxAge, percentile, initialDelay, latencies);
+  }
+
+  /**
+   * @return the base URLs of the repositories, in order of preference
+   */
+  public List<String> getRepositoryUrls() {
+    return repositoryUrls;
+  }
+
+  /**
+   * Get the response times recorded for one of the repositories of this lookup. A request that failed, or was
+   * cancelled because another repository answered first, is recorded with the time it had taken until then.
+   *
+   * @param repositoryUrl the base URL of the repository
+   * @return the histogram of response times, or null if the URL is not one of the repositories of this lookup
+   */
+  @Nullable
+  public LatencyHistogram getLatencyHistogram(String repositoryUrl) {
+    return latencies.get(repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/");
+  }
+
+  /**
+   * @return where lookups are answered from
+   */
+  public ResolutionMode getResolutionMode() {
+    return resolutionMode;
+  }
+
+  /**
+   * Creates an HttpClient suitable for repository lookups: HTTP/2 when the server supports it
+   * (falling back to HTTP/1.1), following normal redirects and with the given connect timeout.
+   *
+   * @param connectTimeout the time allowed to establish a connection
+   * @return a new HttpClient
+   */
+  public static HttpClient newHttpClient(Duration connectTimeout) {
+    return HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(connectTimeout)
+        .build();
+  }
+
+  /**
+   * @return the HttpClient shared by all lookups of this instance
+   */
+  public HttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * @return the cache of fetched metadata, or null if metadata is not cached
+   */
+  @Nullable
+  public MetadataCache getMetadataCache() {
+    return metadataCache;
   }
 
   /**
-   * Fetches the maven-metadata.xml for the given artifact.
+   * Fetches and parses the maven-metadata.xml for the given artifact. If a {@link MetadataCache} is configured,
+   * a fresh cached entry is returned without contacting the repository and a stale one is revalidated with a
+   * conditional request.
    *
    * @param groupId    the group ID of the artifact
    * @param artifactId the artifact ID
-   * @return the XML content as a string
+   * @return the parsed metadata
    * @throws NotFoundException  if the artifact metadata is not found (HTTP 404)
    * @throws NetworkException   if a network error occurs
    */
-  private String fetchMetadataXml(String groupId, String artifactId) {
-    String path = groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml";
-    String url = repositoryUrl + path;
+  public ArtifactMetadata fetchMetadata(String groupId, String artifactId) {
+    return fetchMetadata(groupId, artifactId, false);
+  }
+
+  private ArtifactMetadata fetchMetadata(String groupId, String artifactId, boolean releaseAndLatestOnly) {
+    LocalMetadataReader.LocalMetadata local = readLocal(groupId, artifactId);
+    if (local != null && isLocalAnswer(local)) {
+      return local.metadata();
+    }
+    try {
+      return fetchRemoteMetadata(groupId, artifactId, releaseAndLatestOnly);
+    } catch (NetworkException e) {
+      if (local == null) {
+        throw e;
+      }
+      LOG.warn("Using stale local metadata for {}:{}: {}", groupId, artifactId, e.getMessage());
+      return local.metadata();
+    }
+  }
+
+  private ArtifactMetadata fetchRemoteMetadata(String groupId, String artifactId, boolean releaseAndLatestOnly) {
+    String url = metadataUrl(repositoryUrls.get(0), groupId, artifactId);
+    MetadataCache.Entry cached = cachedEntry(url);
+    if (cached != null && metadataCache.isFresh(cached)) {
+      metadataCache.recordHit();
+      return cached.metadata();
+    }
+    if (repositoryUrls.size() > 1) {
+      CompletableFuture<ArtifactMetadata> hedged = new HedgedLookup(groupId, artifactId, url, cached,
+          releaseAndLatestOnly, UNLIMITED).start();
+      try {
+        return hedged.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof RuntimeException runtimeException
+            ? runtimeException : new NetworkException("Failed to fetch metadata for " + groupId + ":" + artifactId, e);
+      } catch (InterruptedException e) {
+        hedged.cancel(true);
+        Thread.currentThread().interrupt();
+        throw new NetworkException("Interrupted while fetching metadata for " + groupId + ":" + artifactId, e);
+      }
+    }
     LOG.debug("Fetching metadata from {}", url);
 
     try {
-      HttpClient client = HttpClient.newHttpClient();
-      HttpRequest request = HttpRequest.newBuilder()
-          .uri(URI.create(url))
-          .GET()
-          .build();
-      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-      if (response.statusCode() == 404) {
-        throw new NotFoundException("Artifact metadata not found: " + groupId + ":" + artifactId);
+      HttpRequest request = metadataRequest(url, cached);
+      long start = System.nanoTime();
+      HttpResponse<InputStream> response;
+      try {
+        response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      } finally {
+        // a failed request (e.g. a timeout) took at least this long
+        latencies.get(repositoryUrls.get(0)).record(System.nanoTime() - start);
       }
-      if (response.statusCode() != 200) {
-        throw new NetworkException("Unexpected HTTP status " + response.statusCode() + " from " + url);
+      try (InputStream body = response.body()) {
+        return toMetadata(response, body, cached, groupId, artifactId, url, url, releaseAndLatestOnly);
       }
-      return response.body();
-    } catch (NotFoundException | NetworkException e) {
-      throw e;
     } catch (IOException e) {
       throw new NetworkException("Failed to fetch metadata from " + url, e);
     } catch (InterruptedException e) {
@@ -86,6 +378,195 @@ public class ArtifactLookup {
     }
   }
 
+  /**
+   * Fetches and parses the maven-metadata.xml for the given artifact without blocking.
+   *
+   * @param groupId    the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @return a future completed with the parsed metadata, or exceptionally with a {@link NotFoundException}
+   * or {@link NetworkException}
+   * @see #fetchMetadata(String, String)
+   */
+  public CompletableFuture<ArtifactMetadata> fetchMetadataAsync(String groupId, String artifactId) {
+    return fetchMetadataAsync(groupId, artifactId, false, UNLIMITED);
+  }
+
+  /**
+   * Fetches all versions of the given artifact as a sorted {@link VersionIndex}. The index is kept per artifact and
+   * only rebuilt when the metadata has changed, so with a {@link MetadataCache} repeated calls neither parse nor
+   * sort the versions again.
+   *
+   * @param groupId    the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @return the index of all versions of the artifact
+   * @throws NotFoundException  if the artifact metadata is not found (HTTP 404)
+   * @throws NetworkException   if a network error occurs
+   */
+  public VersionIndex fetchVersionIndex(String groupId, String artifactId) {
+    return versionIndex(fetchMetadata(groupId, artifactId, false));
+  }
+
+  /**
+   * Fetches all versions of the given artifact as a sorted {@link VersionIndex} without blocking.
+   *
+   * @param groupId    the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @return a future completed with the index, or exceptionally with a {@link NotFoundException}
+   * or {@link NetworkException}
+   * @see #fetchVersionIndex(String, String)
+   */
+  public CompletableFuture<VersionIndex> fetchVersionIndexAsync(String groupId, String artifactId) {
+    return fetchMetadataAsync(groupId, artifactId, false, UNLIMITED).thenApply(this::versionIndex);
+  }
+
+  private VersionIndex versionIndex(ArtifactMetadata metadata) {
+    String key = metadata.groupId() + ":" + metadata.artifactId();
+    IndexedMetadata indexed = versionIndexes.get(key);
+    // a cached metadata instance is returned as is, so the identity check is the common case
+    if (indexed != null && (indexed.metadata() == metadata || indexed.metadata().equals(metadata))) {
+      return indexed.index();
+    }
+    VersionIndex index = VersionIndex.of(metadata);
+    versionIndexes.put(key, new IndexedMetadata(metadata, index));
+    return index;
+  }
+
+  private CompletableFuture<ArtifactMetadata> fetchMetadataAsync(String groupId, String artifactId,
+                                                                 boolean releaseAndLatestOnly,
+                                                                 double requestsPerSecond) {
+    LocalMetadataReader.LocalMetadata local;
+    try {
+      local = readLocal(groupId, artifactId);
+    } catch (NotFoundException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (local != null && isLocalAnswer(local)) {
+      return CompletableFuture.completedFuture(local.metadata());
+    }
+    CompletableFuture<ArtifactMetadata> remote = fetchRemoteMetadataAsync(groupId, artifactId, releaseAndLatestOnly,
+        requestsPerSecond);
+    if (local == null) {
+      return remote;
+    }
+    return remote.exceptionally(throwable -> {
+      Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+          ? throwable.getCause() : throwable;
+      if (cause instanceof NetworkException) {
+        LOG.warn("Using stale local metadata for {}:{}: {}", groupId, artifactId, cause.getMessage());
+        return local.metadata();
+      }
+      throw throwable instanceof CompletionException completionException
+          ? completionException : new CompletionException(throwable);
+    });
+  }
+
+  /**
+   * Read the local metadata when a local repository is configured.
+   *
+   * @return the local metadata, or null if there is none or the mode is REMOTE
+   * @throws NotFoundException in OFFLINE mode when the local repository holds no version of the artifact
+   */
+  @Nullable
+  private LocalMetadataReader.LocalMetadata readLocal(String groupId, String artifactId) {
+    if (resolutionMode == ResolutionMode.REMOTE || localMetadataReader == null) {
+      return null;
+    }
+    LocalMetadataReader.LocalMetadata local = localMetadataReader.read(groupId, artifactId);
+    if (local == null && resolutionMode == ResolutionMode.OFFLINE) {
+      throw new NotFoundException("Artifact " + groupId + ":" + artifactId + " not found in the local repository "
+          + localMetadataReader.getLocalRepository() + " (offline)");
+    }
+    return local;
+  }
+
+  private boolean isLocalAnswer(LocalMetadataReader.LocalMetadata local) {
+    return resolutionMode == ResolutionMode.OFFLINE || local.ageMillis() < localMaxAge.toMillis();
+  }
+
+  private CompletableFuture<ArtifactMetadata> fetchRemoteMetadataAsync(String groupId, String artifactId,
+                                                                       boolean releaseAndLatestOnly,
+                                                                       double requestsPerSecond) {
+    String url = metadataUrl(repositoryUrls.get(0), groupId, artifactId);
+    MetadataCache.Entry cached = cachedEntry(url);
+    if (cached != null && metadataCache.isFresh(cached)) {
+      metadataCache.recordHit();
+      return CompletableFuture.completedFuture(cached.metadata());
+    }
+    return new HedgedLookup(groupId, artifactId, url, cached, releaseAndLatestOnly, requestsPerSecond).start();
+  }
+
+  /**
+   * How long to wait for a repository before the next one is asked.
+   */
+  private Duration hedgeDelay(String repositoryUrl) {
+    LatencyHistogram histogram = latencies.get(repositoryUrl);
+    if (histogram.getCount() < MIN_HEDGE_SAMPLES) {
+      return hedgeDelay;
+    }
+    return histogram.getPercentile(hedgePercentile);
+  }
+
+  @Nullable
+  private MetadataCache.Entry cachedEntry(String url) {
+    return metadataCache == null ? null : metadataCache.get(url);
+  }
+
+  private static String metadataUrl(String repositoryUrl, String groupId, String artifactId) {
+    return repositoryUrl + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml";
+  }
+
+  private HttpRequest metadataRequest(String url, @Nullable MetadataCache.Entry cached) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder()
+        .uri(URI.create(url))
+        .timeout(requestTimeout)
+        .header("Accept-Encoding", "gzip")
+        .GET();
+    if (cached != null) {
+      if (cached.etag() != null) {
+        builder.header("If-None-Match", cached.etag());
+      }
+      if (cached.lastModified() != null) {
+        builder.header("If-Modified-Since", cached.lastModified());
+      }
+    }
+    return builder.build();
+  }
+
+  private ArtifactMetadata toMetadata(HttpResponse<?> response, InputStream body,
+                                      @Nullable MetadataCache.Entry cached, String groupId, String artifactId,
+                                      String url, String cacheKey, boolean releaseAndLatestOnly) {
+    if (response.statusCode() == 304 && cached != null) {
+      LOG.debug("Metadata at {} is unchanged", url);
+      return metadataCache.revalidated(cacheKey, cached);
+    }
+    if (response.statusCode() == 404) {
+      throw new NotFoundException("Artifact metadata not found: " + groupId + ":" + artifactId);
+    }
+    if (response.statusCode() != 200) {
+      throw new NetworkException("Unexpected HTTP status " + response.statusCode() + " from " + url);
+    }
+    // a cached entry must be complete, so only stop early when nothing is cached
+    boolean partial = releaseAndLatestOnly && metadataCache == null;
+    ArtifactMetadata metadata;
+    boolean gzipped = response.headers().firstValue("Content-Encoding")
+        .map(encoding -> encoding.trim().equalsIgnoreCase("gzip"))
+        .orElse(false);
+    try (InputStream in = gzipped ? new GZIPInputStream(body) : body) {
+      metadata = MetadataXmlParser.parse(in, groupId, artifactId, partial);
+      if (partial) {
+        // consume the rest without parsing it so the connection can be reused
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+    } catch (IOException e) {
+      throw new NetworkException("Failed to read metadata from " + url, e);
+    }
+    if (metadataCache == null) {
+      return metadata;
+    }
+    return metadataCache.downloaded(cacheKey, metadata, response.headers().firstValue("ETag").orElse(null),
+        response.headers().firstValue("Last-Modified").orElse(null));
+  }
+
   /**
    * Fetches the latest version of the given artifact from the repository.
    *
@@ -100,54 +581,37 @@ public class ArtifactLookup {
    * @throws NetworkException  if a network error occurs
    */
   public String fetchLatestVersion(String groupId, String artifactId, String packaging, String classifier) {
-    String xml = fetchMetadataXml(groupId, artifactId);
-    try {
-      Document doc = parseMetadataXml(xml, groupId, artifactId);
-
-      NodeList releaseNodes = doc.getElementsByTagName("release");
-      if (releaseNodes.getLength() > 0) {
-        String release = releaseNodes.item(0).getTextContent().trim();
-        if (!release.isEmpty()) {
-          LOG.debug("Found release version {} for {}:{}", release, groupId, artifactId);
-          return release;
-        }
-      }
-
-      NodeList latestNodes = doc.getElementsByTagName("latest");
-      if (latestNodes.getLength() > 0) {
-        String latest = latestNodes.item(0).getTextContent().trim();
-        if (!latest.isEmpty()) {
-          LOG.debug("Found latest version {} for {}:{}", latest, groupId, artifactId);
-          return latest;
-        }
-      }
+    return latestVersion(fetchMetadata(groupId, artifactId, true));
+  }
 
-      throw new NotFoundException("No release or latest version found for " + groupId + ":" + artifactId);
-    } catch (NotFoundException | NetworkException e) {
-      throw e;
-    } catch (RuntimeException e) {
-      throw new NetworkException("Failed to parse metadata XML for " + groupId + ":" + artifactId, e);
-    }
+  /**
+   * Fetches the latest version of the given artifact from the repository without blocking.
+   *
+   * @param groupId    the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @return a future completed with the latest version string, or exceptionally with a {@link NotFoundException}
+   * if the artifact or version metadata is not found or a {@link NetworkException} if a network error occurs
+   */
+  public CompletableFuture<String> fetchLatestVersionAsync(String groupId, String artifactId) {
+    return fetchLatestVersionAsync(groupId, artifactId, UNLIMITED);
   }
 
-  private static Document parseMetadataXml(String xml, String groupId, String artifactId) {
-    try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-      factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-      factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-      factory.setXIncludeAware(false);
-      factory.setExpandEntityReferences(false);
+  private CompletableFuture<String> fetchLatestVersionAsync(String groupId, String artifactId,
+                                                            double requestsPerSecond) {
+    return fetchMetadataAsync(groupId, artifactId, true, requestsPerSecond).thenApply(ArtifactLookup::latestVersion);
+  }
 
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
-      builder.setErrorHandler(new DefaultHandler());
-      return builder.parse(new InputSource(new StringReader(xml)));
-    } catch (ParserConfigurationException | SAXException | IOException e) {
-      throw new NetworkException("Failed to parse metadata XML for " + groupId + ":" + artifactId, e);
+  private static String latestVersion(ArtifactMetadata metadata) {
+    if (metadata.release() != null) {
+      LOG.debug("Found release version {} for {}:{}", metadata.release(), metadata.groupId(), metadata.artifactId());
+      return metadata.release();
+    }
+    if (metadata.latest() != null) {
+      LOG.debug("Found latest version {} for {}:{}", metadata.latest(), metadata.groupId(), metadata.artifactId());
+      return metadata.latest();
     }
+    throw new NotFoundException("No release or latest version found for " + metadata.groupId() + ":"
+        + metadata.artifactId());
   }
 
   /**
@@ -249,6 +713,25 @@ public class ArtifactLookup {
     return compareWithLatest(groupId, artifactId, version, "jar");
   }
 
+  /**
+   * Compares the given version against the latest version available in the repository without blocking.
+   *
+   * @param groupId    the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @param version    the version to compare
+   * @return a future completed with a {@link CompareResult} containing the latest version and comparison result,
+   * or exceptionally with a {@link NotFoundException} or {@link NetworkException}
+   */
+  public CompletableFuture<CompareResult> compareWithLatestAsync(String groupId, String artifactId, String version) {
+    return compareWithLatestAsync(groupId, artifactId, version, UNLIMITED);
+  }
+
+  private CompletableFuture<CompareResult> compareWithLatestAsync(String groupId, String artifactId, String version,
+                                                                  double requestsPerSecond) {
+    return fetchLatestVersionAsync(groupId, artifactId, requestsPerSecond)
+        .thenApply(latestVersion -> new CompareResult(latestVersion, SemanticVersion.compare(version, latestVersion)));
+  }
+
   /**
    * Compares the given version against the latest version using a dependency string in the format
    * {@code groupId:artifactId:version[:packaging[:classifier]]}.
@@ -273,4 +756,321 @@ public class ArtifactLookup {
     String classifier = parts.length == 5 ? parts[4] : null;
     return compareWithLatest(groupId, artifactId, version, packaging, classifier);
   }
+
+  /**
+   * Fetches the latest versions of many artifacts, given as dependency strings in the format
+   * {@code groupId:artifactId[:packaging[:classifier]]}, with at most {@link #DEFAULT_MAX_CONCURRENT_REQUESTS}
+   * requests in flight and at most {@link #DEFAULT_REQUESTS_PER_SECOND} requests per second to each repository host.
+   *
+   * @param dependencyStrings the dependency coordinates
+   * @return the result for each distinct dependency string, in the order given
+   */
+  public Map<String, LookupResult<String>> fetchLatestVersions(Collection<String> dependencyStrings) {
+    return fetchLatestVersions(dependencyStrings, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_REQUESTS_PER_SECOND);
+  }
+
+  /**
+   * Fetches the latest versions of many artifacts, given as dependency strings in the format
+   * {@code groupId:artifactId[:packaging[:classifier]]}. A failure for one entry is recorded in its
+   * {@link LookupResult} and does not abort the batch.
+   *
+   * @param dependencyStrings the dependency coordinates
+   * @param maxConcurrentRequests the maximum number of requests in flight
+   * @param requestsPerSecond the maximum number of requests per second sent to each repository host, lookups
+   *                          answered from the metadata cache or the local repository send no request
+   * @return the result for each distinct dependency string, in the order given
+   */
+  public Map<String, LookupResult<String>> fetchLatestVersions(Collection<String> dependencyStrings,
+                                                               int maxConcurrentRequests, double requestsPerSecond) {
+    return bulkLookup(dependencyStrings, maxConcurrentRequests, requestsPerSecond, dependencyString -> {
+      String[] parts = splitCoordinates(dependencyString, 2, 4, "groupId:artifactId[:packaging[:classifier]]");
+      return fetchLatestVersionAsync(parts[0], parts[1], requestsPerSecond);
+    });
+  }
+
+  /**
+   * Compares many versions against the latest versions available in the repository, given as dependency strings
+   * in the format {@code groupId:artifactId:version[:packaging[:classifier]]}, with at most
+   * {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} requests in flight and at most {@link #DEFAULT_REQUESTS_PER_SECOND}
+   * requests per second to each repository host.
+   *
+   * @param dependencyStrings the dependency coordinates
+   * @return the result for each distinct dependency string, in the order given
+   */
+  public Map<String, LookupResult<CompareResult>> compareWithLatest(Collection<String> dependencyStrings) {
+    return compareWithLatest(dependencyStrings, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_REQUESTS_PER_SECOND);
+  }
+
+  /**
+   * Compares many versions against the latest versions available in the repository, given as dependency strings
+   * in the format {@code groupId:artifactId:version[:packaging[:classifier]]}. A failure for one entry is
+   * recorded in its {@link LookupResult} and does not abort the batch.
+   *
+   * @param dependencyStrings the dependency coordinates
+   * @param maxConcurrentRequests the maximum number of requests in flight
+   * @param requestsPerSecond the maximum number of requests per second sent to each repository host, lookups
+   *                          answered from the metadata cache or the local repository send no request
+   * @return the result for each distinct dependency string, in the order given
+   */
+  public Map<String, LookupResult<CompareResult>> compareWithLatest(Collection<String> dependencyStrings,
+                                                                    int maxConcurrentRequests,
+                                                                    double requestsPerSecond) {
+    return bulkLookup(dependencyStrings, maxConcurrentRequests, requestsPerSecond, dependencyString -> {
+      String[] parts = splitCoordinates(dependencyString, 3, 5,
+          "groupId:artifactId:version[:packaging[:classifier]]");
+      return compareWithLatestAsync(parts[0], parts[1], parts[2], requestsPerSecond);
+    });
+  }
+
+  private <T> Map<String, LookupResult<T>> bulkLookup(Collection<String> dependencyStrings, int maxConcurrentRequests,
+                                                      double requestsPerSecond,
+                                                      Function<String, CompletableFuture<T>> lookup) {
+    if (maxConcurrentRequests < 1) {
+      throw new IllegalArgumentException("maxConcurrentRequests must be at least 1, was " + maxConcurrentRequests);
+    }
+    if (!(requestsPerSecond > 0)) {
+      throw new IllegalArgumentException("requestsPerSecond must be positive, was " + requestsPerSecond);
+    }
+    Semaphore inFlight = new Semaphore(maxConcurrentRequests);
+    Map<String, CompletableFuture<LookupResult<T>>> futures = new LinkedHashMap<>();
+    try {
+      for (String dependencyString : dependencyStrings) {
+        if (futures.containsKey(dependencyString)) {
+          continue;
+        }
+        inFlight.acquire();
+        CompletableFuture<T> future;
+        try {
+          // the requests the lookup sends are rate limited, answers from a cache or the local repository are not
+          future = lookup.apply(dependencyString);
+        } catch (RuntimeException e) {
+          future = CompletableFuture.failedFuture(e);
+        }
+        futures.put(dependencyString, future
+            .handle((value, throwable) -> toLookupResult(dependencyString, value, throwable))
+            .whenComplete((result, throwable) -> inFlight.release()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.values().forEach(future -> future.cancel(true));
+      throw new NetworkException("Interrupted while looking up " + dependencyStrings.size() + " artifacts", e);
+    }
+    Map<String, LookupResult<T>> results = new LinkedHashMap<>();
+    futures.forEach((dependencyString, future) -> results.put(dependencyString, future.join()));
+    return results;
+  }
+
+  /**
+   * @return how long to wait before a request may be sent to the host of the repository
+   */
+  private long reserveRequest(String repositoryUrl, double requestsPerSecond) {
+    if (requestsPerSecond == UNLIMITED) {
+      return 0;
+    }
+    String host;
+    try {
+      host = String.valueOf(URI.create(repositoryUrl).getHost());
+    } catch (IllegalArgumentException e) {
+      // the request itself will report the invalid url
+      host = repositoryUrl;
+    }
+    return rateLimiters.computeIfAbsent(host, key -> new HostRateLimiter()).reserve(requestsPerSecond);
+  }
+
+  private static <T> LookupResult<T> toLookupResult(String dependencyString, T value, Throwable throwable) {
+    if (throwable == null) {
+      return new LookupResult<>(dependencyString, value, null);
+    }
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause() : throwable;
+    RuntimeException error = cause instanceof RuntimeException runtimeException
+        ? runtimeException
+        : new NetworkException("Failed to look up " + dependencyString, cause);
+    LOG.debug("Lookup of {} failed: {}", dependencyString, error.toString());
+    return new LookupResult<>(dependencyString, null, error);
+  }
+
+  private static String[] splitCoordinates(String dependencyString, int minParts, int maxParts, String format) {
+    String[] parts = dependencyString.split(":");
+    if (parts.length < minParts || parts.length > maxParts) {
+      throw new IllegalArgumentException("Dependency string must have " + minParts + " to " + maxParts + " parts ("
+          + format + "), got: " + dependencyString);
+    }
+    return parts;
+  }
+
+  /**
+   * One lookup raced over the repositories: the first repository is asked, and the next one is asked when the
+   * previous one has not answered within its hedge delay or has failed. The first valid response completes the
+   * lookup and cancels the requests still in flight.
+   */
+  private final class HedgedLookup {
+
+    private final String groupId;
+    private final String artifactId;
+    private final String cacheKey;
+    @Nullable
+    private final MetadataCache.Entry cached;
+    private final boolean releaseAndLatestOnly;
+    private final double requestsPerSecond;
+    private final CompletableFuture<ArtifactMetadata> result = new CompletableFuture<>();
+    private final List<CompletableFuture<?>> inFlight = new ArrayList<>();
+    private int launched;
+    private int pending;
+    @Nullable
+    private RuntimeException networkFailure;
+    @Nullable
+    private RuntimeException notFound;
+
+    HedgedLookup(String groupId, String artifactId, String cacheKey, @Nullable MetadataCache.Entry cached,
+                 boolean releaseAndLatestOnly, double requestsPerSecond) {
+      this.groupId = groupId;
+      this.artifactId = artifactId;
+      this.cacheKey = cacheKey;
+      this.cached = cached;
+      this.releaseAndLatestOnly = releaseAndLatestOnly;
+      this.requestsPerSecond = requestsPerSecond;
+    }
+
+    CompletableFuture<ArtifactMetadata> start() {
+      result.whenComplete((metadata, throwable) -> cancelInFlight());
+      launch(0);
+      return result;
+    }
+
+    /**
+     * Ask the repository with the given index unless the lookup is done or that repository was already asked.
+     */
+    private void launch(int index) {
+      String repositoryUrl;
+      synchronized (this) {
+        if (result.isDone() || launched != index || index >= repositoryUrls.size()) {
+          return;
+        }
+        launched++;
+        pending++;
+        repositoryUrl = repositoryUrls.get(index);
+      }
+      String url = metadataUrl(repositoryUrl, groupId, artifactId);
+      LOG.debug("Fetching metadata asynchronously from {}", url);
+      HttpRequest request;
+      try {
+        request = metadataRequest(url, cached);
+      } catch (IllegalArgumentException e) {
+        failed(new NetworkException("Invalid repository URL: " + url, e));
+        return;
+      }
+      long waitNanos = reserveRequest(repositoryUrl, requestsPerSecond);
+      if (waitNanos > 0) {
+        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS)
+            .execute(() -> send(index, repositoryUrl, url, request));
+      } else {
+        send(index, repositoryUrl, url, request);
+      }
+    }
+
+    /**
+     * Send the request, once the rate limit of the repository host allows it, and hedge to the next repository.
+     */
+    private void send(int index, String repositoryUrl, String url, HttpRequest request) {
+      if (result.isDone()) {
+        return;
+      }
+      long start = System.nanoTime();
+      // the body is received in full before parsing so that no HttpClient thread blocks on a partially received stream
+      CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request,
+          HttpResponse.BodyHandlers.ofByteArray());
+      synchronized (this) {
+        inFlight.add(exchange);
+      }
+      if (result.isDone()) {
+        // completed while the request was being sent, after the requests in flight were cancelled
+        exchange.cancel(true);
+      }
+      exchange.whenComplete((response, throwable) -> {
+        // a request that failed, or was cancelled because another repository answered first, took at least this
+        // long; leaving out these slowest requests would make the percentile, and so the hedge delay, too low
+        latencies.get(repositoryUrl).record(System.nanoTime() - start);
+        if (result.isDone()) {
+          return;
+        }
+        if (throwable != null) {
+          Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+              ? throwable.getCause() : throwable;
+          failed(new NetworkException("Failed to fetch metadata from " + url, cause));
+          return;
+        }
+        try {
+          result.complete(toMetadata(response, new ByteArrayInputStream(response.body()), cached, groupId,
+              artifactId, url, cacheKey, releaseAndLatestOnly));
+        } catch (RuntimeException e) {
+          failed(e);
+        }
+      });
+      if (index + 1 < repositoryUrls.size() && !result.isDone()) {
+        Duration delay = hedgeDelay(repositoryUrl);
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+          if (!result.isDone()) {
+            LOG.debug("No answer from {} within {} ms, asking the next repository", repositoryUrl, delay.toMillis());
+          }
+          launch(index + 1);
+        });
+      }
+    }
+
+    /**
+     * A repository failed to answer: ask the next one right away, or fail the lookup if all have failed.
+     * A network failure is reported in preference to a not found since another repository may have the artifact.
+     */
+    private void failed(RuntimeException failure) {
+      int next;
+      synchronized (this) {
+        pending--;
+        if (failure instanceof NotFoundException) {
+          notFound = failure;
+        } else {
+          networkFailure = failure;
+        }
+        next = launched;
+        if (next >= repositoryUrls.size()) {
+          if (pending == 0) {
+            result.completeExceptionally(networkFailure != null ? networkFailure : notFound);
+          }
+          return;
+        }
+      }
+      launch(next);
+    }
+
+    private void cancelInFlight() {
+      List<CompletableFuture<?>> exchanges;
+      synchronized (this) {
+        exchanges = new ArrayList<>(inFlight);
+      }
+      for (CompletableFuture<?> exchange : exchanges) {
+        exchange.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Spaces out the requests sent to one host so that at most the given number of requests per second are sent.
+   */
+  private static final class HostRateLimiter {
+
+    private long nextPermitNanos = System.nanoTime();
+
+    /**
+     * Reserve the next free slot for a request.
+     *
+     * @return how long to wait before the request may be sent, in nanoseconds
+     */
+    synchronized long reserve(double requestsPerSecond) {
+      long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+      long now = System.nanoTime();
+      long permit = Math.max(now, nextPermitNanos);
+      nextPermitNanos = permit + intervalNanos;
+      return permit - now;
+    }
+  }
 }
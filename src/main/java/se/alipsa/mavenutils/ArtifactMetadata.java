@@ -0,0 +1,22 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * The parsed content of a {@code maven-metadata.xml} file for an artifact.
+ *
+ * @param groupId the group ID of the artifact
+ * @param artifactId the artifact ID
+ * @param release the release version, or null if the metadata has none
+ * @param latest the latest version (which may be a snapshot), or null if the metadata has none
+ * @param versions all versions listed in the metadata, in the order of the file
+ * @param lastUpdated the lastUpdated timestamp of the metadata (yyyyMMddHHmmss), or null if the metadata has none
+ */
+public record ArtifactMetadata(String groupId, String artifactId, @Nullable String release, @Nullable String latest,
+                               List<String> versions, @Nullable String lastUpdated) {
+
+  public ArtifactMetadata {
+    versions = List.copyOf(versions);
+  }
+}
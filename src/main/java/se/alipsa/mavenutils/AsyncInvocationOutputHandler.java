@@ -0,0 +1,425 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An InvocationOutputHandler that hands the output lines of a Maven invocation over to a single drainer thread
+ * which writes them in large batches to the console, a logger or a file.
+ * <p>
+ * {@link #consumeLine(String)} only claims a slot in a lock-free ring buffer, so the thread reading maven's output
+ * pipe is never held up by a synchronized {@code System.out.println} or a logger call per line.
+ * When the buffer is full, the {@link OverflowPolicy} decides whether the producer waits for the drainer
+ * (backpressure) or the line is dropped. Both are counted, see {@link #getBackpressureEvents()} and
+ * {@link #getDroppedLines()}. Close the handler when the build is done to flush the remaining lines.
+ * </p>
+ * <pre>{@code
+ * try (AsyncInvocationOutputHandler out = AsyncInvocationOutputHandler.toConsole()) {
+ *   MavenUtils.runMaven(pomFile, new String[]{"-X", "verify"}, out, null);
+ * }
+ * }</pre>
+ */
+public class AsyncInvocationOutputHandler implements InvocationOutputHandler, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncInvocationOutputHandler.class);
+  /** The default number of lines the ring buffer can hold. */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+  private static final int MAX_BATCH_SIZE = 4096;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final AtomicInteger DRAINER_NUMBER = new AtomicInteger();
+  /** Set on the tail by the drainer once closed, after which no slot can be claimed. */
+  private static final long SEALED = 1L << 62;
+
+  /**
+   * What to do with a line when the ring buffer is full.
+   */
+  public enum OverflowPolicy {
+    /** Wait until the drainer has made room, no lines are lost. */
+    BLOCK,
+    /** Drop the line and count it. */
+    DROP
+  }
+
+  /**
+   * The destination of the drained lines.
+   */
+  public interface Sink extends Closeable {
+
+    /**
+     * Write a batch of lines.
+     *
+     * @param lines the lines in the order they were consumed
+     * @throws IOException if the lines could not be written
+     */
+    void write(List<String> lines) throws IOException;
+  }
+
+  private final Sink sink;
+  private final OverflowPolicy overflowPolicy;
+  private final AtomicReferenceArray<String> slots;
+  private final int capacity;
+  private final int mask;
+  /** The sequence number of the next slot to claim, shared by all producers, {@link #SEALED} once closed. */
+  private final AtomicLong tail = new AtomicLong();
+  /** The sequence number of the next slot to drain, only written by the drainer thread. */
+  private volatile long head;
+  private volatile boolean drainerWaiting;
+  private volatile boolean closed;
+  private final AtomicLong droppedLines = new AtomicLong();
+  private final AtomicLong backpressureEvents = new AtomicLong();
+  private final AtomicLong backpressureNanos = new AtomicLong();
+  private final AtomicLong writtenLines = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong sinkFailures = new AtomicLong();
+  private final Thread drainer;
+
+  /**
+   * Creates a handler with a ring buffer of {@link #DEFAULT_CAPACITY} lines that blocks when the buffer is full.
+   *
+   * @param sink where the lines are written
+   */
+  public AsyncInvocationOutputHandler(Sink sink) {
+    this(sink, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * Creates a handler and starts its drainer thread.
+   *
+   * @param sink where the lines are written
+   * @param capacity the number of lines the ring buffer can hold, rounded up to the next power of two
+   * @param overflowPolicy what to do with a line when the ring buffer is full
+   */
+  public AsyncInvocationOutputHandler(Sink sink, int capacity, OverflowPolicy overflowPolicy) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30, was " + capacity);
+    }
+    this.sink = Objects.requireNonNull(sink, "sink");
+    this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.slots = new AtomicReferenceArray<>(this.capacity);
+    this.drainer = new Thread(this::drain, "maven-output-drainer-" + DRAINER_NUMBER.incrementAndGet());
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /**
+   * @return a handler writing to standard output
+   */
+  public static AsyncInvocationOutputHandler toConsole() {
+    return new AsyncInvocationOutputHandler(printStreamSink(System.out));
+  }
+
+  /**
+   * @return a handler writing to standard error
+   */
+  public static AsyncInvocationOutputHandler toStandardError() {
+    return new AsyncInvocationOutputHandler(printStreamSink(System.err));
+  }
+
+  /**
+   * Creates a handler logging each batch as a single info event.
+   *
+   * @param logger the logger to write to
+   * @return a handler writing to the logger
+   */
+  public static AsyncInvocationOutputHandler toLogger(Logger logger) {
+    return new AsyncInvocationOutputHandler(loggerSink(logger));
+  }
+
+  /**
+   * Creates a handler appending to a file.
+   *
+   * @param file the file to append to, created if it does not exist
+   * @return a handler writing to the file
+   * @throws IOException if the file could not be opened
+   */
+  public static AsyncInvocationOutputHandler toFile(Path file) throws IOException {
+    return new AsyncInvocationOutputHandler(fileSink(file));
+  }
+
+  /**
+   * A sink printing each batch with a single print call.
+   *
+   * @param out the stream to print to
+   * @return a sink writing to the stream, closing it does not close the stream
+   */
+  public static Sink printStreamSink(PrintStream out) {
+    return new Sink() {
+      @Override
+      public void write(List<String> lines) {
+        out.print(join(lines));
+        out.flush();
+      }
+
+      @Override
+      public void close() {
+        out.flush();
+      }
+    };
+  }
+
+  /**
+   * A sink logging each batch as a single info event.
+   *
+   * @param logger the logger to write to
+   * @return a sink writing to the logger
+   */
+  public static Sink loggerSink(Logger logger) {
+    return new Sink() {
+      @Override
+      public void write(List<String> lines) {
+        String text = join(lines);
+        // strip the trailing line separator, the logging backend adds its own
+        logger.info(text.substring(0, text.length() - System.lineSeparator().length()));
+      }
+
+      @Override
+      public void close() {
+        // nothing to release
+      }
+    };
+  }
+
+  /**
+   * A sink appending to a file, flushed after each batch.
+   *
+   * @param file the file to append to, created if it does not exist
+   * @return a sink writing to the file
+   * @throws IOException if the file could not be opened
+   */
+  public static Sink fileSink(Path file) throws IOException {
+    BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    return new Sink() {
+      @Override
+      public void write(List<String> lines) throws IOException {
+        for (String line : lines) {
+          writer.write(line);
+          writer.newLine();
+        }
+        writer.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        writer.close();
+      }
+    };
+  }
+
+  @Override
+  public void consumeLine(String line) {
+    if (closed) {
+      droppedLines.incrementAndGet();
+      return;
+    }
+    // an empty slot means the line has not been stored yet, so a null line is stored as an empty one
+    String value = line == null ? "" : line;
+    long sequence;
+    long waitStart = 0;
+    while (true) {
+      sequence = tail.get();
+      if ((sequence & SEALED) != 0) {
+        // closed while this line was on its way, the drainer has already taken its last lines
+        droppedLines.incrementAndGet();
+        return;
+      }
+      if (sequence - head >= capacity) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+          droppedLines.incrementAndGet();
+          return;
+        }
+        if (waitStart == 0) {
+          waitStart = System.nanoTime();
+          backpressureEvents.incrementAndGet();
+        }
+        wakeDrainer();
+        LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+        continue;
+      }
+      if (tail.compareAndSet(sequence, sequence + 1)) {
+        break;
+      }
+    }
+    if (waitStart != 0) {
+      backpressureNanos.addAndGet(System.nanoTime() - waitStart);
+    }
+    slots.set((int) (sequence & mask), value);
+    if (drainerWaiting) {
+      wakeDrainer();
+    }
+  }
+
+  /**
+   * Stops accepting lines, waits for the buffered lines to be written and closes the sink.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(drainer);
+    try {
+      drainer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      sink.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close output sink: {}", e.toString());
+    }
+    if (droppedLines.get() > 0) {
+      LOG.warn("{} lines of maven output were dropped because the output buffer was full or the handler was closed",
+          droppedLines.get());
+    }
+  }
+
+  /**
+   * @return the number of lines that were dropped because the buffer was full or the handler was closed
+   */
+  public long getDroppedLines() {
+    return droppedLines.get();
+  }
+
+  /**
+   * @return the number of times a producer had to wait for the drainer because the buffer was full
+   */
+  public long getBackpressureEvents() {
+    return backpressureEvents.get();
+  }
+
+  /**
+   * @return the total time in milliseconds producers spent waiting for the drainer
+   */
+  public long getBackpressureMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(backpressureNanos.get());
+  }
+
+  /**
+   * @return the number of lines handed to the sink
+   */
+  public long getWrittenLines() {
+    return writtenLines.get();
+  }
+
+  /**
+   * @return the number of batches handed to the sink
+   */
+  public long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * @return the number of batches the sink failed to write
+   */
+  public long getSinkFailures() {
+    return sinkFailures.get();
+  }
+
+  /**
+   * @return the number of lines waiting to be written
+   */
+  public int getPendingLines() {
+    return (int) Math.max(0, (tail.get() & ~SEALED) - head);
+  }
+
+  /**
+   * @return the number of lines the ring buffer can hold
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  private void wakeDrainer() {
+    LockSupport.unpark(drainer);
+  }
+
+  private void drain() {
+    List<String> batch = new ArrayList<>(Math.min(capacity, MAX_BATCH_SIZE));
+    long next = head;
+    // the last claimed sequence once closed, every slot before it is drained before the drainer stops
+    long end = -1;
+    while (true) {
+      long published;
+      if (end >= 0) {
+        published = end;
+      } else if (closed) {
+        end = tail.getAndUpdate(sequence -> sequence | SEALED);
+        published = end;
+      } else {
+        published = tail.get();
+      }
+      if (next == published) {
+        if (end >= 0) {
+          return;
+        }
+        drainerWaiting = true;
+        if (tail.get() == next && !closed) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        drainerWaiting = false;
+        continue;
+      }
+      while (next < published && batch.size() < MAX_BATCH_SIZE) {
+        int index = (int) (next & mask);
+        String line = slots.get(index);
+        if (line == null) {
+          // the slot is claimed but the producer has not stored the line yet
+          break;
+        }
+        slots.set(index, null);
+        batch.add(line);
+        next++;
+      }
+      head = next;
+      if (batch.isEmpty()) {
+        Thread.onSpinWait();
+        continue;
+      }
+      try {
+        sink.write(batch);
+        writtenLines.addAndGet(batch.size());
+      } catch (IOException | RuntimeException e) {
+        sinkFailures.incrementAndGet();
+        LOG.warn("Failed to write {} lines of maven output: {}", batch.size(), e.toString());
+      }
+      batches.incrementAndGet();
+      batch.clear();
+    }
+  }
+
+  private static String join(List<String> lines) {
+    String separator = System.lineSeparator();
+    int length = 0;
+    for (String line : lines) {
+      length += line.length() + separator.length();
+    }
+    StringBuilder sb = new StringBuilder(length);
+    for (String line : lines) {
+      sb.append(line).append(separator);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,155 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Receives the events streamed by the {@link BuildEventSpy} of an invoked maven build over a local socket.
+ */
+final class BuildEventCollector implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BuildEventCollector.class);
+  private static final String EXT_CLASS_PATH = "maven.ext.class.path";
+  private static final long READER_JOIN_MILLIS = 5000;
+  private static File extensionJar;
+
+  private final ServerSocket serverSocket;
+  private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+  private final List<Thread> readers = Collections.synchronizedList(new ArrayList<>());
+  private final Thread acceptor;
+
+  private BuildEventCollector() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    acceptor = new Thread(this::accept, "maven-build-events-" + serverSocket.getLocalPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Start collecting events and configure the request to load the {@link BuildEventSpy} extension.
+   *
+   * @param request the invocation request to configure
+   * @return the collector
+   * @throws IOException if the socket or the extension jar could not be created
+   */
+  static BuildEventCollector attach(InvocationRequest request) throws IOException {
+    BuildEventCollector collector = new BuildEventCollector();
+    Properties properties = request.getProperties() == null ? new Properties() : request.getProperties();
+    String extClassPath = properties.getProperty(EXT_CLASS_PATH);
+    String jarPath = extensionJar().getAbsolutePath();
+    properties.setProperty(EXT_CLASS_PATH,
+        extClassPath == null || extClassPath.isBlank() ? jarPath : extClassPath + File.pathSeparator + jarPath);
+    properties.setProperty(BuildEventSpy.PORT_PROPERTY, String.valueOf(collector.serverSocket.getLocalPort()));
+    request.setProperties(properties);
+    return collector;
+  }
+
+  /**
+   * Stop listening and create the report from the events received. Must be called after the build has finished.
+   *
+   * @return the timing report
+   */
+  BuildTimingReport finish() {
+    close();
+    try {
+      acceptor.join(READER_JOIN_MILLIS);
+      List<Thread> activeReaders;
+      synchronized (readers) {
+        activeReaders = new ArrayList<>(readers);
+      }
+      for (Thread reader : activeReaders) {
+        reader.join(READER_JOIN_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (events) {
+      return BuildTimingReport.fromEvents(new ArrayList<>(events));
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close build event socket: {}", e.toString());
+    }
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        Thread reader = new Thread(() -> read(socket), acceptor.getName() + "-reader");
+        reader.setDaemon(true);
+        readers.add(reader);
+        reader.start();
+      } catch (SocketException e) {
+        // the server socket was closed
+        return;
+      } catch (IOException e) {
+        LOG.warn("Failed to accept build event connection: {}", e.toString());
+        return;
+      }
+    }
+  }
+
+  private void read(Socket socket) {
+    try (socket; BufferedReader reader = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        events.add(line);
+      }
+    } catch (IOException e) {
+      LOG.debug("Stopped reading build events: {}", e.toString());
+    }
+  }
+
+  /**
+   * Get the jar holding the {@link BuildEventSpy} and the sisu index that makes maven pick it up,
+   * creating it the first time it is needed.
+   */
+  static synchronized File extensionJar() throws IOException {
+    if (extensionJar != null && extensionJar.isFile()) {
+      return extensionJar;
+    }
+    File jar = Files.createTempFile("maven-utils-build-events", ".jar").toFile();
+    jar.deleteOnExit();
+    String classResource = BuildEventSpy.class.getName().replace('.', '/') + ".class";
+    try (InputStream classBytes = BuildEventSpy.class.getClassLoader().getResourceAsStream(classResource);
+         JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+      if (classBytes == null) {
+        throw new IOException("Failed to find " + classResource + " on the classpath");
+      }
+      out.putNextEntry(new JarEntry(classResource));
+      classBytes.transferTo(out);
+      out.closeEntry();
+      out.putNextEntry(new JarEntry("META-INF/sisu/javax.inject.Named"));
+      out.write((BuildEventSpy.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+    extensionJar = jar;
+    return jar;
+  }
+}
@@ -0,0 +1,140 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositoryEvent;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * An {@link org.apache.maven.eventspy.EventSpy} injected into invoked maven builds through
+ * {@code -Dmaven.ext.class.path} when build events are requested (see
+ * {@link MavenUtils.MavenExecutionOptions#withBuildEvents(boolean)}).
+ * <p>
+ * It streams project, mojo and artifact download events as tab separated lines to the local socket given by
+ * the {@value #PORT_PROPERTY} property. This class is loaded by the invoked maven, so it must only depend on the
+ * maven core api and the JDK.
+ * </p>
+ */
+@Named("maven-utils-build-events")
+@Singleton
+public class BuildEventSpy extends AbstractEventSpy {
+
+  /** The property holding the port of the local socket the events are sent to. */
+  public static final String PORT_PROPERTY = "mavenutils.buildEvents.port";
+
+  private Socket socket;
+  private Writer writer;
+
+  /**
+   * Constructs a BuildEventSpy, called by the maven container.
+   */
+  public BuildEventSpy() {
+    // Instantiated by the maven container
+  }
+
+  @Override
+  public void init(Context context) throws Exception {
+    String port = System.getProperty(PORT_PROPERTY);
+    Object userProperties = context.getData().get("userProperties");
+    if (port == null && userProperties instanceof Properties) {
+      port = ((Properties) userProperties).getProperty(PORT_PROPERTY);
+    }
+    if (port == null) {
+      return;
+    }
+    socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(port));
+    writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public synchronized void onEvent(Object event) throws Exception {
+    if (writer == null) {
+      return;
+    }
+    if (event instanceof ExecutionEvent) {
+      onExecutionEvent((ExecutionEvent) event);
+    } else if (event instanceof RepositoryEvent) {
+      onRepositoryEvent((RepositoryEvent) event);
+    }
+  }
+
+  private void onExecutionEvent(ExecutionEvent event) throws IOException {
+    MavenProject project = event.getProject();
+    String projectId = project == null ? "" : project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+    // Switch on the name, an enum switch would compile to an extra synthetic class that is not part of the extension
+    switch (event.getType().name()) {
+      case "ProjectStarted":
+        send("PROJECT_STARTED", projectId);
+        break;
+      case "ProjectSucceeded":
+        send("PROJECT_FINISHED", projectId, "SUCCESS");
+        break;
+      case "ProjectFailed":
+        send("PROJECT_FINISHED", projectId, "FAILURE");
+        break;
+      case "ProjectSkipped":
+        send("PROJECT_FINISHED", projectId, "SKIPPED");
+        break;
+      case "MojoStarted":
+        send("MOJO_STARTED", projectId, mojoId(event.getMojoExecution()));
+        break;
+      case "MojoSucceeded":
+        send("MOJO_FINISHED", projectId, mojoId(event.getMojoExecution()), "SUCCESS");
+        break;
+      case "MojoFailed":
+        send("MOJO_FINISHED", projectId, mojoId(event.getMojoExecution()), "FAILURE");
+        break;
+      default:
+        // not interesting for timing
+    }
+  }
+
+  private void onRepositoryEvent(RepositoryEvent event) throws IOException {
+    if (event.getType() != RepositoryEvent.EventType.ARTIFACT_DOWNLOADED || event.getArtifact() == null) {
+      return;
+    }
+    long size = event.getFile() == null ? -1 : event.getFile().length();
+    String repository = event.getRepository() == null ? "" : event.getRepository().getId();
+    send("ARTIFACT_DOWNLOADED", event.getArtifact().toString(), repository, String.valueOf(size));
+  }
+
+  private static String mojoId(MojoExecution execution) {
+    if (execution == null) {
+      return "";
+    }
+    return execution.getArtifactId() + ":" + execution.getVersion() + ":" + execution.getGoal()
+        + " (" + execution.getExecutionId() + ")";
+  }
+
+  private void send(String type, String... fields) throws IOException {
+    writer.write(type);
+    writer.write('\t');
+    writer.write(String.valueOf(System.currentTimeMillis()));
+    for (String field : fields) {
+      writer.write('\t');
+      writer.write(field.replace('\t', ' ').replace('\n', ' '));
+    }
+    writer.write('\n');
+  }
+
+  @Override
+  public synchronized void close() throws Exception {
+    if (writer != null) {
+      writer.flush();
+      socket.close();
+      writer = null;
+    }
+  }
+}
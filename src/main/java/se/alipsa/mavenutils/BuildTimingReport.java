@@ -0,0 +1,182 @@
+package se.alipsa.mavenutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Per-project and per-mojo timings and artifact transfer sizes of an invoked maven build, collected by
+ * the {@link BuildEventSpy} when build events are requested through
+ * {@link MavenUtils.MavenExecutionOptions#withBuildEvents(boolean)}.
+ */
+public class BuildTimingReport {
+
+  /**
+   * The timing of a project in the reactor.
+   *
+   * @param projectId the groupId:artifactId:version of the project
+   * @param startMillis the epoch millis when the project build started
+   * @param durationMillis how long the project build took
+   * @param status SUCCESS, FAILURE or SKIPPED
+   */
+  public record ProjectTiming(String projectId, long startMillis, long durationMillis, String status) {
+  }
+
+  /**
+   * The timing of a mojo execution.
+   *
+   * @param projectId the groupId:artifactId:version of the project the mojo was executed for
+   * @param mojo the plugin artifactId:version:goal (executionId)
+   * @param startMillis the epoch millis when the mojo execution started
+   * @param durationMillis how long the mojo execution took
+   * @param status SUCCESS or FAILURE
+   */
+  public record MojoTiming(String projectId, String mojo, long startMillis, long durationMillis, String status) {
+  }
+
+  /**
+   * An artifact downloaded during the build.
+   *
+   * @param artifact the coordinates of the artifact
+   * @param repositoryId the id of the repository the artifact was downloaded from
+   * @param bytes the size of the artifact in bytes, or -1 if unknown
+   */
+  public record ArtifactTransfer(String artifact, String repositoryId, long bytes) {
+  }
+
+  private final List<ProjectTiming> projectTimings;
+  private final List<MojoTiming> mojoTimings;
+  private final List<ArtifactTransfer> artifactTransfers;
+
+  BuildTimingReport(List<ProjectTiming> projectTimings, List<MojoTiming> mojoTimings,
+                    List<ArtifactTransfer> artifactTransfers) {
+    this.projectTimings = Collections.unmodifiableList(projectTimings);
+    this.mojoTimings = Collections.unmodifiableList(mojoTimings);
+    this.artifactTransfers = Collections.unmodifiableList(artifactTransfers);
+  }
+
+  /**
+   * Create a report from the tab separated event lines sent by the {@link BuildEventSpy}.
+   *
+   * @param events the event lines in the order they were received
+   * @return the timing report
+   */
+  static BuildTimingReport fromEvents(List<String> events) {
+    List<ProjectTiming> projects = new ArrayList<>();
+    List<MojoTiming> mojos = new ArrayList<>();
+    List<ArtifactTransfer> transfers = new ArrayList<>();
+    Map<String, Long> projectStarts = new HashMap<>();
+    Map<String, Long> mojoStarts = new HashMap<>();
+    for (String event : events) {
+      String[] fields = event.split("\t", -1);
+      if (fields.length < 3) {
+        continue;
+      }
+      long timestamp;
+      try {
+        timestamp = Long.parseLong(fields[1]);
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      switch (fields[0]) {
+        case "PROJECT_STARTED":
+          projectStarts.put(fields[2], timestamp);
+          break;
+        case "PROJECT_FINISHED":
+          if (fields.length >= 4) {
+            long start = projectStarts.getOrDefault(fields[2], timestamp);
+            projects.add(new ProjectTiming(fields[2], start, timestamp - start, fields[3]));
+          }
+          break;
+        case "MOJO_STARTED":
+          if (fields.length >= 4) {
+            mojoStarts.put(fields[2] + '\t' + fields[3], timestamp);
+          }
+          break;
+        case "MOJO_FINISHED":
+          if (fields.length >= 5) {
+            long start = mojoStarts.getOrDefault(fields[2] + '\t' + fields[3], timestamp);
+            mojos.add(new MojoTiming(fields[2], fields[3], start, timestamp - start, fields[4]));
+          }
+          break;
+        case "ARTIFACT_DOWNLOADED":
+          if (fields.length >= 5) {
+            long bytes;
+            try {
+              bytes = Long.parseLong(fields[4]);
+            } catch (NumberFormatException e) {
+              bytes = -1;
+            }
+            transfers.add(new ArtifactTransfer(fields[2], fields[3], bytes));
+          }
+          break;
+        default:
+          // unknown event, ignore
+      }
+    }
+    return new BuildTimingReport(projects, mojos, transfers);
+  }
+
+  /**
+   * @return the timings of the projects in the order they finished
+   */
+  public List<ProjectTiming> getProjectTimings() {
+    return projectTimings;
+  }
+
+  /**
+   * @return the timings of the mojo executions in the order they finished
+   */
+  public List<MojoTiming> getMojoTimings() {
+    return mojoTimings;
+  }
+
+  /**
+   * @return the artifacts downloaded during the build
+   */
+  public List<ArtifactTransfer> getArtifactTransfers() {
+    return artifactTransfers;
+  }
+
+  /**
+   * @return the total number of bytes downloaded during the build
+   */
+  public long getTotalDownloadedBytes() {
+    return artifactTransfers.stream().mapToLong(t -> Math.max(0, t.bytes())).sum();
+  }
+
+  /**
+   * Get the slowest mojo executions of the build.
+   *
+   * @param limit the maximum number of mojo executions to return
+   * @return the slowest mojo executions, slowest first
+   */
+  public List<MojoTiming> getSlowestMojos(int limit) {
+    return mojoTimings.stream()
+        .sorted(Comparator.comparingLong(MojoTiming::durationMillis).reversed())
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the total time spent per plugin goal, summed over all projects and executions.
+   *
+   * @return a map of plugin artifactId:version:goal (executionId) to the total duration in millis
+   */
+  public Map<String, Long> getTotalMillisPerMojo() {
+    return mojoTimings.stream()
+        .collect(Collectors.groupingBy(MojoTiming::mojo, Collectors.summingLong(MojoTiming::durationMillis)));
+  }
+
+  @Override
+  public String toString() {
+    return "BuildTimingReport{projects=" + projectTimings.size()
+        + ", mojos=" + mojoTimings.size()
+        + ", downloads=" + artifactTransfers.size()
+        + ", downloadedBytes=" + getTotalDownloadedBytes() + '}';
+  }
+}
@@ -0,0 +1,318 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * The captured output of a Maven invocation, spilled to an append-only memory-mapped log file.
+ * <p>
+ * The lines are appended to a data file, each followed by a newline so it reads as a plain text log, and the start
+ * offset of each line is appended to an index file, both mapped into memory in fixed size regions. Only the mappings live in the heap, so even debug builds
+ * emitting millions of lines can be captured and then inspected by line number, tail or grep without
+ * loading the whole log. Request it with {@link MavenUtils.MavenExecutionOptions#withLogCapture(boolean)} and
+ * get it from {@link MavenUtils.MavenRunResult#getCapturedLog()}, or use it directly as an output handler.
+ * Close it to delete the backing files.
+ * </p>
+ */
+public class CapturedBuildLog implements InvocationOutputHandler, Closeable {
+
+  private static final int DATA_REGION_SIZE = 16 * 1024 * 1024;
+  private static final int INDEX_REGION_SIZE = 1024 * 1024;
+  private static final byte[] LINE_SEPARATOR = {'\n'};
+
+  private final Path directory;
+  private final boolean deleteOnClose;
+  private final MappedAppendFile data;
+  private final MappedAppendFile index;
+  private long lineCount;
+  private boolean closed;
+
+  /**
+   * A captured line.
+   *
+   * @param number the zero based line number
+   * @param error true if the line was written to maven's error stream
+   * @param text the text of the line
+   */
+  public record Line(long number, boolean error, String text) {
+  }
+
+  /**
+   * Creates a captured log in a new temporary directory, deleted when the log is closed.
+   *
+   * @return the empty log
+   * @throws IOException if the backing files could not be created
+   */
+  public static CapturedBuildLog createTemp() throws IOException {
+    return new CapturedBuildLog(Files.createTempDirectory("maven-build-log"), true);
+  }
+
+  /**
+   * Creates a captured log in the given directory. The backing files are kept when the log is closed.
+   *
+   * @param directory the directory where build.log and build.idx are written
+   * @throws IOException if the backing files could not be created
+   */
+  public CapturedBuildLog(Path directory) throws IOException {
+    this(directory, false);
+  }
+
+  private CapturedBuildLog(Path directory, boolean deleteOnClose) throws IOException {
+    this.directory = directory;
+    this.deleteOnClose = deleteOnClose;
+    Files.createDirectories(directory);
+    this.data = new MappedAppendFile(directory.resolve("build.log"), DATA_REGION_SIZE);
+    this.index = new MappedAppendFile(directory.resolve("build.idx"), INDEX_REGION_SIZE);
+  }
+
+  @Override
+  public void consumeLine(String line) {
+    append(line, false);
+  }
+
+  /**
+   * Create an output handler that writes to this log and then to the given handler.
+   *
+   * @param handler the handler to pass the lines on to
+   * @param error true if the handler receives maven's error stream
+   * @return the combined handler
+   */
+  public InvocationOutputHandler tee(InvocationOutputHandler handler, boolean error) {
+    return line -> {
+      append(line, error);
+      handler.consumeLine(line);
+    };
+  }
+
+  /**
+   * Append a line to the log.
+   *
+   * @param line the line to append
+   * @param error true if the line was written to maven's error stream
+   */
+  public synchronized void append(String line, boolean error) {
+    if (closed) {
+      throw new IllegalStateException("The captured build log is closed");
+    }
+    try {
+      long offset = data.size();
+      if (line != null) {
+        data.append(line.getBytes(StandardCharsets.UTF_8));
+      }
+      data.append(LINE_SEPARATOR);
+      // the lowest bit of the index entry marks lines from the error stream
+      index.appendLong(offset << 1 | (error ? 1 : 0));
+      lineCount++;
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to append to the captured build log in " + directory, e);
+    }
+  }
+
+  /**
+   * @return the number of captured lines
+   */
+  public synchronized long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * @return the number of bytes of captured text, including the newline ending each line
+   */
+  public synchronized long getSizeInBytes() {
+    return data.size();
+  }
+
+  /**
+   * @return the directory holding the log and index files
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Get a single line.
+   *
+   * @param number the zero based line number
+   * @return the line
+   * @throws IndexOutOfBoundsException if there is no such line
+   */
+  public synchronized Line getLine(long number) {
+    ensureOpen();
+    if (number < 0 || number >= lineCount) {
+      throw new IndexOutOfBoundsException("Line " + number + " is out of range, the log has " + lineCount + " lines");
+    }
+    return readLine(number);
+  }
+
+  /**
+   * Get the last lines of the log.
+   *
+   * @param count the maximum number of lines to return
+   * @return the last lines, oldest first
+   */
+  public synchronized List<Line> tail(int count) {
+    ensureOpen();
+    long from = Math.max(0, lineCount - Math.max(0, count));
+    List<Line> lines = new ArrayList<>((int) (lineCount - from));
+    for (long number = from; number < lineCount; number++) {
+      lines.add(readLine(number));
+    }
+    return lines;
+  }
+
+  /**
+   * Find the lines matching a regular expression.
+   *
+   * @param pattern the pattern to look for anywhere in the line
+   * @param maxMatches the maximum number of lines to return
+   * @return the matching lines, in log order
+   */
+  public List<Line> grep(Pattern pattern, int maxMatches) {
+    return filter(text -> pattern.matcher(text).find(), maxMatches);
+  }
+
+  /**
+   * Find the lines matching a predicate.
+   *
+   * @param predicate the condition the text of the line must fulfill
+   * @param maxMatches the maximum number of lines to return
+   * @return the matching lines, in log order
+   */
+  public synchronized List<Line> filter(Predicate<String> predicate, int maxMatches) {
+    ensureOpen();
+    List<Line> matches = new ArrayList<>();
+    for (long number = 0; number < lineCount && matches.size() < maxMatches; number++) {
+      Line line = readLine(number);
+      if (predicate.test(line.text())) {
+        matches.add(line);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Release the mappings, and delete the backing files if the log was created with {@link #createTemp()}.
+   *
+   * @throws IOException if the files could not be closed or deleted
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    data.close();
+    index.close();
+    if (deleteOnClose) {
+      Files.deleteIfExists(data.path);
+      Files.deleteIfExists(index.path);
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  private Line readLine(long number) {
+    long entry = index.getLong(number * Long.BYTES);
+    long start = entry >>> 1;
+    long next = number + 1 < lineCount ? index.getLong((number + 1) * Long.BYTES) >>> 1 : data.size();
+    // the line ends just before the newline separating it from the next one
+    byte[] bytes = new byte[Math.toIntExact(next - 1 - start)];
+    data.read(start, bytes);
+    return new Line(number, (entry & 1) == 1, new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("The captured build log is closed");
+    }
+  }
+
+  /**
+   * A file that is only appended to, mapped into memory one region at a time.
+   */
+  private static final class MappedAppendFile implements Closeable {
+
+    private final Path path;
+    private final int regionSize;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private long size;
+
+    MappedAppendFile(Path path, int regionSize) throws IOException {
+      this.path = path;
+      this.regionSize = regionSize;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    long size() {
+      return size;
+    }
+
+    void append(byte[] bytes) throws IOException {
+      int written = 0;
+      while (written < bytes.length) {
+        MappedByteBuffer region = region(size);
+        int position = (int) (size % regionSize);
+        int length = Math.min(bytes.length - written, regionSize - position);
+        region.put(position, bytes, written, length);
+        written += length;
+        size += length;
+      }
+    }
+
+    void appendLong(long value) throws IOException {
+      // region sizes are multiples of 8 so a long never straddles two regions
+      region(size).putLong((int) (size % regionSize), value);
+      size += Long.BYTES;
+    }
+
+    long getLong(long position) {
+      return regions.get((int) (position / regionSize)).getLong((int) (position % regionSize));
+    }
+
+    void read(long position, byte[] dest) {
+      int read = 0;
+      while (read < dest.length) {
+        long current = position + read;
+        MappedByteBuffer region = regions.get((int) (current / regionSize));
+        int offset = (int) (current % regionSize);
+        int length = Math.min(dest.length - read, regionSize - offset);
+        region.get(offset, dest, read, length);
+        read += length;
+      }
+    }
+
+    private MappedByteBuffer region(long position) throws IOException {
+      int regionIndex = (int) (position / regionSize);
+      while (regions.size() <= regionIndex) {
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+      }
+      return regions.get(regionIndex);
+    }
+
+    @Override
+    public void close() throws IOException {
+      regions.clear();
+      try {
+        // drop the unused tail of the last region so the file only holds what was written
+        channel.truncate(size);
+      } catch (IOException e) {
+        // some platforms refuse to truncate a file that is still mapped, the padding is harmless
+      } finally {
+        channel.close();
+      }
+    }
+  }
+}
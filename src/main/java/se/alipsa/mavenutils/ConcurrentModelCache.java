@@ -0,0 +1,33 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.building.ModelCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread safe {@link ModelCache} that is shared by the model building requests of all modules of a reactor, so
+ * that a parent pom or imported BOM that is used by many modules is only read and resolved once.
+ * The model builder copies the values going into and coming out of the cache, so they can be shared between threads.
+ */
+final class ConcurrentModelCache implements ModelCache {
+
+  private record Key(String groupId, String artifactId, String version, String tag) {
+  }
+
+  private final Map<Key, Object> entries = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(String groupId, String artifactId, String version, String tag, Object data) {
+    entries.put(new Key(groupId, artifactId, version, tag), data);
+  }
+
+  @Override
+  public Object get(String groupId, String artifactId, String version, String tag) {
+    return entries.get(new Key(groupId, artifactId, version, tag));
+  }
+
+  int size() {
+    return entries.size();
+  }
+}
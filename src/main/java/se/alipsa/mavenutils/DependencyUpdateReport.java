@@ -0,0 +1,332 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputLocationTracker;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The result of checking the parent, dependencies, managed dependencies, plugins and managed plugins of a project
+ * model against the latest versions in a repository.
+ * <p>
+ * All coordinates are looked up concurrently in one bulk lookup (see
+ * {@link ArtifactLookup#compareWithLatest(java.util.Collection, int, double)}), each distinct
+ * groupId:artifactId:version only once even if it is declared in several sections. Outdated entries are grouped by
+ * how far behind they are: a new major, minor or patch version. Declarations without a concrete version (no version,
+ * an unresolved property or a version range) are not checked, and neither are the plugins that the effective model
+ * inherits from the super pom, since the project does not declare them.
+ * </p>
+ */
+public final class DependencyUpdateReport {
+
+  /**
+   * The section of the pom where a coordinate is declared.
+   */
+  public enum Section {
+    /** project/parent */
+    PARENT,
+    /** project/dependencies */
+    DEPENDENCY,
+    /** project/dependencyManagement/dependencies */
+    MANAGED_DEPENDENCY,
+    /** project/build/plugins */
+    PLUGIN,
+    /** project/build/pluginManagement/plugins */
+    MANAGED_PLUGIN
+  }
+
+  /**
+   * How far a declared version is behind the latest version.
+   */
+  public enum Drift {
+    /** the latest version has a higher major version */
+    MAJOR,
+    /** the latest version has the same major but a higher minor version */
+    MINOR,
+    /** the latest version differs only in the patch version (or a qualifier) */
+    PATCH
+  }
+
+  /**
+   * One checked coordinate.
+   *
+   * @param section where the coordinate is declared
+   * @param groupId the group ID
+   * @param artifactId the artifact ID
+   * @param version the declared version
+   * @param compareResult the latest version and how the declared version compares to it
+   * @param drift how far the declared version is behind, or null if it is up to date
+   */
+  public record Entry(Section section, String groupId, String artifactId, String version,
+                      CompareResult compareResult, @Nullable Drift drift) {
+
+    /**
+     * @return true if a newer version is available
+     */
+    public boolean isOutdated() {
+      return drift != null;
+    }
+
+    /**
+     * @return the coordinates as groupId:artifactId:version
+     */
+    public String coordinates() {
+      return groupId + ":" + artifactId + ":" + version;
+    }
+  }
+
+  private record Declaration(Section section, String groupId, String artifactId, String version) {
+
+    String coordinates() {
+      return groupId + ":" + artifactId + ":" + version;
+    }
+  }
+
+  private final String project;
+  private final List<Entry> entries;
+  private final List<LookupResult<CompareResult>> failures;
+
+  private DependencyUpdateReport(String project, List<Entry> entries, List<LookupResult<CompareResult>> failures) {
+    this.project = project;
+    this.entries = Collections.unmodifiableList(entries);
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  /**
+   * Check a project model with the default concurrency and rate limit of the lookup.
+   *
+   * @param model the (effective) project model, see {@link MavenUtils#parsePom(java.io.File)}
+   * @param lookup the lookup used to find the latest versions
+   * @return the report
+   */
+  public static DependencyUpdateReport create(Model model, ArtifactLookup lookup) {
+    return create(model, lookup, ArtifactLookup.DEFAULT_MAX_CONCURRENT_REQUESTS,
+        ArtifactLookup.DEFAULT_REQUESTS_PER_SECOND);
+  }
+
+  /**
+   * Check a project model.
+   *
+   * @param model the (effective) project model, see {@link MavenUtils#parsePom(java.io.File)}
+   * @param lookup the lookup used to find the latest versions
+   * @param maxConcurrentRequests the maximum number of lookups in flight at the same time
+   * @param requestsPerSecond the maximum number of requests per second sent to the repository host
+   * @return the report
+   */
+  public static DependencyUpdateReport create(Model model, ArtifactLookup lookup, int maxConcurrentRequests,
+                                              double requestsPerSecond) {
+    List<Declaration> declarations = declarations(model);
+    Set<String> coordinates = new LinkedHashSet<>();
+    declarations.forEach(declaration -> coordinates.add(declaration.coordinates()));
+    Map<String, LookupResult<CompareResult>> results = lookup.compareWithLatest(coordinates, maxConcurrentRequests,
+        requestsPerSecond);
+
+    List<Entry> entries = new ArrayList<>();
+    for (Declaration declaration : declarations) {
+      LookupResult<CompareResult> result = results.get(declaration.coordinates());
+      if (result != null && result.isSuccess()) {
+        CompareResult compareResult = result.value();
+        entries.add(new Entry(declaration.section(), declaration.groupId(), declaration.artifactId(),
+            declaration.version(), compareResult, drift(declaration.version(), compareResult)));
+      }
+    }
+    List<LookupResult<CompareResult>> failures = new ArrayList<>();
+    results.values().stream().filter(result -> !result.isSuccess()).forEach(failures::add);
+    String project = model.getGroupId() + ":" + model.getArtifactId() + ":" + model.getVersion();
+    return new DependencyUpdateReport(project, entries, failures);
+  }
+
+  /**
+   * @return the coordinates (groupId:artifactId:version) of the checked project
+   */
+  public String getProject() {
+    return project;
+  }
+
+  /**
+   * @return all successfully checked entries, in declaration order
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return the entries for which a newer version is available
+   */
+  public List<Entry> getUpdates() {
+    return entries.stream().filter(Entry::isOutdated).toList();
+  }
+
+  /**
+   * @param drift how far behind the entries are
+   * @return the outdated entries with the given drift
+   */
+  public List<Entry> getUpdates(Drift drift) {
+    return entries.stream().filter(entry -> entry.drift() == drift).toList();
+  }
+
+  /**
+   * @return the outdated entries grouped by drift; every drift is present, possibly with an empty list
+   */
+  public Map<Drift, List<Entry>> getUpdatesByDrift() {
+    Map<Drift, List<Entry>> grouped = new EnumMap<>(Drift.class);
+    for (Drift drift : Drift.values()) {
+      grouped.put(drift, new ArrayList<>());
+    }
+    for (Entry entry : entries) {
+      if (entry.drift() != null) {
+        grouped.get(entry.drift()).add(entry);
+      }
+    }
+    return grouped;
+  }
+
+  /**
+   * @return the entries that are at (or above) the latest version
+   */
+  public List<Entry> getUpToDate() {
+    return entries.stream().filter(entry -> !entry.isOutdated()).toList();
+  }
+
+  /**
+   * @return the coordinates that could not be checked, e.g. because they were not found in the repository
+   */
+  public List<LookupResult<CompareResult>> getFailures() {
+    return failures;
+  }
+
+  @Override
+  public String toString() {
+    Map<Drift, List<Entry>> grouped = getUpdatesByDrift();
+    return "DependencyUpdateReport{" + project + ", checked=" + entries.size()
+        + ", major=" + grouped.get(Drift.MAJOR).size()
+        + ", minor=" + grouped.get(Drift.MINOR).size()
+        + ", patch=" + grouped.get(Drift.PATCH).size()
+        + ", failures=" + failures.size() + "}";
+  }
+
+  /**
+   * Determine how far a version is behind the latest version.
+   *
+   * @param version the declared version
+   * @param compareResult the comparison with the latest version
+   * @return the drift, or null if the version is up to date
+   */
+  @Nullable
+  static Drift drift(String version, CompareResult compareResult) {
+    if (compareResult.compareResult() >= 0) {
+      return null;
+    }
+    long[] current = leadingNumbers(version);
+    long[] latest = leadingNumbers(compareResult.latestVersion());
+    if (current[0] != latest[0]) {
+      return Drift.MAJOR;
+    }
+    if (current[1] != latest[1]) {
+      return Drift.MINOR;
+    }
+    return Drift.PATCH;
+  }
+
+  /** The first three numeric components of a version, missing components are 0. */
+  private static long[] leadingNumbers(String version) {
+    long[] numbers = new long[3];
+    int component = 0;
+    int i = version.startsWith("v") ? 1 : 0;
+    while (component < numbers.length && i < version.length()) {
+      int start = i;
+      while (i < version.length() && Character.isDigit(version.charAt(i)) && i - start < 18) {
+        i++;
+      }
+      if (i == start) {
+        break;
+      }
+      numbers[component++] = Long.parseLong(version, start, i, 10);
+      if (i >= version.length() || version.charAt(i) != '.') {
+        break;
+      }
+      i++;
+    }
+    return numbers;
+  }
+
+  private static List<Declaration> declarations(Model model) {
+    List<Declaration> declarations = new ArrayList<>();
+    Parent parent = model.getParent();
+    if (parent != null) {
+      add(declarations, Section.PARENT, parent.getGroupId(), parent.getArtifactId(), parent.getVersion());
+    }
+    for (Dependency dependency : model.getDependencies()) {
+      if (!isInjectedParent(dependency, parent) && !fromSuperPom(dependency)) {
+        add(declarations, Section.DEPENDENCY, dependency.getGroupId(), dependency.getArtifactId(),
+            dependency.getVersion());
+      }
+    }
+    if (model.getDependencyManagement() != null) {
+      for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+        if (!fromSuperPom(dependency)) {
+          add(declarations, Section.MANAGED_DEPENDENCY, dependency.getGroupId(), dependency.getArtifactId(),
+              dependency.getVersion());
+        }
+      }
+    }
+    Build build = model.getBuild();
+    if (build != null) {
+      for (Plugin plugin : build.getPlugins()) {
+        if (!fromSuperPom(plugin)) {
+          add(declarations, Section.PLUGIN, plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion());
+        }
+      }
+      if (build.getPluginManagement() != null) {
+        for (Plugin plugin : build.getPluginManagement().getPlugins()) {
+          if (!fromSuperPom(plugin)) {
+            add(declarations, Section.MANAGED_PLUGIN, plugin.getGroupId(), plugin.getArtifactId(),
+                plugin.getVersion());
+          }
+        }
+      }
+    }
+    return declarations;
+  }
+
+  /**
+   * The parent pom dependency added by {@link ParentPomsAsDependencyModelBuilder}, it is reported as the parent.
+   */
+  private static boolean isInjectedParent(Dependency dependency, @Nullable Parent parent) {
+    return parent != null && "pom".equals(dependency.getType()) && dependency.getLocation("") == null
+        && Objects.equals(parent.getGroupId(), dependency.getGroupId())
+        && Objects.equals(parent.getArtifactId(), dependency.getArtifactId())
+        && Objects.equals(parent.getVersion(), dependency.getVersion());
+  }
+
+  /**
+   * Declared by the super pom (e.g. its pluginManagement) rather than by the project or one of its parents.
+   */
+  private static boolean fromSuperPom(InputLocationTracker element) {
+    InputLocation location = element.getLocation("");
+    return location != null && location.getSource() != null && location.getSource().getModelId() != null
+        && location.getSource().getModelId().endsWith(":super-pom");
+  }
+
+  private static void add(List<Declaration> declarations, Section section, @Nullable String groupId,
+                          @Nullable String artifactId, @Nullable String version) {
+    if (groupId == null || artifactId == null || version == null || version.isBlank() || version.contains("${")
+        || version.startsWith("[") || version.startsWith("(")) {
+      return;
+    }
+    declarations.add(new Declaration(section, groupId, artifactId, version.trim()));
+  }
+}
@@ -0,0 +1,31 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationResult;
+import org.apache.maven.shared.utils.cli.CommandLineException;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link InvocationResult} for builds that were not run through the {@link org.apache.maven.shared.invoker.Invoker},
+ * e.g. builds started in the background or replayed from the {@link MavenRunCache}.
+ */
+final class ExitCodeInvocationResult implements InvocationResult {
+
+  private final int exitCode;
+  private final CommandLineException executionException;
+
+  ExitCodeInvocationResult(int exitCode, @Nullable CommandLineException executionException) {
+    this.exitCode = exitCode;
+    this.executionException = executionException;
+  }
+
+  @Override
+  public CommandLineException getExecutionException() {
+    return executionException;
+  }
+
+  @Override
+  public int getExitCode() {
+    return exitCode;
+  }
+}
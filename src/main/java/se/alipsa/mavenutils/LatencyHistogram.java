@@ -0,0 +1,103 @@
+package se.alipsa.mavenutils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of response latencies with exponentially growing buckets, from one millisecond to
+ * a little over two minutes, each bucket 25% wider than the previous one. Percentiles are therefore accurate
+ * to within 25% which is plenty to decide when to hedge a request.
+ */
+public class LatencyHistogram {
+
+  private static final double GROWTH = 1.25;
+  private static final int BUCKETS = 54;
+  private static final long[] UPPER_BOUNDS_MICROS = new long[BUCKETS];
+
+  static {
+    double bound = 1000;
+    for (int i = 0; i < BUCKETS; i++) {
+      UPPER_BOUNDS_MICROS[i] = Math.round(bound);
+      bound *= GROWTH;
+    }
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    counts.incrementAndGet(bucket(micros));
+  }
+
+  /**
+   * @return the number of recorded latencies
+   */
+  public long getCount() {
+    long total = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Get the latency below which the given share of the recorded latencies fall.
+   *
+   * @param percentile the share, between 0 and 1 (e.g. 0.95 for the 95th percentile)
+   * @return the upper bound of the bucket holding the percentile, or {@link Duration#ZERO} if nothing was recorded
+   */
+  public Duration getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 1) {
+      throw new IllegalArgumentException("percentile must be between 0 and 1, was " + percentile);
+    }
+    long[] snapshot = new long[counts.length()];
+    long total = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return Duration.ZERO;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(snapshot.length - 1);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{count=" + getCount() + ", p50=" + getPercentile(0.5).toMillis() + "ms, p95="
+        + getPercentile(0.95).toMillis() + "ms, p99=" + getPercentile(0.99).toMillis() + "ms}";
+  }
+
+  private static int bucket(long micros) {
+    int low = 0;
+    int high = BUCKETS;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (UPPER_BOUNDS_MICROS[mid] < micros) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static Duration upperBound(int bucket) {
+    // the overflow bucket has no upper bound, report the largest bound
+    return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(UPPER_BOUNDS_MICROS[Math.min(bucket, BUCKETS - 1)]));
+  }
+}
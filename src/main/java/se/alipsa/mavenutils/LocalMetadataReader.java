@@ -0,0 +1,137 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the versions of an artifact from a local Maven repository: the {@code maven-metadata-*.xml} files
+ * written by Maven for each remote repository (and {@code maven-metadata-local.xml} for installed artifacts)
+ * merged with the version directories that hold a pom or jar.
+ * <p>
+ * Results are memoized per artifact directory and reused as long as the directory and its metadata files are
+ * unchanged, so repeated lookups cost a directory listing and a few file stats.
+ * </p>
+ */
+final class LocalMetadataReader {
+
+  private final File localRepository;
+  private final Map<File, Memo> memos = new ConcurrentHashMap<>();
+
+  /**
+   * The versions of an artifact found in the local repository.
+   *
+   * @param metadata the merged metadata
+   * @param lastModifiedMillis when the newest metadata file (or the artifact directory) was last modified
+   */
+  record LocalMetadata(ArtifactMetadata metadata, long lastModifiedMillis) {
+
+    long ageMillis() {
+      return System.currentTimeMillis() - lastModifiedMillis;
+    }
+  }
+
+  private record Memo(long stamp, @Nullable LocalMetadata localMetadata) {
+  }
+
+  LocalMetadataReader(File localRepository) {
+    this.localRepository = localRepository;
+  }
+
+  File getLocalRepository() {
+    return localRepository;
+  }
+
+  /**
+   * Read the versions of an artifact from the local repository.
+   *
+   * @param groupId the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @return the local metadata, or null if the local repository holds no version of the artifact
+   */
+  @Nullable
+  LocalMetadata read(String groupId, String artifactId) {
+    File artifactDir = new File(localRepository, groupId.replace('.', '/') + "/" + artifactId);
+    File[] children = artifactDir.listFiles();
+    if (children == null) {
+      return null;
+    }
+    long lastModified = artifactDir.lastModified();
+    long stamp = lastModified * 31 + children.length;
+    List<File> metadataFiles = new ArrayList<>();
+    List<File> versionDirs = new ArrayList<>();
+    for (File child : children) {
+      String name = child.getName();
+      if (name.startsWith("maven-metadata") && name.endsWith(".xml")) {
+        metadataFiles.add(child);
+        long modified = child.lastModified();
+        lastModified = Math.max(lastModified, modified);
+        stamp = stamp * 31 + modified;
+      } else if (child.isDirectory()) {
+        versionDirs.add(child);
+      }
+    }
+    Memo memo = memos.get(artifactDir);
+    if (memo != null && memo.stamp() == stamp) {
+      return memo.localMetadata();
+    }
+    LocalMetadata localMetadata = merge(groupId, artifactId, metadataFiles, versionDirs, lastModified);
+    memos.put(artifactDir, new Memo(stamp, localMetadata));
+    return localMetadata;
+  }
+
+  @Nullable
+  private static LocalMetadata merge(String groupId, String artifactId, List<File> metadataFiles,
+                                     List<File> versionDirs, long lastModified) {
+    Set<String> versions = new LinkedHashSet<>();
+    String lastUpdated = null;
+    for (File metadataFile : metadataFiles) {
+      try (InputStream in = Files.newInputStream(metadataFile.toPath())) {
+        ArtifactMetadata metadata = MetadataXmlParser.parse(in, groupId, artifactId, false);
+        versions.addAll(metadata.versions());
+        addIfPresent(versions, metadata.release());
+        addIfPresent(versions, metadata.latest());
+        if (metadata.lastUpdated() != null && (lastUpdated == null || metadata.lastUpdated().compareTo(lastUpdated) > 0)) {
+          lastUpdated = metadata.lastUpdated();
+        }
+      } catch (IOException | NetworkException e) {
+        // a broken metadata file should not hide the version directories
+      }
+    }
+    for (File versionDir : versionDirs) {
+      String version = versionDir.getName();
+      String prefix = artifactId + "-" + version;
+      if (new File(versionDir, prefix + ".pom").isFile() || new File(versionDir, prefix + ".jar").isFile()) {
+        versions.add(version);
+      }
+    }
+    if (versions.isEmpty()) {
+      return null;
+    }
+    List<String> sorted = SemanticVersion.sort(versions);
+    String latest = sorted.get(sorted.size() - 1);
+    String release = null;
+    for (int i = sorted.size() - 1; i >= 0; i--) {
+      if (!sorted.get(i).endsWith("-SNAPSHOT")) {
+        release = sorted.get(i);
+        break;
+      }
+    }
+    return new LocalMetadata(new ArtifactMetadata(groupId, artifactId, release, latest, sorted, lastUpdated),
+        lastModified);
+  }
+
+  private static void addIfPresent(Set<String> versions, @Nullable String version) {
+    if (version != null) {
+      versions.add(version);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the outcome of one entry of a bulk lookup: either the looked up value or the error that occurred
+ * for this entry. An error for one entry does not abort the rest of the batch.
+ *
+ * @param coordinates the coordinates as given to the bulk lookup
+ * @param value the looked up value, or null if the lookup failed
+ * @param error the error that occurred, typically a {@link NotFoundException}, {@link NetworkException} or
+ *              {@link IllegalArgumentException} for malformed coordinates, or null if the lookup succeeded
+ * @param <T> the type of the looked up value
+ */
+public record LookupResult<T>(String coordinates, @Nullable T value, @Nullable RuntimeException error) {
+
+  /**
+   * @return true if the lookup succeeded
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+}
@@ -0,0 +1,318 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules {@link MavenUtils#runMavenWithSelection} invocations over many independent projects while
+ * respecting global CPU and memory admission limits.
+ * <p>
+ * Each job declares how many CPUs and how much memory (in MB) it needs. A job is only started when both
+ * fit within the remaining budget, so running many builds in parallel does not oversubscribe the machine
+ * or thrash the shared local repository. Queued jobs are ordered by their estimated cost, derived from the
+ * durations of earlier runs of the same pom and arguments: jobs without history and the longest running
+ * jobs are started first which keeps the overall batch time short.
+ * </p>
+ * <pre>{@code
+ * try (MavenBuildScheduler scheduler = new MavenBuildScheduler(8, 8192)) {
+ *   List<CompletableFuture<MavenUtils.MavenRunResult>> results = scheduler.submitAll(List.of(
+ *       new MavenBuildScheduler.Job(new File("a/pom.xml"), "clean", "install"),
+ *       new MavenBuildScheduler.Job(new File("b/pom.xml"), "verify")));
+ * }
+ * }</pre>
+ */
+public class MavenBuildScheduler implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MavenBuildScheduler.class);
+  /** Weight of the latest duration in the moving average of past durations. */
+  private static final double DURATION_SMOOTHING = 0.3;
+
+  private final int cpuLimit;
+  private final long memoryLimitMb;
+  private final ExecutorService executor;
+  private final Map<String, Long> durationEstimates = new ConcurrentHashMap<>();
+  private final PriorityQueue<QueuedJob> queue = new PriorityQueue<>(
+      Comparator.comparingLong(QueuedJob::estimatedMillis).reversed().thenComparingLong(QueuedJob::sequence));
+  private final AtomicLong sequence = new AtomicLong();
+  private int usedCpus;
+  private long usedMemoryMb;
+  private int runningJobs;
+  private long completedJobs;
+  private boolean closed;
+
+  /**
+   * A Maven invocation to be scheduled.
+   *
+   * @param pomFile the pom.xml file to build
+   * @param mvnArgs the arguments (targets) to send to maven (e.g. clean install)
+   * @param javaHome the Java home to use for this invocation, or null to use the default
+   * @param options invocation options controlling wrapper/home/default selection, may be null
+   * @param consoleOutputHandler where normal maven output will be sent, defaults to System.out
+   * @param warningOutputHandler where maven warning outputs will be sent, defaults to System.err
+   * @param cpus the number of CPUs the build is expected to use
+   * @param memoryMb the amount of memory in MB the build is expected to use
+   */
+  public record Job(File pomFile, String[] mvnArgs, @Nullable File javaHome,
+                    @Nullable MavenUtils.MavenExecutionOptions options,
+                    @Nullable InvocationOutputHandler consoleOutputHandler,
+                    @Nullable InvocationOutputHandler warningOutputHandler,
+                    int cpus, long memoryMb) {
+
+    /**
+     * Creates a job needing one CPU and 512 MB of memory, using the default output handlers.
+     *
+     * @param pomFile the pom.xml file to build
+     * @param mvnArgs the arguments (targets) to send to maven (e.g. clean install)
+     */
+    public Job(File pomFile, String... mvnArgs) {
+      this(pomFile, mvnArgs, null, null, null, null, 1, 512);
+    }
+
+    public Job {
+      Objects.requireNonNull(pomFile, "pomFile");
+      if (cpus < 1) {
+        throw new IllegalArgumentException("cpus must be at least 1, was " + cpus);
+      }
+      if (memoryMb < 0) {
+        throw new IllegalArgumentException("memoryMb must not be negative, was " + memoryMb);
+      }
+    }
+
+    String historyKey() {
+      return pomFile.getAbsolutePath() + " " + String.join(" ", mvnArgs == null ? new String[0] : mvnArgs);
+    }
+  }
+
+  private record QueuedJob(Job job, long estimatedMillis, long sequence,
+                           CompletableFuture<MavenUtils.MavenRunResult> future) {
+  }
+
+  /**
+   * Creates a scheduler limited to the number of available processors and the physical memory of the machine.
+   */
+  public MavenBuildScheduler() {
+    this(Runtime.getRuntime().availableProcessors(), physicalMemoryMb());
+  }
+
+  /**
+   * Creates a scheduler with the given admission limits.
+   *
+   * @param cpuLimit the total number of CPUs running jobs may use
+   * @param memoryLimitMb the total amount of memory in MB running jobs may use
+   */
+  public MavenBuildScheduler(int cpuLimit, long memoryLimitMb) {
+    if (cpuLimit < 1) {
+      throw new IllegalArgumentException("cpuLimit must be at least 1, was " + cpuLimit);
+    }
+    if (memoryLimitMb < 1) {
+      throw new IllegalArgumentException("memoryLimitMb must be at least 1, was " + memoryLimitMb);
+    }
+    this.cpuLimit = cpuLimit;
+    this.memoryLimitMb = memoryLimitMb;
+    this.executor = Executors.newCachedThreadPool(new SchedulerThreadFactory());
+  }
+
+  /**
+   * Queue a job for execution.
+   *
+   * @param job the job to run
+   * @return a future completed with the run result, or exceptionally if maven could not be invoked
+   */
+  public CompletableFuture<MavenUtils.MavenRunResult> submit(Job job) {
+    CompletableFuture<MavenUtils.MavenRunResult> future = new CompletableFuture<>();
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The scheduler is closed");
+      }
+      queue.add(new QueuedJob(job, estimate(job), sequence.getAndIncrement(), future));
+      dispatch();
+    }
+    return future;
+  }
+
+  /**
+   * Queue a batch of jobs for execution. The whole batch is queued before any job is started so that
+   * the jobs are ordered by their estimated cost.
+   *
+   * @param jobs the jobs to run
+   * @return the futures of the run results, in the same order as the jobs
+   */
+  public List<CompletableFuture<MavenUtils.MavenRunResult>> submitAll(Collection<Job> jobs) {
+    List<CompletableFuture<MavenUtils.MavenRunResult>> futures = new ArrayList<>(jobs.size());
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The scheduler is closed");
+      }
+      for (Job job : jobs) {
+        CompletableFuture<MavenUtils.MavenRunResult> future = new CompletableFuture<>();
+        queue.add(new QueuedJob(job, estimate(job), sequence.getAndIncrement(), future));
+        futures.add(future);
+      }
+      dispatch();
+    }
+    return futures;
+  }
+
+  /**
+   * Get the estimated duration of a job based on earlier runs of the same pom and arguments.
+   *
+   * @param job the job to estimate
+   * @return the estimated duration in milliseconds, or -1 if there is no history for the job
+   */
+  public long getEstimatedDurationMillis(Job job) {
+    return durationEstimates.getOrDefault(job.historyKey(), -1L);
+  }
+
+  /**
+   * @return the number of jobs waiting for admission
+   */
+  public synchronized int getQueueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * @return the number of jobs currently running
+   */
+  public synchronized int getRunningJobs() {
+    return runningJobs;
+  }
+
+  /**
+   * @return the number of jobs that have finished, successfully or not
+   */
+  public synchronized long getCompletedJobs() {
+    return completedJobs;
+  }
+
+  /**
+   * @return the share of the CPU limit used by running jobs, between 0 and 1 (can exceed 1 if a single job
+   * needs more than the limit)
+   */
+  public synchronized double getCpuUtilization() {
+    return (double) usedCpus / cpuLimit;
+  }
+
+  /**
+   * @return the share of the memory limit used by running jobs, between 0 and 1 (can exceed 1 if a single job
+   * needs more than the limit)
+   */
+  public synchronized double getMemoryUtilization() {
+    return (double) usedMemoryMb / memoryLimitMb;
+  }
+
+  /**
+   * Stops accepting new jobs and cancels the jobs still waiting in the queue. Running jobs are allowed to finish.
+   */
+  @Override
+  public void close() {
+    List<QueuedJob> cancelled;
+    synchronized (this) {
+      closed = true;
+      cancelled = new ArrayList<>(queue);
+      queue.clear();
+    }
+    cancelled.forEach(q -> q.future().cancel(false));
+    executor.shutdown();
+  }
+
+  void recordDuration(Job job, long millis) {
+    durationEstimates.merge(job.historyKey(), millis,
+        (previous, latest) -> Math.round(previous * (1 - DURATION_SMOOTHING) + latest * DURATION_SMOOTHING));
+  }
+
+  private long estimate(Job job) {
+    // Jobs we know nothing about are assumed to be expensive so that they are started early
+    return durationEstimates.getOrDefault(job.historyKey(), Long.MAX_VALUE);
+  }
+
+  /** Must be called while holding the lock on this. */
+  private void dispatch() {
+    while (!queue.isEmpty()) {
+      QueuedJob next = queue.peek();
+      if (next.future().isDone()) {
+        queue.poll();
+        continue;
+      }
+      Job job = next.job();
+      boolean fits = usedCpus + job.cpus() <= cpuLimit && usedMemoryMb + job.memoryMb() <= memoryLimitMb;
+      // A job larger than the limits is admitted when nothing else runs, otherwise it would wait forever
+      if (!fits && runningJobs > 0) {
+        return;
+      }
+      queue.poll();
+      usedCpus += job.cpus();
+      usedMemoryMb += job.memoryMb();
+      runningJobs++;
+      executor.execute(() -> run(next));
+    }
+  }
+
+  private void run(QueuedJob queued) {
+    Job job = queued.job();
+    long start = System.nanoTime();
+    MavenUtils.MavenRunResult result = null;
+    Throwable failure = null;
+    try {
+      result = MavenUtils.runMavenWithSelection(job.pomFile(), job.mvnArgs(), job.javaHome(),
+          job.options(), job.consoleOutputHandler(), job.warningOutputHandler());
+      recordDuration(job, (System.nanoTime() - start) / 1_000_000);
+    } catch (Exception | Error e) {
+      LOG.warn("Failed to run maven for {}: {}", job.pomFile(), e.toString());
+      failure = e;
+    } finally {
+      synchronized (this) {
+        usedCpus -= job.cpus();
+        usedMemoryMb -= job.memoryMb();
+        runningJobs--;
+        completedJobs++;
+        dispatch();
+      }
+    }
+    // Complete after releasing the resources so that the metrics are consistent when callers observe the result
+    if (failure == null) {
+      queued.future().complete(result);
+    } else {
+      queued.future().completeExceptionally(failure);
+    }
+  }
+
+  private static long physicalMemoryMb() {
+    if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+      return Math.max(1, os.getTotalMemorySize() / (1024 * 1024));
+    }
+    return Long.MAX_VALUE;
+  }
+
+  private static final class SchedulerThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+    private final int poolNumber = POOL_NUMBER.incrementAndGet();
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "maven-build-scheduler-" + poolNumber + "-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
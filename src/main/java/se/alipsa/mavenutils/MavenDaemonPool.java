@@ -0,0 +1,247 @@
+package se.alipsa.mavenutils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A managed pool of warm Maven worker processes backed by the
+ * <a href="https://github.com/apache/maven-mvnd">Maven Daemon (mvnd)</a>.
+ * <p>
+ * mvnd keeps pre-started Maven JVMs alive between builds so that JIT compiled code and plugin
+ * class realms are reused. This class decides which mvnd executable to dispatch to, bounds the number
+ * of concurrently busy workers per (mvnd home, java home) pair and passes the idle eviction timeout
+ * on to the daemons. Use it by setting it on the {@link MavenUtils.MavenExecutionOptions}:
+ * </p>
+ * <pre>{@code
+ * MavenDaemonPool pool = new MavenDaemonPool(null, 4, Duration.ofMinutes(30));
+ * MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions().withDaemonPool(pool);
+ * MavenUtils.runMavenWithSelection(pomFile, new String[]{"compile"}, null, options, null, null);
+ * }</pre>
+ */
+public class MavenDaemonPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MavenDaemonPool.class);
+  private static final long HEALTH_CHECK_TIMEOUT_SECONDS = 30;
+
+  private final File daemonExecutable;
+  private final int maxWorkers;
+  private final Duration idleTimeout;
+  private final Map<String, Semaphore> workers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a pool using the mvnd found via MVND_HOME or the PATH, allowing as many concurrent
+   * workers as there are available processors and evicting idle workers after 3 hours.
+   */
+  public MavenDaemonPool() {
+    this(null, Runtime.getRuntime().availableProcessors(), Duration.ofHours(3));
+  }
+
+  /**
+   * Creates a pool of Maven daemon workers.
+   *
+   * @param mvndHome the mvnd installation to use, or null to locate it via MVND_HOME or the PATH
+   * @param maxWorkers the maximum number of concurrently busy workers per (mvnd home, java home) pair
+   * @param idleTimeout how long an idle worker is kept alive before it is evicted
+   */
+  public MavenDaemonPool(@Nullable File mvndHome, int maxWorkers, Duration idleTimeout) {
+    if (maxWorkers < 1) {
+      throw new IllegalArgumentException("maxWorkers must be at least 1, was " + maxWorkers);
+    }
+    this.daemonExecutable = mvndHome == null ? locateDaemonExecutable() : findDaemonExecutable(new File(mvndHome, "bin"));
+    this.maxWorkers = maxWorkers;
+    this.idleTimeout = Objects.requireNonNull(idleTimeout, "idleTimeout");
+  }
+
+  /**
+   * Get the mvnd executable used to dispatch builds.
+   *
+   * @return the mvnd executable or null if no mvnd installation could be found
+   */
+  @Nullable
+  public File getDaemonExecutable() {
+    return daemonExecutable;
+  }
+
+  /**
+   * Get the mvnd installation directory.
+   *
+   * @return the mvnd home or null if no mvnd installation could be found
+   */
+  @Nullable
+  public File getDaemonHome() {
+    if (daemonExecutable == null) {
+      return null;
+    }
+    File binDir = daemonExecutable.getAbsoluteFile().getParentFile();
+    return binDir == null ? null : binDir.getParentFile();
+  }
+
+  /**
+   * @return the maximum number of concurrently busy workers per (mvnd home, java home) pair
+   */
+  public int getMaxWorkers() {
+    return maxWorkers;
+  }
+
+  /**
+   * @return how long an idle worker is kept alive before it is evicted
+   */
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Get the number of workers that are currently free for the given java home.
+   *
+   * @param javaHome the java home the workers run on, or null for the default java home
+   * @return the number of workers that can be leased without blocking
+   */
+  public int getAvailableWorkers(@Nullable File javaHome) {
+    Semaphore semaphore = workers.get(key(javaHome));
+    return semaphore == null ? maxWorkers : semaphore.availablePermits();
+  }
+
+  /**
+   * Lease a worker for the given java home, blocking until one becomes available.
+   *
+   * @param javaHome the java home the worker should run on, or null for the default java home
+   * @return a lease that must be closed when the build is done
+   * @throws InterruptedException if interrupted while waiting for a free worker
+   */
+  public Lease acquire(@Nullable File javaHome) throws InterruptedException {
+    Semaphore semaphore = workers.computeIfAbsent(key(javaHome), k -> new Semaphore(maxWorkers, true));
+    semaphore.acquire();
+    return new Lease(semaphore);
+  }
+
+  /**
+   * The system properties passed to mvnd for each dispatched build.
+   *
+   * @return the mvnd arguments
+   */
+  List<String> daemonArguments() {
+    return List.of("-Dmvnd.idleTimeout=" + idleTimeout.toMillis() + "ms");
+  }
+
+  /**
+   * Checks that the daemon registry for the given java home is reachable by running {@code mvnd --status}.
+   *
+   * @param javaHome the java home the workers run on, or null for the default java home
+   * @return true if mvnd is installed and reports its status successfully
+   */
+  public boolean isHealthy(@Nullable File javaHome) {
+    return runDaemonCommand(javaHome, "--status");
+  }
+
+  /**
+   * Stops all daemons managed by the mvnd installation used by this pool.
+   *
+   * @param javaHome the java home the workers run on, or null for the default java home
+   * @return true if the daemons were stopped successfully
+   */
+  public boolean stop(@Nullable File javaHome) {
+    return runDaemonCommand(javaHome, "--stop");
+  }
+
+  private boolean runDaemonCommand(@Nullable File javaHome, String command) {
+    if (daemonExecutable == null) {
+      return false;
+    }
+    ProcessBuilder pb = new ProcessBuilder(daemonExecutable.getAbsolutePath(), command);
+    pb.redirectErrorStream(true);
+    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    if (javaHome != null) {
+      pb.environment().put("JAVA_HOME", javaHome.getAbsolutePath());
+    }
+    try {
+      Process process = pb.start();
+      if (!process.waitFor(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        LOG.warn("{} {} did not finish within {} seconds", daemonExecutable, command, HEALTH_CHECK_TIMEOUT_SECONDS);
+        return false;
+      }
+      return process.exitValue() == 0;
+    } catch (IOException e) {
+      LOG.warn("Failed to execute {} {}: {}", daemonExecutable, command, e.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while running {} {}", daemonExecutable, command);
+    }
+    return false;
+  }
+
+  private String key(@Nullable File javaHome) {
+    return getDaemonHome() + File.pathSeparator + (javaHome == null ? "" : javaHome.getAbsolutePath());
+  }
+
+  @Nullable
+  private static File locateDaemonExecutable() {
+    String mvndHome = System.getProperty("MVND_HOME", System.getenv("MVND_HOME"));
+    if (mvndHome != null && !mvndHome.isBlank()) {
+      File executable = findDaemonExecutable(new File(mvndHome, "bin"));
+      if (executable != null) {
+        return executable;
+      }
+    }
+    String path = System.getenv("PATH");
+    if (path == null || path.isBlank()) {
+      return null;
+    }
+    for (String elem : path.split(File.pathSeparator)) {
+      File executable = findDaemonExecutable(new File(elem));
+      if (executable != null) {
+        return executable;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static File findDaemonExecutable(File dir) {
+    if (!dir.isDirectory()) {
+      return null;
+    }
+    boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+    String[] candidates = windows ? new String[]{"mvnd.cmd", "mvnd.exe", "mvnd"} : new String[]{"mvnd", "mvnd.sh"};
+    for (String candidate : candidates) {
+      File executable = new File(dir, candidate);
+      if (executable.isFile() && executable.canExecute()) {
+        return executable;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A leased Maven daemon worker, return it to the pool by closing it.
+   */
+  public static final class Lease implements AutoCloseable {
+
+    private final Semaphore semaphore;
+    private boolean released;
+
+    private Lease(Semaphore semaphore) {
+      this.semaphore = semaphore;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!released) {
+        released = true;
+        semaphore.release();
+      }
+    }
+  }
+}
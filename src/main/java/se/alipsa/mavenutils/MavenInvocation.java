@@ -0,0 +1,283 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.CommandLineTimeOutException;
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A handle to a maven build running in the background, created by
+ * {@link MavenUtils#runMavenAsync(java.io.File, String[], java.io.File, MavenUtils.MavenExecutionOptions,
+ * InvocationOutputHandler, InvocationOutputHandler, Duration)}.
+ * <p>
+ * Output lines are read from the maven process by pump threads into a bounded buffer and handed to the
+ * output handlers in batches on a separate delivery thread, so a slow consumer never stalls maven's stdout.
+ * If the buffer is full, lines are dropped and counted (see {@link #getDroppedLines()}).
+ * The build can be cancelled cooperatively (the process tree is asked to terminate) or forcibly (the
+ * process tree is killed). When the wall-clock deadline passes, the build is cancelled cooperatively and
+ * killed if it is still alive after a grace period.
+ * </p>
+ */
+public class MavenInvocation {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MavenInvocation.class);
+  /** The default number of output lines buffered between the pump threads and the output handlers. */
+  public static final int DEFAULT_BUFFER_CAPACITY = 10_000;
+  private static final int MAX_BATCH_SIZE = 512;
+  private static final Duration FORCED_CANCEL_GRACE_PERIOD = Duration.ofSeconds(10);
+  private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "maven-invocation-deadline");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final Object END_OF_STREAM = new Object();
+
+  private final Process process;
+  private final BlockingQueue<Object> buffer;
+  private final AtomicLong droppedLines = new AtomicLong();
+  private final CompletableFuture<MavenUtils.MavenRunResult> result = new CompletableFuture<>();
+  /** Set when orphaned grand children keep the pipes open after maven has exited, stops the pumps from reading on. */
+  private volatile boolean pumpsAbandoned;
+  private volatile boolean cancelled;
+  private volatile boolean timedOut;
+  private volatile ScheduledFuture<?> deadline;
+
+  private MavenInvocation(Process process, int bufferCapacity) {
+    this.process = process;
+    this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+  }
+
+  static MavenInvocation start(Commandline commandline, MavenUtils.MavenDistributionSelection selection,
+                               InvocationOutputHandler outputHandler, InvocationOutputHandler errorHandler,
+                               @Nullable Duration timeout, int bufferCapacity, @Nullable AutoCloseable onExit)
+      throws CommandLineException, IOException {
+    // Commandline.execute applies the shell, working directory and environment exactly like the DefaultInvoker does
+    Process process = commandline.execute();
+    process.getOutputStream().close();
+
+    MavenInvocation invocation = new MavenInvocation(process, bufferCapacity);
+    Thread out = invocation.pump(process.getInputStream(), false, "maven-invocation-out-" + process.pid());
+    Thread err = invocation.pump(process.getErrorStream(), true, "maven-invocation-err-" + process.pid());
+    Thread delivery = new Thread(() -> invocation.deliver(outputHandler, errorHandler),
+        "maven-invocation-delivery-" + process.pid());
+    delivery.setDaemon(true);
+    delivery.start();
+    if (timeout != null) {
+      invocation.deadline = DEADLINES.schedule(invocation::expire, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    process.onExit().thenRunAsync(() -> invocation.complete(selection, out, err, delivery, onExit));
+    return invocation;
+  }
+
+  /**
+   * @return a future completed with the run result when the maven process has exited and all output
+   * has been delivered. Output still written by processes that outlive maven (e.g. orphaned grand children holding
+   * its pipes) more than a grace period after maven exited is not delivered.
+   */
+  public CompletableFuture<MavenUtils.MavenRunResult> getResult() {
+    return result;
+  }
+
+  /**
+   * Wait for the build to finish.
+   *
+   * @return the run result
+   * @throws InterruptedException if interrupted while waiting
+   * @throws ExecutionException if the result could not be collected
+   */
+  public MavenUtils.MavenRunResult await() throws InterruptedException, ExecutionException {
+    return result.get();
+  }
+
+  /**
+   * Ask the maven process tree to terminate.
+   */
+  public void cancel() {
+    cancelled = true;
+    process.descendants().forEach(ProcessHandle::destroy);
+    process.destroy();
+  }
+
+  /**
+   * Kill the maven process tree.
+   */
+  public void cancelForcibly() {
+    cancelled = true;
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
+
+  /**
+   * @return true if the build is still running
+   */
+  public boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * @return true if the build was cancelled, either explicitly or because the deadline passed
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return true if the build was cancelled because the deadline passed
+   */
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  /**
+   * @return the number of output lines dropped because the output buffer was full
+   */
+  public long getDroppedLines() {
+    return droppedLines.get();
+  }
+
+  /**
+   * @return the process id of the maven process
+   */
+  public long pid() {
+    return process.pid();
+  }
+
+  private Thread pump(InputStream stream, boolean error, String name) {
+    Thread thread = new Thread(() -> {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+        String line;
+        while ((line = reader.readLine()) != null && !pumpsAbandoned) {
+          if (!buffer.offer(new OutputLine(line, error))) {
+            droppedLines.incrementAndGet();
+          }
+        }
+      } catch (IOException e) {
+        LOG.debug("Stopped reading maven output: {}", e.toString());
+      } finally {
+        // once abandoned, the end of this stream has already been queued on its behalf
+        if (!pumpsAbandoned) {
+          try {
+            buffer.put(END_OF_STREAM);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }, name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private void deliver(InvocationOutputHandler outputHandler, InvocationOutputHandler errorHandler) {
+    List<Object> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    int openStreams = 2;
+    try {
+      while (openStreams > 0) {
+        batch.add(buffer.take());
+        buffer.drainTo(batch, MAX_BATCH_SIZE - 1);
+        for (Object item : batch) {
+          if (item == END_OF_STREAM) {
+            openStreams--;
+          } else {
+            OutputLine line = (OutputLine) item;
+            try {
+              (line.error() ? errorHandler : outputHandler).consumeLine(line.line());
+            } catch (RuntimeException | IOException e) {
+              LOG.warn("Output handler failed to consume line: {}", e.toString());
+            }
+          }
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void expire() {
+    if (!process.isAlive()) {
+      return;
+    }
+    LOG.warn("Maven process {} did not finish before the deadline, cancelling it", process.pid());
+    timedOut = true;
+    cancel();
+    DEADLINES.schedule(() -> {
+      if (process.isAlive()) {
+        LOG.warn("Maven process {} did not terminate, killing it", process.pid());
+        cancelForcibly();
+      }
+    }, FORCED_CANCEL_GRACE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void complete(MavenUtils.MavenDistributionSelection selection, Thread out, Thread err, Thread delivery,
+                        @Nullable AutoCloseable onExit) {
+    try {
+      if (deadline != null) {
+        deadline.cancel(false);
+      }
+      // Orphaned grand children may keep the pipes open, do not wait for them longer than the grace period
+      long waitUntil = System.nanoTime() + FORCED_CANCEL_GRACE_PERIOD.toNanos();
+      for (Thread pump : List.of(out, err)) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(waitUntil - System.nanoTime());
+        if (remainingMillis > 0) {
+          pump.join(remainingMillis);
+        }
+      }
+      int openPumps = (out.isAlive() ? 1 : 0) + (err.isAlive() ? 1 : 0);
+      if (openPumps > 0) {
+        LOG.warn("The output of maven process {} is still open after it exited, no longer reading it", process.pid());
+        pumpsAbandoned = true;
+        for (int i = 0; i < openPumps; i++) {
+          buffer.put(END_OF_STREAM);
+        }
+      }
+      // all output read before the pipes were closed or abandoned is delivered before the result completes
+      delivery.join();
+      if (droppedLines.get() > 0) {
+        LOG.warn("{} lines of maven output were dropped because the output buffer was full", droppedLines.get());
+      }
+      CommandLineException executionException = timedOut
+          ? new CommandLineTimeOutException("Maven process did not finish before the deadline", null)
+          : null;
+      result.complete(new MavenUtils.MavenRunResult(new ExitCodeInvocationResult(process.exitValue(), executionException),
+          selection));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    } finally {
+      if (onExit != null) {
+        try {
+          onExit.close();
+        } catch (Exception e) {
+          LOG.warn("Failed to release resources of maven process {}: {}", process.pid(), e.toString());
+        }
+      }
+    }
+  }
+
+  private record OutputLine(String line, boolean error) {
+  }
+}
@@ -0,0 +1,417 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.invoker.InvocationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of successful maven runs, keyed by a fingerprint of the inputs of the build.
+ * <p>
+ * When set on the {@link MavenUtils.MavenExecutionOptions} (see
+ * {@link MavenUtils.MavenExecutionOptions#withRunCache(MavenRunCache)}), {@link MavenUtils#runMavenWithSelection}
+ * computes a fingerprint of the pom, the hashes of all files in the project directory (except build output and
+ * version control directories), the arguments, the java home and the maven distribution and version (for the wrapper,
+ * the distribution it installed). When an earlier successful run has the same fingerprint, the build is skipped and
+ * its recorded output is replayed to the output handlers. Files are hashed in parallel and the least recently used
+ * entries are evicted when the cache is full.
+ * </p>
+ */
+public class MavenRunCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MavenRunCache.class);
+  private static final Set<String> EXCLUDED_DIRS = Set.of("target", ".git", ".svn", ".hg", ".idea", ".gradle",
+      "node_modules");
+  private static final String RESULT_FILE = "result.properties";
+  private static final String OUTPUT_FILE = "output.log";
+  /** Runs producing more output lines than this are not cached. */
+  private static final int MAX_RECORDED_LINES = 200_000;
+
+  private final Path cacheDir;
+  private final int maxEntries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a run cache in ~/.m2/maven-utils/run-cache holding at most 256 runs.
+   */
+  public MavenRunCache() {
+    this(new File(EnvUtils.getUserHome(), ".m2/maven-utils/run-cache"), 256);
+  }
+
+  /**
+   * Creates a run cache.
+   *
+   * @param cacheDir the directory where the runs are stored
+   * @param maxEntries the maximum number of runs to keep, the least recently used are evicted first
+   */
+  public MavenRunCache(File cacheDir, int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be at least 1, was " + maxEntries);
+    }
+    this.cacheDir = cacheDir.toPath();
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * @return the number of runs that were replayed from the cache
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of runs that were not found in the cache
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Compute the fingerprint of the inputs of a build.
+   *
+   * @param pomFile the pom.xml file to build
+   * @param mvnArgs the arguments (targets) sent to maven
+   * @param javaHome the java home used for the build, or null for the default
+   * @param selection the maven distribution used for the build
+   * @return a hex encoded SHA-256 fingerprint
+   * @throws IOException if the project files could not be read
+   */
+  String fingerprint(File pomFile, @Nullable String[] mvnArgs, @Nullable File javaHome,
+                     MavenUtils.MavenDistributionSelection selection) throws IOException {
+    MessageDigest digest = newDigest();
+    update(digest, "pom", pomFile.getAbsolutePath());
+    update(digest, "pomHash", hash(pomFile.toPath()));
+    update(digest, "args", mvnArgs == null ? "" : String.join("\u0000", mvnArgs));
+    File effectiveJavaHome = javaHome == null ? new File(System.getProperty("java.home")) : javaHome;
+    update(digest, "javaHome", effectiveJavaHome.getAbsolutePath());
+    File releaseFile = new File(effectiveJavaHome, "release");
+    update(digest, "javaRelease", releaseFile.isFile() ? hash(releaseFile.toPath()) : "");
+    update(digest, "maven", selection.getMode() + " " + selection.getMavenHome() + " " + selection.getMavenExecutable()
+        + " " + mavenVersion(selection));
+
+    Path projectDir = pomFile.getAbsoluteFile().getParentFile().toPath();
+    List<Path> files = listProjectFiles(projectDir);
+    try {
+      List<String> fileHashes = files.parallelStream()
+          .map(file -> projectDir.relativize(file) + "=" + hashUnchecked(file))
+          .collect(Collectors.toList());
+      fileHashes.forEach(fileHash -> update(digest, "file", fileHash));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Replay a recorded run to the output handlers.
+   *
+   * @param fingerprint the fingerprint of the build inputs
+   * @param outputHandler where normal maven output will be sent
+   * @param errorHandler where maven warning outputs will be sent
+   * @return the recorded result, or null if no successful run with the given fingerprint was found
+   */
+  @Nullable
+  InvocationResult replay(String fingerprint, InvocationOutputHandler outputHandler, InvocationOutputHandler errorHandler) {
+    Path entryDir = cacheDir.resolve(fingerprint);
+    Path resultFile = entryDir.resolve(RESULT_FILE);
+    if (!Files.isRegularFile(resultFile)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    try {
+      Properties properties = new Properties();
+      try (InputStream in = Files.newInputStream(resultFile)) {
+        properties.load(in);
+      }
+      int exitCode = Integer.parseInt(properties.getProperty("exitCode", "0"));
+      try (BufferedReader reader = Files.newBufferedReader(entryDir.resolve(OUTPUT_FILE), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          (line.charAt(0) == 'E' ? errorHandler : outputHandler).consumeLine(line.substring(1));
+        }
+      }
+      Files.setLastModifiedTime(resultFile, FileTime.fromMillis(System.currentTimeMillis()));
+      hits.incrementAndGet();
+      LOG.info("Replayed cached maven run {}", fingerprint);
+      return new ExitCodeInvocationResult(exitCode, null);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to replay cached maven run {}: {}", fingerprint, e.toString());
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Start recording the output of a run so it can be stored with {@link #store(String, int, Recording)}.
+   *
+   * @return a new recording
+   */
+  Recording record() {
+    return new Recording();
+  }
+
+  /**
+   * Store a successful run and evict the least recently used runs if the cache is full.
+   *
+   * @param fingerprint the fingerprint of the build inputs
+   * @param exitCode the exit code of the run
+   * @param recording the recorded output of the run
+   */
+  void store(String fingerprint, int exitCode, Recording recording) {
+    if (recording.isTruncated()) {
+      LOG.debug("Not caching maven run {}, the output is too large", fingerprint);
+      return;
+    }
+    Path entryDir = cacheDir.resolve(fingerprint);
+    try {
+      Files.createDirectories(entryDir);
+      try (BufferedWriter writer = Files.newBufferedWriter(entryDir.resolve(OUTPUT_FILE), StandardCharsets.UTF_8)) {
+        for (String line : recording.lines()) {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+      Properties properties = new Properties();
+      properties.setProperty("exitCode", String.valueOf(exitCode));
+      // the result file is written last, its presence marks a complete entry
+      try (BufferedWriter writer = Files.newBufferedWriter(entryDir.resolve(RESULT_FILE), StandardCharsets.UTF_8)) {
+        properties.store(writer, "maven-utils run cache entry");
+      }
+      evict();
+    } catch (IOException e) {
+      LOG.warn("Failed to store maven run {} in cache: {}", fingerprint, e.toString());
+    }
+  }
+
+  /**
+   * Remove all cached runs.
+   *
+   * @throws IOException if the cache directory could not be cleaned
+   */
+  public void clear() throws IOException {
+    if (!Files.isDirectory(cacheDir)) {
+      return;
+    }
+    try (Stream<Path> entries = Files.list(cacheDir)) {
+      for (Path entry : entries.collect(Collectors.toList())) {
+        deleteEntry(entry);
+      }
+    }
+  }
+
+  private void evict() throws IOException {
+    List<Path> entries;
+    try (Stream<Path> stream = Files.list(cacheDir)) {
+      entries = stream.filter(p -> Files.isRegularFile(p.resolve(RESULT_FILE))).collect(Collectors.toList());
+    }
+    if (entries.size() <= maxEntries) {
+      return;
+    }
+    entries.sort(Comparator.comparingLong(MavenRunCache::lastUsed));
+    for (Path entry : entries.subList(0, entries.size() - maxEntries)) {
+      LOG.debug("Evicting cached maven run {}", entry.getFileName());
+      deleteEntry(entry);
+    }
+  }
+
+  private static long lastUsed(Path entry) {
+    try {
+      return Files.getLastModifiedTime(entry.resolve(RESULT_FILE)).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static void deleteEntry(Path entry) throws IOException {
+    // delete the marker first so a partially deleted entry is never replayed
+    Files.deleteIfExists(entry.resolve(RESULT_FILE));
+    Files.deleteIfExists(entry.resolve(OUTPUT_FILE));
+    Files.deleteIfExists(entry);
+  }
+
+  private static List<Path> listProjectFiles(Path projectDir) throws IOException {
+    List<Path> files = new ArrayList<>();
+    Files.walkFileTree(projectDir, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (!dir.equals(projectDir) && EXCLUDED_DIRS.contains(dir.getFileName().toString())) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+          files.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    files.sort(Comparator.naturalOrder());
+    return files;
+  }
+
+  /**
+   * @return the maven version the build runs with, as the name of the maven-core jar of the distribution used
+   */
+  private static String mavenVersion(MavenUtils.MavenDistributionSelection selection) throws IOException {
+    return switch (selection.getMode()) {
+      // mvnd runs the maven distribution it bundles in its mvn sub directory, not the jars in its own lib
+      case DAEMON -> selection.getMavenHome() == null ? "" : coreJar(new File(selection.getMavenHome(), "mvn"));
+      case WRAPPER -> wrapperMavenVersion(selection.getMavenExecutable());
+      default -> selection.getMavenHome() == null ? "" : coreJar(selection.getMavenHome());
+    };
+  }
+
+  /**
+   * The wrapper runs the distribution named by the distributionUrl of its properties, installed in the wrapper
+   * dists directory. Before the wrapper has installed it, only the url is known.
+   */
+  private static String wrapperMavenVersion(@Nullable File wrapperExecutable) throws IOException {
+    if (wrapperExecutable == null) {
+      return "";
+    }
+    Path propertiesFile = wrapperExecutable.getAbsoluteFile().toPath().resolveSibling(".mvn/wrapper/maven-wrapper.properties");
+    if (!Files.isRegularFile(propertiesFile)) {
+      return "";
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(propertiesFile)) {
+      properties.load(in);
+    }
+    String distributionUrl = properties.getProperty("distributionUrl", "").trim();
+    String archive = distributionUrl.substring(distributionUrl.lastIndexOf('/') + 1);
+    String distributionName = archive.replaceFirst("\\.(zip|tar\\.gz)$", "");
+    if (distributionName.isEmpty()) {
+      return distributionUrl;
+    }
+    String mavenUserHome = System.getenv("MAVEN_USER_HOME");
+    Path dists = (mavenUserHome == null || mavenUserHome.isBlank()
+        ? new File(EnvUtils.getUserHome(), ".m2").toPath() : Path.of(mavenUserHome)).resolve("wrapper/dists");
+    // older wrappers keep the -bin suffix of the archive in the directory name, newer ones drop it
+    for (String name : List.of(distributionName, distributionName.replaceFirst("-bin$", ""))) {
+      Path distribution = dists.resolve(name);
+      if (!Files.isDirectory(distribution)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.find(distribution, 4, (file, attrs) -> attrs.isRegularFile()
+          && isCoreJar(file.getFileName().toString()) && file.getParent().getFileName().toString().equals("lib"))) {
+        List<String> coreJars = files.map(file -> file.getFileName().toString()).sorted().toList();
+        if (!coreJars.isEmpty()) {
+          return distributionUrl + " " + String.join(",", coreJars);
+        }
+      }
+    }
+    return distributionUrl;
+  }
+
+  private static String coreJar(File mavenHome) {
+    File[] coreJars = new File(mavenHome, "lib").listFiles((dir, name) -> isCoreJar(name));
+    return coreJars == null || coreJars.length == 0 ? "" : coreJars[0].getName();
+  }
+
+  private static boolean isCoreJar(String fileName) {
+    return fileName.startsWith("maven-core-") && fileName.endsWith(".jar");
+  }
+
+  private static String hashUnchecked(Path file) {
+    try {
+      return hash(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String hash(Path file) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String key, String value) {
+    digest.update(key.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm not available", e);
+    }
+  }
+
+  /**
+   * Records the output of a maven run while passing it on to the actual output handlers.
+   */
+  static final class Recording {
+
+    private final List<String> lines = new ArrayList<>();
+    private boolean truncated;
+
+    private Recording() {
+    }
+
+    InvocationOutputHandler tee(InvocationOutputHandler handler, boolean error) {
+      return line -> {
+        add(line, error);
+        handler.consumeLine(line);
+      };
+    }
+
+    private synchronized void add(String line, boolean error) {
+      if (lines.size() >= MAX_RECORDED_LINES) {
+        truncated = true;
+        return;
+      }
+      lines.add((error ? "E" : "O") + line);
+    }
+
+    private synchronized List<String> lines() {
+      return new ArrayList<>(lines);
+    }
+
+    private synchronized boolean isTruncated() {
+      return truncated;
+    }
+  }
+}
@@ -13,7 +13,10 @@ import org.apache.maven.model.Model;
 import org.apache.maven.model.building.DefaultModelBuildingRequest;
 import org.apache.maven.model.building.ModelBuilder;
 import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
 import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
+import org.apache.maven.model.resolution.WorkspaceModelResolver;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.apache.maven.settings.Settings;
 import org.apache.maven.settings.building.DefaultSettingsBuilder;
@@ -24,10 +27,13 @@ import org.apache.maven.settings.io.DefaultSettingsReader;
 import org.apache.maven.settings.io.DefaultSettingsWriter;
 import org.apache.maven.settings.validation.DefaultSettingsValidator;
 import org.apache.maven.shared.invoker.*;
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.eclipse.aether.DefaultRepositoryCache;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactType;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.graph.DependencyFilter;
 import org.eclipse.aether.repository.LocalRepository;
@@ -40,6 +46,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -65,7 +72,22 @@ public class MavenUtils {
   public enum MavenDistributionMode {
     WRAPPER,
     HOME,
-    DEFAULT
+    DEFAULT,
+    DAEMON
+  }
+
+  /**
+   * How much of the pom model {@link #parsePom(File, PomParseMode)} builds.
+   */
+  public enum PomParseMode {
+    /** The complete effective model, including plugins, reporting and location tracking. */
+    FULL,
+    /**
+     * Only what classpath resolution needs: coordinates, parent, dependencies, managed dependencies and
+     * repositories. Uses minimal validation and skips plugin processing and location tracking. A pom without a
+     * parent, profiles, property references or dependency management is read directly from the xml.
+     */
+    DEPENDENCIES
   }
 
   public static final class MavenExecutionOptions {
@@ -73,15 +95,54 @@ public class MavenUtils {
     private final File projectDir;
     private final File configuredMavenHome;
     private final boolean preferWrapper;
+    private final MavenDaemonPool daemonPool;
+    private final boolean buildEvents;
+    private final MavenRunCache runCache;
+    private final boolean logCapture;
 
     public MavenExecutionOptions() {
       this(null, null, true);
     }
 
     public MavenExecutionOptions(@Nullable File projectDir, @Nullable File configuredMavenHome, boolean preferWrapper) {
+      this(projectDir, configuredMavenHome, preferWrapper, null, false, null, false);
+    }
+
+    private MavenExecutionOptions(@Nullable File projectDir, @Nullable File configuredMavenHome, boolean preferWrapper,
+                                  @Nullable MavenDaemonPool daemonPool, boolean buildEvents,
+                                  @Nullable MavenRunCache runCache, boolean logCapture) {
       this.projectDir = projectDir;
       this.configuredMavenHome = configuredMavenHome;
       this.preferWrapper = preferWrapper;
+      this.daemonPool = daemonPool;
+      this.buildEvents = buildEvents;
+      this.runCache = runCache;
+      this.logCapture = logCapture;
+    }
+
+    /**
+     * Create a copy of these options that dispatches builds to warm Maven daemon workers.
+     * When the pool has an mvnd installation, DAEMON mode takes precedence over the wrapper and Maven home.
+     *
+     * @param daemonPool the daemon pool to use, or null to disable daemon dispatch
+     * @return a new MavenExecutionOptions instance
+     */
+    public MavenExecutionOptions withDaemonPool(@Nullable MavenDaemonPool daemonPool) {
+      return new MavenExecutionOptions(projectDir, configuredMavenHome, preferWrapper, daemonPool, buildEvents, runCache,
+          logCapture);
+    }
+
+    /**
+     * Create a copy of these options that collects per-project and per-mojo timings from the invoked build.
+     * The timings are streamed from a small extension injected through {@code -Dmaven.ext.class.path} and are
+     * available from {@link MavenRunResult#getTimingReport()}.
+     *
+     * @param buildEvents true to collect build events
+     * @return a new MavenExecutionOptions instance
+     */
+    public MavenExecutionOptions withBuildEvents(boolean buildEvents) {
+      return new MavenExecutionOptions(projectDir, configuredMavenHome, preferWrapper, daemonPool, buildEvents, runCache,
+          logCapture);
     }
 
     @Nullable
@@ -97,6 +158,48 @@ public class MavenUtils {
     public boolean isPreferWrapper() {
       return preferWrapper;
     }
+
+    @Nullable
+    public MavenDaemonPool getDaemonPool() {
+      return daemonPool;
+    }
+
+    /**
+     * Create a copy of these options that skips builds whose inputs are unchanged since an earlier successful run.
+     * The output of the earlier run is replayed to the output handlers instead.
+     *
+     * @param runCache the run cache to use, or null to always run maven
+     * @return a new MavenExecutionOptions instance
+     */
+    public MavenExecutionOptions withRunCache(@Nullable MavenRunCache runCache) {
+      return new MavenExecutionOptions(projectDir, configuredMavenHome, preferWrapper, daemonPool, buildEvents, runCache,
+          logCapture);
+    }
+
+    /**
+     * Create a copy of these options that captures the output of the build in a memory-mapped log file.
+     * The log is available from {@link MavenRunResult#getCapturedLog()} and must be closed by the caller.
+     *
+     * @param logCapture true to capture the output
+     * @return a new MavenExecutionOptions instance
+     */
+    public MavenExecutionOptions withLogCapture(boolean logCapture) {
+      return new MavenExecutionOptions(projectDir, configuredMavenHome, preferWrapper, daemonPool, buildEvents, runCache,
+          logCapture);
+    }
+
+    public boolean isBuildEvents() {
+      return buildEvents;
+    }
+
+    public boolean isLogCapture() {
+      return logCapture;
+    }
+
+    @Nullable
+    public MavenRunCache getRunCache() {
+      return runCache;
+    }
   }
 
   public static final class MavenDistributionSelection {
@@ -138,10 +241,27 @@ public class MavenUtils {
 
     private final InvocationResult invocationResult;
     private final MavenDistributionSelection distributionSelection;
+    private final BuildTimingReport timingReport;
+    private final boolean fromCache;
+    private final CapturedBuildLog capturedLog;
 
-    private MavenRunResult(InvocationResult invocationResult, MavenDistributionSelection distributionSelection) {
+    MavenRunResult(InvocationResult invocationResult, MavenDistributionSelection distributionSelection) {
+      this(invocationResult, distributionSelection, null, false, null);
+    }
+
+    MavenRunResult(InvocationResult invocationResult, MavenDistributionSelection distributionSelection,
+                   @Nullable BuildTimingReport timingReport) {
+      this(invocationResult, distributionSelection, timingReport, false, null);
+    }
+
+    MavenRunResult(InvocationResult invocationResult, MavenDistributionSelection distributionSelection,
+                   @Nullable BuildTimingReport timingReport, boolean fromCache,
+                   @Nullable CapturedBuildLog capturedLog) {
       this.invocationResult = invocationResult;
       this.distributionSelection = distributionSelection;
+      this.timingReport = timingReport;
+      this.fromCache = fromCache;
+      this.capturedLog = capturedLog;
     }
 
     public InvocationResult getInvocationResult() {
@@ -151,6 +271,36 @@ public class MavenUtils {
     public MavenDistributionSelection getDistributionSelection() {
       return distributionSelection;
     }
+
+    /**
+     * Get the per-project and per-mojo timings of the build.
+     *
+     * @return the timing report, or null if build events were not requested
+     * @see MavenExecutionOptions#withBuildEvents(boolean)
+     */
+    @Nullable
+    public BuildTimingReport getTimingReport() {
+      return timingReport;
+    }
+
+    /**
+     * @return true if maven was not run because an earlier successful run with the same inputs was replayed
+     * @see MavenExecutionOptions#withRunCache(MavenRunCache)
+     */
+    public boolean isFromCache() {
+      return fromCache;
+    }
+
+    /**
+     * Get the captured output of the build. The caller owns the log and should close it when done.
+     *
+     * @return the captured log, or null if log capture was not requested
+     * @see MavenExecutionOptions#withLogCapture(boolean)
+     */
+    @Nullable
+    public CapturedBuildLog getCapturedLog() {
+      return capturedLog;
+    }
   }
 
   public static final class DependenciesResolutionResult {
@@ -364,9 +514,186 @@ public class MavenUtils {
         request.getBaseDirectory(), request.getGoals(), request.getArgs(), selection.getMode());
     Invoker invoker = new DefaultInvoker();
     configureInvoker(invoker, selection);
-    request.setOutputHandler(consoleOutputHandler == null ? new ConsoleInvocationOutputHandler() : consoleOutputHandler);
-    request.setErrorHandler(warningOutputHandler == null ? new WarningInvocationOutputHandler() : warningOutputHandler);
-    return new MavenRunResult(invoker.execute(request), selection);
+    InvocationOutputHandler outputHandler = consoleOutputHandler == null ? new ConsoleInvocationOutputHandler() : consoleOutputHandler;
+    InvocationOutputHandler errorHandler = warningOutputHandler == null ? new WarningInvocationOutputHandler() : warningOutputHandler;
+    CapturedBuildLog capturedLog = null;
+    if (options != null && options.isLogCapture()) {
+      try {
+        capturedLog = CapturedBuildLog.createTemp();
+      } catch (IOException e) {
+        throw new MavenInvocationException("Failed to create the captured build log", e);
+      }
+      outputHandler = capturedLog.tee(outputHandler, false);
+      errorHandler = capturedLog.tee(errorHandler, true);
+    }
+    MavenRunCache runCache = options == null ? null : options.getRunCache();
+    String fingerprint = null;
+    MavenRunCache.Recording recording = null;
+    // a timing report cannot be replayed, so builds collecting events always run
+    if (runCache != null && !options.isBuildEvents()) {
+      try {
+        fingerprint = runCache.fingerprint(pomFile, mvnArgs, javaHome, selection);
+      } catch (IOException e) {
+        LOG.warn("Failed to fingerprint {}, running maven without the run cache: {}", pomFile, e.toString());
+      }
+      if (fingerprint != null) {
+        InvocationResult cached = runCache.replay(fingerprint, outputHandler, errorHandler);
+        if (cached != null) {
+          return new MavenRunResult(cached, selection, null, true, capturedLog);
+        }
+        recording = runCache.record();
+        outputHandler = recording.tee(outputHandler, false);
+        errorHandler = recording.tee(errorHandler, true);
+      }
+    }
+    request.setOutputHandler(outputHandler);
+    request.setErrorHandler(errorHandler);
+    BuildEventCollector eventCollector = null;
+    try {
+      if (options != null && options.isBuildEvents()) {
+        eventCollector = BuildEventCollector.attach(request);
+      }
+      InvocationResult result = execute(invoker, request, selection, options, javaHome);
+      if (recording != null && result.getExitCode() == 0 && result.getExecutionException() == null) {
+        runCache.store(fingerprint, result.getExitCode(), recording);
+      }
+      return new MavenRunResult(result, selection, eventCollector == null ? null : eventCollector.finish(), false,
+          capturedLog);
+    } catch (IOException e) {
+      closeQuietly(capturedLog);
+      throw new MavenInvocationException("Failed to set up build event collection", e);
+    } catch (MavenInvocationException | RuntimeException e) {
+      closeQuietly(capturedLog);
+      throw e;
+    } finally {
+      if (eventCollector != null) {
+        eventCollector.close();
+      }
+    }
+  }
+
+  private static InvocationResult execute(Invoker invoker, InvocationRequest request, MavenDistributionSelection selection,
+                                          @Nullable MavenExecutionOptions options, @Nullable File javaHome)
+      throws MavenInvocationException {
+    if (selection.getMode() == MavenDistributionMode.DAEMON) {
+      MavenDaemonPool daemonPool = Objects.requireNonNull(options).getDaemonPool();
+      request.addArgs(daemonPool.daemonArguments());
+      MavenDaemonPool.Lease lease;
+      try {
+        lease = daemonPool.acquire(javaHome);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MavenInvocationException("Interrupted while waiting for a free Maven daemon worker", e);
+      }
+      try {
+        return invoker.execute(request);
+      } finally {
+        lease.close();
+      }
+    }
+    return invoker.execute(request);
+  }
+
+  private static void closeQuietly(@Nullable CapturedBuildLog capturedLog) {
+    if (capturedLog == null) {
+      return;
+    }
+    try {
+      capturedLog.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close the captured build log in {}: {}", capturedLog.getDirectory(), e.toString());
+    }
+  }
+
+  /**
+   * Start maven in the background and return a handle to the running build.
+   * <p>
+   * Output is buffered in a bounded buffer of {@link MavenInvocation#DEFAULT_BUFFER_CAPACITY} lines and handed to
+   * the output handlers in batches on a separate thread, so a slow handler never stalls maven.
+   * When the timeout passes, the maven process tree is cancelled. Log capture, the run cache and build events are
+   * only supported by {@link #runMavenWithSelection}, options asking for them are rejected rather than ignored.
+   * </p>
+   *
+   * @param pomFile the pom.xml file to parse
+   * @param mvnArgs the arguments (targets) to send to maven (e.g. clean install)
+   * @param javaHome the Java home to use for this invocation, or null to use the default
+   * @param options invocation options controlling wrapper/home/default/daemon selection, log capture, the run
+   *                cache and build events are not supported
+   * @param consoleOutputHandler where normal maven output will be sent, defaults to System.out
+   * @param warningOutputHandler where maven warning outputs will be sent, defaults to System.err
+   * @param timeout the wall-clock deadline for the build, or null to wait forever
+   * @return a handle to the running build
+   * @throws MavenInvocationException if there is a problem with parsing or starting maven
+   * @throws IllegalArgumentException if the options ask for log capture, the run cache or build events
+   */
+  public static MavenInvocation runMavenAsync(final File pomFile, String[] mvnArgs,
+                                              @Nullable File javaHome,
+                                              @Nullable MavenExecutionOptions options,
+                                              @Nullable InvocationOutputHandler consoleOutputHandler,
+                                              @Nullable InvocationOutputHandler warningOutputHandler,
+                                              @Nullable java.time.Duration timeout) throws MavenInvocationException {
+    return runMavenAsync(pomFile, mvnArgs, javaHome, options, consoleOutputHandler, warningOutputHandler, timeout,
+        MavenInvocation.DEFAULT_BUFFER_CAPACITY);
+  }
+
+  /**
+   * Start maven in the background and return a handle to the running build.
+   *
+   * @param pomFile the pom.xml file to parse
+   * @param mvnArgs the arguments (targets) to send to maven (e.g. clean install)
+   * @param javaHome the Java home to use for this invocation, or null to use the default
+   * @param options invocation options controlling wrapper/home/default/daemon selection, log capture, the run
+   *                cache and build events are not supported
+   * @param consoleOutputHandler where normal maven output will be sent, defaults to System.out
+   * @param warningOutputHandler where maven warning outputs will be sent, defaults to System.err
+   * @param timeout the wall-clock deadline for the build, or null to wait forever
+   * @param bufferCapacity the maximum number of output lines buffered before lines are dropped
+   * @return a handle to the running build
+   * @throws MavenInvocationException if there is a problem with parsing or starting maven
+   * @throws IllegalArgumentException if the options ask for log capture, the run cache or build events
+   */
+  public static MavenInvocation runMavenAsync(final File pomFile, String[] mvnArgs,
+                                              @Nullable File javaHome,
+                                              @Nullable MavenExecutionOptions options,
+                                              @Nullable InvocationOutputHandler consoleOutputHandler,
+                                              @Nullable InvocationOutputHandler warningOutputHandler,
+                                              @Nullable java.time.Duration timeout,
+                                              int bufferCapacity) throws MavenInvocationException {
+    if (options != null && (options.isLogCapture() || options.getRunCache() != null || options.isBuildEvents())) {
+      throw new IllegalArgumentException("runMavenAsync does not support log capture, the run cache or build events,"
+          + " use runMavenWithSelection instead");
+    }
+    InvocationRequest request = buildInvocationRequest(pomFile, mvnArgs, javaHome);
+    MavenDistributionSelection selection = selectMavenDistribution(pomFile, options);
+    LOG.info("Starting maven from dir {} with goals {} and args {} using {} mode",
+        request.getBaseDirectory(), request.getGoals(), request.getArgs(), selection.getMode());
+    MavenCommandLineBuilder commandLineBuilder = new MavenCommandLineBuilder();
+    configureCommandLineBuilder(commandLineBuilder, selection);
+    MavenDaemonPool.Lease lease = null;
+    boolean started = false;
+    try {
+      if (selection.getMode() == MavenDistributionMode.DAEMON) {
+        MavenDaemonPool daemonPool = Objects.requireNonNull(options).getDaemonPool();
+        request.addArgs(daemonPool.daemonArguments());
+        lease = daemonPool.acquire(javaHome);
+      }
+      MavenInvocation invocation = MavenInvocation.start(commandLineBuilder.build(request), selection,
+          consoleOutputHandler == null ? new ConsoleInvocationOutputHandler() : consoleOutputHandler,
+          warningOutputHandler == null ? new WarningInvocationOutputHandler() : warningOutputHandler,
+          timeout, bufferCapacity, lease);
+      // from here on the invocation releases the lease when maven exits
+      started = true;
+      return invocation;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MavenInvocationException("Interrupted while waiting for a free Maven daemon worker", e);
+    } catch (CommandLineConfigurationException | CommandLineException | IOException e) {
+      throw new MavenInvocationException("Failed to start maven for " + pomFile, e);
+    } finally {
+      if (!started && lease != null) {
+        lease.close();
+      }
+    }
   }
 
   /**
@@ -629,6 +956,11 @@ public class MavenUtils {
   }
 
   private static void configureInvoker(Invoker invoker, MavenDistributionSelection selection) {
+    if (selection.getMode() == MavenDistributionMode.DAEMON) {
+      LOG.debug("Using Maven daemon executable {}", selection.getMavenExecutable());
+      invoker.setMavenExecutable(selection.getMavenExecutable());
+      return;
+    }
     if (selection.getMode() == MavenDistributionMode.WRAPPER) {
       File wrapperExecutable = selection.getMavenExecutable();
       if (wrapperExecutable != null && wrapperExecutable.isFile()) {
@@ -649,12 +981,39 @@ public class MavenUtils {
     }
   }
 
+  private static void configureCommandLineBuilder(MavenCommandLineBuilder builder, MavenDistributionSelection selection) {
+    if (selection.getMode() == MavenDistributionMode.DAEMON || selection.getMode() == MavenDistributionMode.WRAPPER) {
+      File executable = selection.getMavenExecutable();
+      if (executable != null && executable.isFile()) {
+        builder.setMavenExecutable(executable);
+      } else {
+        LOG.warn("{} mode selected but executable is missing: {}", selection.getMode(), executable);
+      }
+      return;
+    }
+    File mavenHome = selection.getMavenHome();
+    if (mavenHome != null && mavenHome.exists()) {
+      builder.setMavenHome(mavenHome);
+    } else {
+      LOG.warn("No MAVEN_HOME set or set to a non-existing maven home: {}, this might not go well...", mavenHome);
+    }
+  }
+
   static MavenDistributionSelection selectMavenDistribution(@Nullable File pomFile, @Nullable MavenExecutionOptions options) {
     MavenExecutionOptions effectiveOptions = options == null ? new MavenExecutionOptions() : options;
     File projectDir = effectiveOptions.getProjectDir();
     if (projectDir == null && pomFile != null) {
       projectDir = pomFile.getParentFile();
     }
+    MavenDaemonPool daemonPool = effectiveOptions.getDaemonPool();
+    if (daemonPool != null) {
+      File daemonExecutable = daemonPool.getDaemonExecutable();
+      if (daemonExecutable != null) {
+        return new MavenDistributionSelection(MavenDistributionMode.DAEMON, projectDir, daemonExecutable,
+            daemonPool.getDaemonHome());
+      }
+      LOG.warn("A Maven daemon pool was configured but no mvnd installation was found, falling back");
+    }
     if (effectiveOptions.isPreferWrapper()) {
       File wrapperExecutable = findWrapperExecutable(projectDir);
       if (wrapperExecutable != null) {
@@ -703,6 +1062,12 @@ public class MavenUtils {
       }
       return new File(wrapperMavenHome);
     }
+    if (selection.getMode() == MavenDistributionMode.DAEMON) {
+      // mvnd bundles its embedded maven distribution in the mvn sub directory
+      File daemonHome = selection.getMavenHome();
+      File embeddedMavenHome = daemonHome == null ? null : new File(daemonHome, "mvn");
+      return embeddedMavenHome != null && embeddedMavenHome.isDirectory() ? embeddedMavenHome : null;
+    }
     return selection.getMavenHome();
   }
 
@@ -820,8 +1185,9 @@ public class MavenUtils {
    * Uses the Aether {@link org.eclipse.aether.collection.CollectRequest} /
    * {@link org.eclipse.aether.resolution.DependencyRequest} API with a
    * {@link BomAwareRepositorySystemSupplier}-backed {@link RepositorySystem} to resolve the
-   * full transitive dependency graph. The effective POM model is obtained via {@link #parsePom(File)}
-   * which handles property interpolation, parent inheritance, and BOM resolution.
+   * full transitive dependency graph. The effective POM model is obtained via {@link #parsePom(File, PomParseMode)}
+   * in {@link PomParseMode#DEPENDENCIES} mode which handles property interpolation, parent inheritance, and BOM
+   * resolution.
    * </p>
    */
   public DependenciesResolutionResult resolveDependenciesWithSelection(File pomFile, @Nullable MavenExecutionOptions options,
@@ -831,11 +1197,17 @@ public class MavenUtils {
     MavenDistributionSelection selection = selectMavenDistribution(pomFile, options);
     File mavenHome = resolveMavenHomeForSettings(selection);
 
-    Model model = parsePom(pomFile, mavenHome);
+    Model model = parsePom(pomFile, PomParseMode.DEPENDENCIES, mavenHome);
 
     RepositorySystem repositorySystem = getRepositorySystem();
     DefaultRepositorySystemSession session = getRepositorySystemSession(repositorySystem, mavenHome);
+    Set<File> dependencies = resolveDependencies(pomFile, model, repositorySystem, session, testScope);
+    return new DependenciesResolutionResult(dependencies, selection);
+  }
 
+  Set<File> resolveDependencies(File pomFile, Model model, RepositorySystem repositorySystem,
+                                RepositorySystemSession session, boolean testScope)
+      throws DependenciesResolveException {
     // Collect remote repositories from both this instance and the POM model
     List<RemoteRepository> repos = new ArrayList<>(remoteRepositories);
     for (RemoteRepository modelRepo : getRepositories(model)) {
@@ -849,11 +1221,14 @@ public class MavenUtils {
 
     for (org.apache.maven.model.Dependency dep : model.getDependencies()) {
       String scope = dep.getScope() == null ? JavaScopes.COMPILE : dep.getScope();
-      org.eclipse.aether.graph.Dependency aetherDep = new org.eclipse.aether.graph.Dependency(
-          new DefaultArtifact(dep.getGroupId(), dep.getArtifactId(),
-              dep.getClassifier(), dep.getType() == null ? "jar" : dep.getType(), dep.getVersion()),
-          scope
-      );
+      String type = dep.getType() == null ? "jar" : dep.getType();
+      // the type decides the extension and default classifier, e.g. a test-jar is the jar with the tests classifier
+      ArtifactType artifactType = session.getArtifactTypeRegistry().get(type);
+      Artifact artifact = artifactType == null
+          ? new DefaultArtifact(dep.getGroupId(), dep.getArtifactId(), dep.getClassifier(), type, dep.getVersion())
+          : new DefaultArtifact(dep.getGroupId(), dep.getArtifactId(), dep.getClassifier(), null, dep.getVersion(),
+              artifactType);
+      org.eclipse.aether.graph.Dependency aetherDep = new org.eclipse.aether.graph.Dependency(artifact, scope);
 
       // Apply exclusions from the model
       if (dep.getExclusions() != null && !dep.getExclusions().isEmpty()) {
@@ -884,7 +1259,7 @@ public class MavenUtils {
       throw new DependenciesResolveException("Failed to resolve dependencies for " + pomFile, e);
     }
 
-    return new DependenciesResolutionResult(dependencies, selection);
+    return dependencies;
   }
 
   /**
@@ -905,20 +1280,183 @@ public class MavenUtils {
    * @throws ModelBuildingException if there was some issue with the pom file
    */
   public Model parsePom(File pomFile) throws SettingsBuildingException, ModelBuildingException {
-    return parsePom(pomFile, null);
+    return parsePom(pomFile, PomParseMode.FULL, null);
   }
 
-  private Model parsePom(File pomFile, @Nullable File mavenHome) throws SettingsBuildingException, ModelBuildingException {
-    final DefaultModelBuildingRequest modelBuildingRequest = new DefaultModelBuildingRequest()
-       .setPomFile(pomFile);
+  /**
+   * Parse the given POM file using the given mode. {@link PomParseMode#DEPENDENCIES} is considerably cheaper than
+   * {@link #parsePom(File)} when only the dependencies and repositories of the model are used, e.g. to resolve
+   * the classpath; everything else in the returned model (plugins, reporting, build directories of a pom read
+   * directly from the xml) should not be relied upon.
+   *
+   * @param pomFile the pom.xml file to parse
+   * @param mode how much of the model to build
+   * @return a Model (i.e. the Maven object representation of the effective pom file)
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with the pom file
+   */
+  public Model parsePom(File pomFile, PomParseMode mode) throws SettingsBuildingException, ModelBuildingException {
+    return parsePom(pomFile, mode, null);
+  }
+
+  /**
+   * Check the parent, dependencies, managed dependencies, plugins and managed plugins declared by the pom (or its
+   * parents) against the latest versions found by the given lookup. The plugins the effective pom inherits from the
+   * super pom are not checked. The lookups run concurrently, see {@link DependencyUpdateReport}.
+   *
+   * @param pomFile the pom.xml file to check
+   * @param lookup the lookup used to find the latest versions
+   * @return the report of outdated and up-to-date coordinates grouped by major, minor and patch drift
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with the pom file
+   */
+  public DependencyUpdateReport checkForUpdates(File pomFile, ArtifactLookup lookup)
+      throws SettingsBuildingException, ModelBuildingException {
+    return DependencyUpdateReport.create(parsePom(pomFile), lookup);
+  }
+
+  private Model parsePom(File pomFile, PomParseMode mode, @Nullable File mavenHome)
+      throws SettingsBuildingException, ModelBuildingException {
+    Model rawModel = readDependencyModel(pomFile, mode);
+    if (rawModel != null) {
+      return rawModel;
+    }
     RepositorySystem repositorySystem = getRepositorySystem();
     RepositorySystemSession repositorySystemSession = getRepositorySystemSession(repositorySystem, mavenHome);
+    return buildModel(pomFile, mode, repositorySystem, repositorySystemSession, null, null);
+  }
+
+  /**
+   * Parse the root pom of a multi-module project and all its modules, recursively.
+   * <p>
+   * The effective models of the modules are built in parallel on a fork-join pool. The modules share one cache for
+   * the parent poms and BOMs they have in common, and a parent or imported BOM that is a module of the project (or
+   * a local parent found through its relativePath) is read from the working tree rather than from a repository.
+   * </p>
+   *
+   * @param rootPom the root pom.xml, or the directory containing it
+   * @return the effective models by groupId:artifactId, in reactor order (i.e. every module comes after its parent,
+   * the modules it depends on, the modules whose BOM it imports and the modules providing its build plugins)
+   * @throws IOException if a pom cannot be read
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with one of the pom files
+   */
+  public Map<String, Model> parsePoms(Path rootPom) throws IOException, SettingsBuildingException, ModelBuildingException {
+    return parsePoms(rootPom, PomParseMode.FULL);
+  }
+
+  /**
+   * Parse the root pom of a multi-module project and all its modules using the given mode,
+   * see {@link #parsePoms(Path)}.
+   *
+   * @param rootPom the root pom.xml, or the directory containing it
+   * @param mode how much of the models to build
+   * @return the effective models by groupId:artifactId, in reactor order
+   * @throws IOException if a pom cannot be read
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with one of the pom files
+   */
+  public Map<String, Model> parsePoms(Path rootPom, PomParseMode mode)
+      throws IOException, SettingsBuildingException, ModelBuildingException {
+    Reactor reactor = Reactor.discover(rootPom);
+    RepositorySystem repositorySystem = getRepositorySystem();
+    RepositorySystemSession repositorySystemSession = getRepositorySystemSession(repositorySystem);
+    ModelCache modelCache = new ConcurrentModelCache();
+    return reactor.build((pomFile, workspace) -> {
+      Model rawModel = readDependencyModel(pomFile, mode);
+      if (rawModel != null) {
+        return rawModel;
+      }
+      return buildModel(pomFile, mode, repositorySystem, repositorySystemSession, modelCache, workspace);
+    }, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Resolve the dependencies of the given pom file and keep them up to date while the pom (or one of its local
+   * parent poms) is edited, see {@link ResolvedProject}. The returned project must be closed when it is no longer
+   * used.
+   *
+   * @param pomFile the pom.xml file to resolve
+   * @param includeTestScope if true test scope dependencies will be included
+   * @return the resolved project, watching its pom files
+   * @throws IOException if the pom files cannot be watched
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with the pom file
+   * @throws DependenciesResolveException if there was some issue resolving dependencies
+   */
+  public ResolvedProject resolveProject(File pomFile, boolean... includeTestScope)
+      throws IOException, SettingsBuildingException, ModelBuildingException, DependenciesResolveException {
+    boolean testScope = includeTestScope.length > 0 && includeTestScope[0];
+    return new ResolvedProject(this, pomFile, testScope);
+  }
+
+  /**
+   * Resolve the classpath of every module of a multi-module project in one pass.
+   * <p>
+   * The modules are parsed with {@link #parsePoms(Path, PomParseMode)} and resolved with one repository session
+   * whose workspace is the reactor: a dependency on another module resolves to that module's
+   * {@code build.outputDirectory} (or {@code build.testOutputDirectory} for its test jar) instead of being
+   * downloaded from a remote repository, so nothing needs to be installed to the local repository first.
+   * </p>
+   *
+   * @param rootPom the root pom.xml, or the directory containing it
+   * @param includeTestScope if true test scope dependencies will be included
+   * @return the resolved dependencies by groupId:artifactId of each module, in reactor order
+   * @throws IOException if a pom cannot be read
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with one of the pom files
+   * @throws DependenciesResolveException if there was some issue resolving dependencies
+   */
+  public Map<String, Set<File>> resolveReactorDependencies(Path rootPom, boolean... includeTestScope)
+      throws IOException, SettingsBuildingException, ModelBuildingException, DependenciesResolveException {
+    boolean testScope = includeTestScope.length > 0 && includeTestScope[0];
+    Map<String, Model> models = parsePoms(rootPom, PomParseMode.DEPENDENCIES);
+    RepositorySystem repositorySystem = getRepositorySystem();
+    DefaultRepositorySystemSession session = getRepositorySystemSession(repositorySystem);
+    session.setWorkspaceReader(new ReactorWorkspaceReader(models.values()));
+    // share descriptors and metadata read for one module with the others
+    session.setCache(new DefaultRepositoryCache());
+    Map<String, Set<File>> classpaths = new LinkedHashMap<>();
+    for (Map.Entry<String, Model> module : models.entrySet()) {
+      Model model = module.getValue();
+      classpaths.put(module.getKey(), Collections.unmodifiableSet(
+          resolveDependencies(model.getPomFile(), model, repositorySystem, session, testScope)));
+    }
+    return Collections.unmodifiableMap(classpaths);
+  }
+
+  @Nullable
+  private static Model readDependencyModel(File pomFile, PomParseMode mode) {
+    if (mode != PomParseMode.DEPENDENCIES) {
+      return null;
+    }
+    try {
+      return RawPomReader.read(pomFile);
+    } catch (IOException e) {
+      LOG.debug("Failed to read {} directly, building the model instead", pomFile, e);
+      return null;
+    }
+  }
+
+  private Model buildModel(File pomFile, PomParseMode mode, RepositorySystem repositorySystem,
+                           RepositorySystemSession repositorySystemSession, @Nullable ModelCache modelCache,
+                           @Nullable WorkspaceModelResolver workspaceModelResolver) throws ModelBuildingException {
+    final DefaultModelBuildingRequest modelBuildingRequest = new DefaultModelBuildingRequest()
+       .setPomFile(pomFile);
+    if (mode == PomParseMode.DEPENDENCIES) {
+      modelBuildingRequest
+          .setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL)
+          .setProcessPlugins(false)
+          .setLocationTracking(false);
+    }
     modelBuildingRequest.setModelResolver(new ModelResolver(
         remoteRepositories,
         repositorySystemSession,
         repositorySystem
         )
     );
+    modelBuildingRequest.setModelCache(modelCache);
+    modelBuildingRequest.setWorkspaceModelResolver(workspaceModelResolver);
     modelBuildingRequest.setSystemProperties(System.getProperties());
 
     ModelBuilder modelBuilder = new ParentPomsAsDependencyModelBuilder();
@@ -0,0 +1,286 @@
+package se.alipsa.mavenutils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of parsed {@code maven-metadata.xml} files used by {@link ArtifactLookup}, keyed by the metadata URL
+ * (i.e. the repository URL and the coordinates).
+ * <p>
+ * Entries are kept in an in-memory LRU map and, optionally, in a directory on disk so that they survive restarts.
+ * An entry younger than the time to live is used as is. An older entry is revalidated with a conditional request
+ * ({@code If-None-Match} / {@code If-Modified-Since}), so unchanged metadata only costs a 304 response
+ * without a body.
+ * </p>
+ */
+public class MetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+
+  private final int maxEntries;
+  private final Duration timeToLive;
+  @Nullable
+  private final Path directory;
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * A cached metadata file together with the validators needed to revalidate it.
+   *
+   * @param metadata the parsed metadata
+   * @param etag the ETag header of the response, or null if there was none
+   * @param lastModified the Last-Modified header of the response, or null if there was none
+   * @param fetchedAtMillis when the metadata was fetched or last revalidated
+   */
+  public record Entry(ArtifactMetadata metadata, @Nullable String etag, @Nullable String lastModified,
+                      long fetchedAtMillis) {
+
+    /**
+     * @return true if the entry has a validator and can be revalidated with a conditional request
+     */
+    public boolean isRevalidatable() {
+      return etag != null || lastModified != null;
+    }
+  }
+
+  /**
+   * Creates an in-memory cache.
+   *
+   * @param maxEntries the maximum number of entries kept in memory, the least recently used are evicted first
+   * @param timeToLive how long an entry is used without revalidation
+   */
+  public MetadataCache(int maxEntries, Duration timeToLive) {
+    this(maxEntries, timeToLive, null);
+  }
+
+  /**
+   * Creates a cache that also stores its entries on disk.
+   *
+   * @param maxEntries the maximum number of entries kept in memory, the least recently used are evicted first
+   * @param timeToLive how long an entry is used without revalidation
+   * @param directory the directory where entries are stored, or null to only cache in memory
+   */
+  public MetadataCache(int maxEntries, Duration timeToLive, @Nullable Path directory) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be at least 1, was " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive");
+    this.directory = directory;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > MetadataCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @return the number of lookups answered from the cache without contacting the repository
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of lookups answered from the cache after the repository confirmed the entry was unchanged
+   */
+  public long getRevalidations() {
+    return revalidations.get();
+  }
+
+  /**
+   * @return the number of lookups that downloaded the metadata
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return how long an entry is used without revalidation
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Remove all entries from memory and disk.
+   *
+   * @throws IOException if the entries on disk could not be deleted
+   */
+  public void clear() throws IOException {
+    synchronized (entries) {
+      entries.clear();
+    }
+    if (directory != null && Files.isDirectory(directory)) {
+      try (var files = Files.list(directory)) {
+        for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".properties")).toList()) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the cached entry for a metadata URL, loading it from disk if it is not in memory.
+   *
+   * @param url the metadata URL
+   * @return the entry or null if the metadata is not cached
+   */
+  @Nullable
+  Entry get(String url) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(url);
+    }
+    if (entry == null && directory != null) {
+      entry = load(url);
+      if (entry != null) {
+        synchronized (entries) {
+          entries.put(url, entry);
+        }
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @param entry the entry to check
+   * @return true if the entry is younger than the time to live
+   */
+  boolean isFresh(Entry entry) {
+    return System.currentTimeMillis() - entry.fetchedAtMillis() < timeToLive.toMillis();
+  }
+
+  /**
+   * Record that a fresh entry was used.
+   */
+  void recordHit() {
+    hits.incrementAndGet();
+  }
+
+  /**
+   * Record that the repository confirmed the entry is unchanged and restart its time to live.
+   *
+   * @param url the metadata URL
+   * @param entry the revalidated entry
+   * @return the metadata of the entry
+   */
+  ArtifactMetadata revalidated(String url, Entry entry) {
+    revalidations.incrementAndGet();
+    put(url, new Entry(entry.metadata(), entry.etag(), entry.lastModified(), System.currentTimeMillis()));
+    return entry.metadata();
+  }
+
+  /**
+   * Store downloaded metadata.
+   *
+   * @param url the metadata URL
+   * @param metadata the parsed metadata
+   * @param etag the ETag header of the response, or null
+   * @param lastModified the Last-Modified header of the response, or null
+   * @return the metadata
+   */
+  ArtifactMetadata downloaded(String url, ArtifactMetadata metadata, @Nullable String etag,
+                              @Nullable String lastModified) {
+    misses.incrementAndGet();
+    put(url, new Entry(metadata, etag, lastModified, System.currentTimeMillis()));
+    return metadata;
+  }
+
+  private void put(String url, Entry entry) {
+    synchronized (entries) {
+      entries.put(url, entry);
+    }
+    if (directory != null) {
+      store(url, entry);
+    }
+  }
+
+  @Nullable
+  private Entry load(String url) {
+    Path file = fileFor(url);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    Properties props = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      props.load(in);
+      if (!url.equals(props.getProperty("url"))) {
+        return null;
+      }
+      String versions = props.getProperty("versions", "");
+      ArtifactMetadata metadata = new ArtifactMetadata(props.getProperty("groupId"), props.getProperty("artifactId"),
+          props.getProperty("release"), props.getProperty("latest"),
+          versions.isEmpty() ? List.of() : Arrays.asList(versions.split(",")), props.getProperty("lastUpdated"));
+      return new Entry(metadata, props.getProperty("etag"), props.getProperty("lastModified"),
+          Long.parseLong(props.getProperty("fetchedAtMillis", "0")));
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring unreadable metadata cache entry {}: {}", file, e.toString());
+      return null;
+    }
+  }
+
+  private void store(String url, Entry entry) {
+    Properties props = new Properties();
+    ArtifactMetadata metadata = entry.metadata();
+    props.setProperty("url", url);
+    props.setProperty("groupId", metadata.groupId());
+    props.setProperty("artifactId", metadata.artifactId());
+    setIfPresent(props, "release", metadata.release());
+    setIfPresent(props, "latest", metadata.latest());
+    setIfPresent(props, "lastUpdated", metadata.lastUpdated());
+    props.setProperty("versions", String.join(",", metadata.versions()));
+    setIfPresent(props, "etag", entry.etag());
+    setIfPresent(props, "lastModified", entry.lastModified());
+    props.setProperty("fetchedAtMillis", String.valueOf(entry.fetchedAtMillis()));
+    Path file = fileFor(url);
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = Files.createTempFile(file.getParent(), "metadata", ".tmp");
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        props.store(out, null);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Failed to store metadata cache entry for {}: {}", url, e.toString());
+    }
+  }
+
+  private static void setIfPresent(Properties props, String key, @Nullable String value) {
+    if (value != null) {
+      props.setProperty(key, value);
+    }
+  }
+
+  private Path fileFor(String url) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+      return Objects.requireNonNull(directory).resolve(HexFormat.of().formatHex(hash) + ".properties");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm not available", e);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for {@code maven-metadata.xml} files.
+ * <p>
+ * The metadata is read with a StAX reader straight from the response stream instead of building a DOM, and a
+ * single factory, configured once to refuse DTDs and external entities, is shared by all parses.
+ * When only the release (or latest) version is needed, parsing stops as soon as the release is found so the
+ * (possibly thousands of) listed versions are never materialized.
+ * </p>
+ */
+final class MetadataXmlParser {
+
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  private MetadataXmlParser() {
+    // utility class
+  }
+
+  /**
+   * Parse a maven-metadata.xml stream.
+   *
+   * @param in the metadata, the stream is not closed
+   * @param groupId the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @param releaseAndLatestOnly true to stop at the release version and skip the list of versions
+   * @return the parsed metadata, with an empty version list if releaseAndLatestOnly is true
+   * @throws NetworkException if the metadata is not well-formed or contains a DOCTYPE declaration
+   */
+  static ArtifactMetadata parse(InputStream in, String groupId, String artifactId, boolean releaseAndLatestOnly) {
+    XMLStreamReader reader = null;
+    String release = null;
+    String latest = null;
+    String lastUpdated = null;
+    List<String> versions = new ArrayList<>();
+    try {
+      reader = FACTORY.createXMLStreamReader(in);
+      boolean inVersions = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.DTD) {
+          throw new NetworkException("DOCTYPE declarations are not allowed in metadata XML for "
+              + groupId + ":" + artifactId);
+        }
+        if (event == XMLStreamConstants.END_ELEMENT && "versions".equals(reader.getLocalName())) {
+          inVersions = false;
+        }
+        if (event != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        switch (reader.getLocalName()) {
+          case "versions" -> inVersions = !releaseAndLatestOnly;
+          case "version" -> {
+            if (inVersions) {
+              String version = text(reader);
+              if (version != null) {
+                versions.add(version);
+              }
+            }
+          }
+          case "release" -> {
+            if (release == null) {
+              release = text(reader);
+              if (release != null && releaseAndLatestOnly) {
+                return new ArtifactMetadata(groupId, artifactId, release, latest, List.of(), lastUpdated);
+              }
+            }
+          }
+          case "latest" -> latest = latest == null ? text(reader) : latest;
+          case "lastUpdated" -> lastUpdated = lastUpdated == null ? text(reader) : lastUpdated;
+          default -> {
+            // not needed
+          }
+        }
+      }
+      return new ArtifactMetadata(groupId, artifactId, release, latest, versions, lastUpdated);
+    } catch (XMLStreamException | RuntimeException e) {
+      if (e instanceof NetworkException networkException) {
+        throw networkException;
+      }
+      throw new NetworkException("Failed to parse metadata XML for " + groupId + ":" + artifactId, e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // nothing more to read
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private static String text(XMLStreamReader reader) throws XMLStreamException {
+    String text = reader.getElementText().trim();
+    return text.isEmpty() ? null : text;
+  }
+
+  private static XMLInputFactory createFactory() {
+    // use the JDK implementation so the security settings below are known to be honored
+    XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setXMLResolver((publicId, systemId, baseUri, namespace) -> {
+      throw new XMLStreamException("External entities are not allowed: " + systemId);
+    });
+    return factory;
+  }
+}
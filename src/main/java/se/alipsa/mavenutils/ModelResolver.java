@@ -28,12 +28,14 @@ import java.util.*;
  */
 public class ModelResolver implements org.apache.maven.model.resolution.ModelResolver {
 
-  List<RemoteRepository> remoteRepositories;
+  /** Resolved parent version ranges, shared by all resolvers and their copies. */
+  static final VersionRangeCache VERSION_RANGE_CACHE = new VersionRangeCache(VersionRangeCache.DEFAULT_MAX_ENTRIES);
+
+  RepositorySet repositories;
   RepositorySystemSession repositorySystemSession;
   RepositorySystem repositorySystem;
   VersionRangeResolver versionRangeResolver;
   String context = "project";
-  private final Set<String> repositoryIds = new HashSet<>();
   private final RemoteRepositoryManager remoteRepositoryManager;
 
   /**
@@ -46,7 +48,12 @@ public class ModelResolver implements org.apache.maven.model.resolution.ModelRes
    */
   public ModelResolver(List<RemoteRepository> remoteRepositories, RepositorySystemSession repositorySystemSession,
                        RepositorySystem repositorySystem) {
-    this.remoteRepositories = remoteRepositories;
+    this(RepositorySet.of(remoteRepositories), repositorySystemSession, repositorySystem);
+  }
+
+  private ModelResolver(RepositorySet repositories, RepositorySystemSession repositorySystemSession,
+                        RepositorySystem repositorySystem) {
+    this.repositories = repositories;
     this.repositorySystemSession = repositorySystemSession;
     this.repositorySystem = repositorySystem;
     this.versionRangeResolver = new DefaultVersionRangeResolver();
@@ -56,7 +63,7 @@ public class ModelResolver implements org.apache.maven.model.resolution.ModelRes
   @Override
   public ModelSource resolveModel(String groupId, String artifactId, String version) throws UnresolvableModelException {
     Artifact pomArtifact = new DefaultArtifact(groupId, artifactId, "pom", version);
-    ArtifactRequest artifactRequest = new ArtifactRequest(pomArtifact, remoteRepositories, context);
+    ArtifactRequest artifactRequest = new ArtifactRequest(pomArtifact, repositories.asList(), context);
     try {
       ArtifactResult result = repositorySystem.resolveArtifact(repositorySystemSession, artifactRequest);
       File pomFile = result.getArtifact().getFile();
@@ -68,15 +75,27 @@ public class ModelResolver implements org.apache.maven.model.resolution.ModelRes
 
   @Override
   public ModelSource resolveModel( final Parent parent ) throws UnresolvableModelException {
+    if ( !isRange( parent.getVersion() ) ) {
+      // a fixed version resolves to itself, there is nothing to look up
+      return resolveModel( parent.getGroupId(), parent.getArtifactId(), parent.getVersion() );
+    }
+    requireUpperBound( parent );
     try {
-      final Artifact artifact = new DefaultArtifact(
-          parent.getGroupId(), parent.getArtifactId(), "", "pom", parent.getVersion()
-      );
-      final VersionRangeRequest versionRangeRequest = new VersionRangeRequest(
-          artifact, remoteRepositories, context
-      );
-      final VersionRangeResult versionRangeResult =
-          versionRangeResolver.resolveVersionRange( repositorySystemSession, versionRangeRequest );
+      final String cacheKey = VersionRangeCache.key( parent.getGroupId(), parent.getArtifactId(),
+          parent.getVersion(), repositorySystemSession, repositories.asList() );
+      VersionRangeResult versionRangeResult = VERSION_RANGE_CACHE.get( cacheKey );
+      if ( versionRangeResult == null ) {
+        final Artifact artifact = new DefaultArtifact(
+            parent.getGroupId(), parent.getArtifactId(), "", "pom", parent.getVersion()
+        );
+        final VersionRangeRequest versionRangeRequest = new VersionRangeRequest(
+            artifact, repositories.asList(), context
+        );
+        versionRangeResult = versionRangeResolver.resolveVersionRange( repositorySystemSession, versionRangeRequest );
+        if ( versionRangeResult.getHighestVersion() != null ) {
+          VERSION_RANGE_CACHE.put( cacheKey, versionRangeResult, repositorySystemSession, repositories.asList() );
+        }
+      }
 
       if ( versionRangeResult.getHighestVersion() == null ) {
         throw new UnresolvableModelException(
@@ -104,6 +123,29 @@ public class ModelResolver implements org.apache.maven.model.resolution.ModelRes
     }
   }
 
+  /**
+   * Reject a parent version range without an upper bound before any repository is asked for its versions.
+   * Specs that cannot be compiled here are left for the version range resolver to report.
+   */
+  private static void requireUpperBound( Parent parent ) throws UnresolvableModelException {
+    SemanticVersionRange range;
+    try {
+      range = SemanticVersionRange.parse( parent.getVersion() );
+    } catch ( IllegalArgumentException e ) {
+      return;
+    }
+    if ( !range.hasUpperBound() ) {
+      throw new UnresolvableModelException(
+          String.format( "The requested parent version range '%s' does not specify an upper bound",
+              parent.getVersion() ),
+          parent.getGroupId(), parent.getArtifactId(), parent.getVersion() );
+    }
+  }
+
+  private static boolean isRange( String version ) {
+    return version != null && ( version.startsWith( "[" ) || version.startsWith( "(" ) );
+  }
+
   @Override
   public ModelSource resolveModel(Dependency dependency) throws UnresolvableModelException {
     return resolveModel(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
@@ -116,32 +158,45 @@ public class ModelResolver implements org.apache.maven.model.resolution.ModelRes
 
   @Override
   public void addRepository(Repository repository, boolean replace) {
-    if (!repositorySystemSession.isIgnoreArtifactDescriptorRepositories()) {
-      if (!this.repositoryIds.add(repository.getId())) {
-        if (!replace) {
-          return;
-        }
-        removeMatchingRepository(remoteRepositories, repository.getId());
+    if (repositorySystemSession.isIgnoreArtifactDescriptorRepositories()) {
+      return;
+    }
+    String id = repository.getId();
+    RepositorySet updated = repositories;
+    if (updated.isPomRepository(id)) {
+      if (!replace) {
+        return;
       }
-      List<RemoteRepository> newRepositories = Collections.singletonList(ArtifactDescriptorUtils.toRemoteRepository(repository));
-      remoteRepositories = this.remoteRepositoryManager.aggregateRepositories(repositorySystemSession, remoteRepositories, newRepositories, true);
+      updated = updated.without(id);
     }
+    updated = updated.withPomRepositoryId(id);
+    List<RemoteRepository> newRepositories = Collections.singletonList(ArtifactDescriptorUtils.toRemoteRepository(repository));
+    // apply mirrors, proxies and authentication to the new repository only instead of re-aggregating all of them
+    List<RemoteRepository> prepared = this.remoteRepositoryManager.aggregateRepositories(repositorySystemSession,
+        Collections.emptyList(), newRepositories, true);
+    for (RemoteRepository remoteRepository : prepared) {
+      if (updated.get(remoteRepository.getId()) == null) {
+        updated = updated.with(remoteRepository);
+      } else {
+        // the id is taken (e.g. by a mirror that is already in use), let the repository manager merge it
+        updated = updated.replaceAll(this.remoteRepositoryManager.aggregateRepositories(repositorySystemSession,
+            updated.asList(), newRepositories, true));
+        break;
+      }
+    }
+    repositories = updated;
   }
 
   @Override
   public org.apache.maven.model.resolution.ModelResolver newCopy() {
-    return new ModelResolver(remoteRepositories, repositorySystemSession, repositorySystem);
+    // the repository set is immutable so the copy shares it
+    return new ModelResolver(repositories, repositorySystemSession, repositorySystem);
   }
 
-  private void removeMatchingRepository( Iterable<RemoteRepository> repositories, final String id ) {
-    Iterator<RemoteRepository> iterator = repositories.iterator();
-    while ( iterator.hasNext() )
-    {
-      RemoteRepository remoteRepository = iterator.next();
-      if ( remoteRepository.getId().equals( id ) )
-      {
-        iterator.remove();
-      }
-    }
+  /**
+   * @return the repositories used for resolution, in order
+   */
+  List<RemoteRepository> getRepositories() {
+    return repositories.asList();
   }
 }
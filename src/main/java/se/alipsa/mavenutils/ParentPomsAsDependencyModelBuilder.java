@@ -40,31 +40,39 @@ public class ParentPomsAsDependencyModelBuilder implements ModelBuilder {
       return delegate.buildRawModel(file, validationLevel, locationTracking);
    }
 
+   /**
+    * Adds the parent as a pom dependency to the effective model. The wrapped result is only reachable through this
+    * one, so the effective model is augmented in place, once, instead of deep cloning it on every call.
+    */
    private static class ParentPomsAsDependencyModelBuildingResult implements ModelBuildingResult {
 
       private final ModelBuildingResult wrapped;
+      private Model effectiveModel;
 
       public ParentPomsAsDependencyModelBuildingResult(ModelBuildingResult wrapped) {
          this.wrapped = wrapped;
       }
 
       @Override
-      public Model getEffectiveModel() {
-         Model original = wrapped.getEffectiveModel();
-         Parent parent = original.getParent();
+      public synchronized Model getEffectiveModel() {
+         if (effectiveModel == null) {
+            effectiveModel = addParentDependency(wrapped.getEffectiveModel());
+         }
+         return effectiveModel;
+      }
+
+      private static Model addParentDependency(Model model) {
+         Parent parent = model.getParent();
          if (parent != null) {
-            Model clone = original.clone();
             Dependency parentDependency = new Dependency();
             parentDependency.setGroupId(parent.getGroupId());
             parentDependency.setArtifactId(parent.getArtifactId());
             parentDependency.setVersion(parent.getVersion());
             parentDependency.setScope("compile");
             parentDependency.setType("pom");
-            clone.addDependency(parentDependency);
-            return clone;
-         } else {
-            return original;
+            model.addDependency(parentDependency);
          }
+         return model;
       }
 
       @Override
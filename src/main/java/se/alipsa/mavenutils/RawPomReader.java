@@ -0,0 +1,104 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.building.DefaultModelProcessor;
+import org.apache.maven.model.io.DefaultModelReader;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.model.locator.DefaultModelLocator;
+import org.apache.maven.model.superpom.DefaultSuperPomProvider;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the dependency model of a self-contained pom straight from the xml, without running the model builder.
+ * <p>
+ * A pom qualifies when its raw model already is its effective model as far as classpath resolution is concerned:
+ * it has no parent, no profiles, no property references and no dependency management. The result then only needs
+ * what the model builder would have added: default dependency scopes, merged duplicate dependencies and the
+ * repositories of the super pom. Any other pom returns null and is left to the model builder.
+ * </p>
+ */
+final class RawPomReader {
+
+  private static final List<Repository> SUPER_POM_REPOSITORIES = superPomRepositories();
+
+  private RawPomReader() {
+    // static only
+  }
+
+  /**
+   * @return the dependency model of the pom, or null if it is not self-contained
+   */
+  @Nullable
+  static Model read(File pomFile) throws IOException {
+    String xml = Files.readString(pomFile.toPath(), StandardCharsets.UTF_8);
+    if (xml.contains("${")) {
+      return null;
+    }
+    Model model;
+    try {
+      model = new MavenXpp3Reader().read(new StringReader(xml), false);
+    } catch (XmlPullParserException e) {
+      // let the model builder report it
+      return null;
+    }
+    if (model.getParent() != null || !model.getProfiles().isEmpty() || managesDependencies(model)) {
+      return null;
+    }
+    model.setPomFile(pomFile);
+    model.setDependencies(normalize(model.getDependencies()));
+    for (Repository repository : SUPER_POM_REPOSITORIES) {
+      if (model.getRepositories().stream().noneMatch(r -> repository.getId().equals(r.getId()))) {
+        model.addRepository(repository.clone());
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Managed versions, scopes and exclusions (and imported BOMs) are applied by the model builder.
+   */
+  private static boolean managesDependencies(Model model) {
+    DependencyManagement dependencyManagement = model.getDependencyManagement();
+    return dependencyManagement != null && !dependencyManagement.getDependencies().isEmpty();
+  }
+
+  /**
+   * Like the model builder: a later declaration of the same dependency replaces the earlier one, and a dependency
+   * without a scope is in the compile scope.
+   */
+  private static List<Dependency> normalize(List<Dependency> dependencies) {
+    Map<String, Dependency> merged = new LinkedHashMap<>();
+    for (Dependency dependency : dependencies) {
+      merged.put(dependency.getManagementKey(), dependency);
+    }
+    List<Dependency> normalized = new ArrayList<>(merged.values());
+    for (Dependency dependency : normalized) {
+      if (dependency.getScope() == null || dependency.getScope().isEmpty()) {
+        dependency.setScope("compile");
+      }
+    }
+    return normalized;
+  }
+
+  private static List<Repository> superPomRepositories() {
+    DefaultModelProcessor modelProcessor = new DefaultModelProcessor()
+        .setModelLocator(new DefaultModelLocator())
+        .setModelReader(new DefaultModelReader());
+    return List.copyOf(new DefaultSuperPomProvider().setModelProcessor(modelProcessor)
+        .getSuperModel("4.0.0").getRepositories());
+  }
+}
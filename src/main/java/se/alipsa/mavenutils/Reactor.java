@@ -0,0 +1,325 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.model.resolution.UnresolvableModelException;
+import org.apache.maven.model.resolution.WorkspaceModelResolver;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The modules of a multi-module project, discovered from the {@code <modules>} of a root pom and sorted in reactor
+ * order: a module comes after its parent, the modules it depends on, the modules whose BOM it imports and the
+ * modules providing its build plugins.
+ * <p>
+ * The reactor also serves the models of its modules (and of local parents that are not modules) to the model
+ * builder, so that references between modules are resolved from the working tree instead of a repository. The
+ * effective models of all modules are built in parallel on a fork-join pool, a module importing the BOM of another
+ * module waits for that module's model.
+ * </p>
+ */
+final class Reactor implements WorkspaceModelResolver {
+
+  /**
+   * Builds the effective model of one module, using the reactor to resolve the other modules.
+   */
+  @FunctionalInterface
+  interface ModuleBuilder {
+    Model build(File pomFile, WorkspaceModelResolver workspace) throws ModelBuildingException;
+  }
+
+  /**
+   * A module (or local parent) of the reactor.
+   *
+   * @param groupId the group ID, inherited from the parent if the pom does not declare it
+   * @param artifactId the artifact ID
+   * @param version the version, inherited from the parent if the pom does not declare it
+   * @param pomFile the pom file
+   * @param rawModel the model as read from the pom file
+   */
+  record Module(String groupId, String artifactId, String version, File pomFile, Model rawModel) {
+
+    /**
+     * @return groupId:artifactId
+     */
+    String key() {
+      return groupId + ":" + artifactId;
+    }
+  }
+
+  private final List<Module> modules;
+  private final Map<String, Module> workspace;
+  private final Map<String, ForkJoinTask<Model>> builds = new HashMap<>();
+
+  private Reactor(List<Module> modules, Map<String, Module> workspace) {
+    this.modules = modules;
+    this.workspace = workspace;
+  }
+
+  /**
+   * Read the root pom (a pom file or a directory containing a pom.xml) and all its modules, recursively.
+   *
+   * @throws IOException if a pom cannot be read
+   * @throws IllegalArgumentException if the modules depend on each other in a cycle
+   */
+  static Reactor discover(Path rootPom) throws IOException {
+    Map<Path, Module> discovered = new LinkedHashMap<>();
+    readModules(pomFile(rootPom), discovered);
+    Map<String, Module> workspace = new LinkedHashMap<>();
+    for (Module module : discovered.values()) {
+      workspace.putIfAbsent(module.key(), module);
+    }
+    for (Module module : new ArrayList<>(discovered.values())) {
+      readLocalParents(module, workspace);
+    }
+    return new Reactor(sort(new ArrayList<>(discovered.values())), workspace);
+  }
+
+  /**
+   * @return the pom file followed by the pom files of its parents that are found locally through their relativePath
+   * @throws IOException if a pom cannot be read
+   */
+  static List<File> localPomChain(Path pomFile) throws IOException {
+    Module module = read(pomFile(pomFile).toAbsolutePath().normalize());
+    Map<String, Module> chain = new LinkedHashMap<>();
+    chain.put(module.key(), module);
+    readLocalParents(module, chain);
+    return chain.values().stream().map(Module::pomFile).toList();
+  }
+
+  /**
+   * @return the modules in reactor order
+   */
+  List<Module> getModules() {
+    return modules;
+  }
+
+  /**
+   * Build the effective models of all modules in parallel.
+   *
+   * @param builder builds one module
+   * @param parallelism the parallelism of the fork-join pool
+   * @return the effective models by groupId:artifactId, in reactor order
+   * @throws ModelBuildingException if the model of a module cannot be built
+   */
+  Map<String, Model> build(ModuleBuilder builder, int parallelism) throws ModelBuildingException {
+    synchronized (builds) {
+      builds.clear();
+      for (Module module : modules) {
+        builds.put(module.key(), ForkJoinTask.adapt(() -> builder.build(module.pomFile(), this)));
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<ForkJoinTask<Model>> tasks = new ArrayList<>(modules.size());
+      for (Module module : modules) {
+        tasks.add(builds.get(module.key()));
+      }
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+      Map<String, Model> models = new LinkedHashMap<>();
+      for (int i = 0; i < modules.size(); i++) {
+        models.put(modules.get(i).key(), tasks.get(i).join());
+      }
+      return Collections.unmodifiableMap(models);
+    } catch (RuntimeException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof ModelBuildingException modelBuildingException) {
+          throw modelBuildingException;
+        }
+      }
+      throw e;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Override
+  @Nullable
+  public Model resolveRawModel(String groupId, String artifactId, String versionConstraint) {
+    Module module = find(groupId, artifactId, versionConstraint);
+    // the model builder works on the returned model, so every caller gets its own copy
+    return module == null ? null : module.rawModel().clone();
+  }
+
+  @Override
+  @Nullable
+  public Model resolveEffectiveModel(String groupId, String artifactId, String versionConstraint)
+      throws UnresolvableModelException {
+    Module module = find(groupId, artifactId, versionConstraint);
+    if (module == null) {
+      return null;
+    }
+    ForkJoinTask<Model> build;
+    synchronized (builds) {
+      build = builds.get(module.key());
+    }
+    if (build == null) {
+      return null;
+    }
+    try {
+      return build.join();
+    } catch (RuntimeException e) {
+      throw new UnresolvableModelException("Failed to build the reactor module " + module.key(), groupId,
+          artifactId, versionConstraint, e);
+    }
+  }
+
+  @Nullable
+  Module find(String groupId, String artifactId, @Nullable String version) {
+    Module module = workspace.get(groupId + ":" + artifactId);
+    if (module == null) {
+      return null;
+    }
+    // versions using properties (e.g. ${revision}) cannot be compared before the model is built
+    if (version == null || version.equals(module.version()) || version.contains("${") || module.version().contains("${")) {
+      return module;
+    }
+    return null;
+  }
+
+  private static void readModules(Path pomFile, Map<Path, Module> discovered) throws IOException {
+    Path normalized = pomFile.toAbsolutePath().normalize();
+    if (discovered.containsKey(normalized)) {
+      return;
+    }
+    Module module = read(normalized);
+    discovered.put(normalized, module);
+    for (String moduleName : module.rawModel().getModules()) {
+      readModules(pomFile(normalized.getParent().resolve(moduleName)), discovered);
+    }
+  }
+
+  private static void readLocalParents(Module module, Map<String, Module> workspace) throws IOException {
+    Parent parent = module.rawModel().getParent();
+    if (parent == null || workspace.containsKey(parent.getGroupId() + ":" + parent.getArtifactId())) {
+      return;
+    }
+    String relativePath = parent.getRelativePath();
+    if (relativePath == null || relativePath.isBlank()) {
+      return;
+    }
+    Path parentPom = pomFile(module.pomFile().toPath().getParent().resolve(relativePath)).normalize();
+    if (!Files.isRegularFile(parentPom)) {
+      return;
+    }
+    Module parentModule = read(parentPom);
+    if (parentModule.groupId().equals(parent.getGroupId()) && parentModule.artifactId().equals(parent.getArtifactId())) {
+      workspace.put(parentModule.key(), parentModule);
+      readLocalParents(parentModule, workspace);
+    }
+  }
+
+  private static Path pomFile(Path path) {
+    return Files.isDirectory(path) ? path.resolve("pom.xml") : path;
+  }
+
+  private static Module read(Path pomFile) throws IOException {
+    Model model;
+    try (Reader reader = Files.newBufferedReader(pomFile, StandardCharsets.UTF_8)) {
+      model = new MavenXpp3Reader().read(reader, false);
+    } catch (XmlPullParserException e) {
+      throw new IOException("Failed to parse " + pomFile, e);
+    }
+    model.setPomFile(pomFile.toFile());
+    Parent parent = model.getParent();
+    String groupId = model.getGroupId() == null && parent != null ? parent.getGroupId() : model.getGroupId();
+    String version = model.getVersion() == null && parent != null ? parent.getVersion() : model.getVersion();
+    return new Module(groupId, model.getArtifactId(), version, pomFile.toFile(), model);
+  }
+
+  /**
+   * Sort the modules so that every module comes after the modules it references, otherwise keeping the order in
+   * which they were declared.
+   */
+  private static List<Module> sort(List<Module> modules) {
+    Map<String, Module> byKey = new HashMap<>();
+    for (Module module : modules) {
+      byKey.putIfAbsent(module.key(), module);
+    }
+    Map<Module, Set<Module>> upstream = new HashMap<>();
+    for (Module module : modules) {
+      Set<Module> referenced = new LinkedHashSet<>();
+      for (String key : references(module)) {
+        Module other = byKey.get(key);
+        if (other != null && other != module) {
+          referenced.add(other);
+        }
+      }
+      upstream.put(module, referenced);
+    }
+    List<Module> sorted = new ArrayList<>(modules.size());
+    Set<Module> done = new HashSet<>();
+    List<Module> remaining = new ArrayList<>(modules);
+    while (!remaining.isEmpty()) {
+      Module next = null;
+      for (Module module : remaining) {
+        if (done.containsAll(upstream.get(module))) {
+          next = module;
+          break;
+        }
+      }
+      if (next == null) {
+        throw new IllegalArgumentException("The modules "
+            + remaining.stream().map(Module::key).toList() + " reference each other in a cycle");
+      }
+      remaining.remove(next);
+      done.add(next);
+      sorted.add(next);
+    }
+    return Collections.unmodifiableList(sorted);
+  }
+
+  private static Set<String> references(Module module) {
+    Model model = module.rawModel();
+    Set<String> keys = new LinkedHashSet<>();
+    if (model.getParent() != null) {
+      keys.add(model.getParent().getGroupId() + ":" + model.getParent().getArtifactId());
+    }
+    for (Dependency dependency : model.getDependencies()) {
+      keys.add(groupId(dependency.getGroupId(), module) + ":" + dependency.getArtifactId());
+    }
+    DependencyManagement dependencyManagement = model.getDependencyManagement();
+    if (dependencyManagement != null) {
+      for (Dependency dependency : dependencyManagement.getDependencies()) {
+        if ("import".equals(dependency.getScope())) {
+          keys.add(groupId(dependency.getGroupId(), module) + ":" + dependency.getArtifactId());
+        }
+      }
+    }
+    Build build = model.getBuild();
+    if (build != null) {
+      for (Plugin plugin : build.getPlugins()) {
+        keys.add(groupId(plugin.getGroupId(), module) + ":" + plugin.getArtifactId());
+      }
+    }
+    return keys;
+  }
+
+  private static String groupId(String groupId, Module module) {
+    return "${project.groupId}".equals(groupId) || "${pom.groupId}".equals(groupId) ? module.groupId() : groupId;
+  }
+}
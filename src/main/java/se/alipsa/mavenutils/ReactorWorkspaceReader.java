@@ -0,0 +1,86 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.WorkspaceReader;
+import org.eclipse.aether.repository.WorkspaceRepository;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link WorkspaceReader} that resolves the modules of a reactor from the working tree, so that resolving the
+ * classpath of one module neither downloads its sibling modules nor needs them installed in the local repository.
+ * <p>
+ * The pom of a module resolves to its pom file, its main artifact (a jar without classifier) to its
+ * {@code build.outputDirectory} and its test jar (type test-jar or classifier tests) to its
+ * {@code build.testOutputDirectory}. The directories are returned whether or not the module has been compiled.
+ * Other artifacts (e.g. sources or a war) are left to the repositories.
+ * </p>
+ */
+final class ReactorWorkspaceReader implements WorkspaceReader {
+
+  private final WorkspaceRepository repository = new WorkspaceRepository("reactor");
+  private final Map<String, Model> modules = new HashMap<>();
+
+  /**
+   * @param models the effective models of the modules, see {@link MavenUtils#parsePoms(java.nio.file.Path)}
+   */
+  ReactorWorkspaceReader(Collection<Model> models) {
+    for (Model model : models) {
+      modules.putIfAbsent(model.getGroupId() + ":" + model.getArtifactId(), model);
+    }
+  }
+
+  @Override
+  public WorkspaceRepository getRepository() {
+    return repository;
+  }
+
+  @Override
+  @Nullable
+  public File findArtifact(Artifact artifact) {
+    Model model = find(artifact);
+    if (model == null) {
+      return null;
+    }
+    String classifier = artifact.getClassifier();
+    if ("pom".equals(artifact.getExtension())) {
+      return classifier.isEmpty() ? model.getPomFile() : null;
+    }
+    if (!"jar".equals(artifact.getExtension())) {
+      return null;
+    }
+    Build build = model.getBuild();
+    if (classifier.isEmpty()) {
+      return directory(model, build == null ? null : build.getOutputDirectory(), "target/classes");
+    }
+    if ("tests".equals(classifier)) {
+      return directory(model, build == null ? null : build.getTestOutputDirectory(), "target/test-classes");
+    }
+    return null;
+  }
+
+  @Override
+  public List<String> findVersions(Artifact artifact) {
+    Model model = find(artifact);
+    return model == null ? List.of() : List.of(model.getVersion());
+  }
+
+  @Nullable
+  private Model find(Artifact artifact) {
+    Model model = modules.get(artifact.getGroupId() + ":" + artifact.getArtifactId());
+    return model != null && artifact.getBaseVersion().equals(model.getVersion()) ? model : null;
+  }
+
+  private static File directory(Model model, @Nullable String configured, String defaultPath) {
+    // a model read directly from the pom (see PomParseMode.DEPENDENCIES) has no build directories
+    File directory = new File(configured == null ? defaultPath : configured);
+    return directory.isAbsolute() ? directory : new File(model.getProjectDirectory(), directory.getPath());
+  }
+}
@@ -0,0 +1,136 @@
+package se.alipsa.mavenutils;
+
+import org.eclipse.aether.repository.RemoteRepository;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, ordered set of remote repositories indexed by id and url, used by {@link ModelResolver}.
+ * <p>
+ * Since the set never changes, a resolver and all its copies share the same instance and copying a resolver is free.
+ * A change creates a new set, so the cost of the bookkeeping grows with the number of distinct repositories rather
+ * than with the number of times the same repository is declared along a chain of parent poms and BOMs.
+ * It also remembers the ids of the repositories that were added from poms (as opposed to the initial ones), which
+ * decides whether a repository declared again with the same id is ignored or replaces the earlier one.
+ * </p>
+ */
+final class RepositorySet {
+
+  private static final RepositorySet EMPTY = new RepositorySet(List.of(), Map.of(), Map.of(), Set.of());
+
+  private final List<RemoteRepository> repositories;
+  private final Map<String, RemoteRepository> byId;
+  private final Map<String, List<RemoteRepository>> byUrl;
+  private final Set<String> pomRepositoryIds;
+
+  private RepositorySet(List<RemoteRepository> repositories, Map<String, RemoteRepository> byId,
+                        Map<String, List<RemoteRepository>> byUrl, Set<String> pomRepositoryIds) {
+    this.repositories = repositories;
+    this.byId = byId;
+    this.byUrl = byUrl;
+    this.pomRepositoryIds = pomRepositoryIds;
+  }
+
+  static RepositorySet of(List<RemoteRepository> repositories) {
+    return repositories.isEmpty() ? EMPTY : build(repositories, Set.of());
+  }
+
+  private static RepositorySet build(List<RemoteRepository> repositories, Set<String> pomRepositoryIds) {
+    Map<String, RemoteRepository> byId = new HashMap<>();
+    Map<String, List<RemoteRepository>> byUrl = new HashMap<>();
+    for (RemoteRepository repository : repositories) {
+      byId.putIfAbsent(repository.getId(), repository);
+      byUrl.computeIfAbsent(repository.getUrl(), url -> new ArrayList<>(1)).add(repository);
+    }
+    return new RepositorySet(Collections.unmodifiableList(new ArrayList<>(repositories)), byId, byUrl,
+        pomRepositoryIds);
+  }
+
+  /**
+   * @return the repositories in order, the list cannot be modified
+   */
+  List<RemoteRepository> asList() {
+    return repositories;
+  }
+
+  /**
+   * @return the repository with the given id, or null if there is none
+   */
+  @Nullable
+  RemoteRepository get(String id) {
+    return byId.get(id);
+  }
+
+  /**
+   * @return the repositories with the given url, possibly empty
+   */
+  List<RemoteRepository> getByUrl(String url) {
+    return Collections.unmodifiableList(byUrl.getOrDefault(url, List.of()));
+  }
+
+  /**
+   * @return true if a repository with the given id was added from a pom
+   */
+  boolean isPomRepository(String id) {
+    return pomRepositoryIds.contains(id);
+  }
+
+  /**
+   * @return a set with the repository appended, or this set if it already holds the repository
+   */
+  RepositorySet with(RemoteRepository repository) {
+    if (repository.equals(byId.get(repository.getId()))) {
+      return this;
+    }
+    List<RemoteRepository> appended = new ArrayList<>(repositories.size() + 1);
+    appended.addAll(repositories);
+    appended.add(repository);
+    return build(appended, pomRepositoryIds);
+  }
+
+  /**
+   * @return a set without the repositories with the given id, or this set if there are none
+   */
+  RepositorySet without(String id) {
+    if (!byId.containsKey(id)) {
+      return this;
+    }
+    List<RemoteRepository> remaining = new ArrayList<>(repositories.size());
+    for (RemoteRepository repository : repositories) {
+      if (!repository.getId().equals(id)) {
+        remaining.add(repository);
+      }
+    }
+    return build(remaining, pomRepositoryIds);
+  }
+
+  /**
+   * @return a set that records the id as added from a pom, or this set if it already does
+   */
+  RepositorySet withPomRepositoryId(String id) {
+    if (pomRepositoryIds.contains(id)) {
+      return this;
+    }
+    Set<String> ids = new HashSet<>(pomRepositoryIds);
+    ids.add(id);
+    return new RepositorySet(repositories, byId, byUrl, Collections.unmodifiableSet(ids));
+  }
+
+  /**
+   * @return a set holding the given repositories (e.g. the result of aggregating), keeping the pom repository ids
+   */
+  RepositorySet replaceAll(List<RemoteRepository> aggregated) {
+    return build(aggregated, pomRepositoryIds);
+  }
+
+  int size() {
+    return repositories.size();
+  }
+}
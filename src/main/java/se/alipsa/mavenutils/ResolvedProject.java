@@ -0,0 +1,325 @@
+package se.alipsa.mavenutils;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.settings.building.SettingsBuildingException;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The resolved dependencies of a pom file, kept up to date while the pom is edited.
+ * <p>
+ * The pom and its local parent poms are watched with a {@link WatchService}. When one of them is saved, the pom is
+ * parsed again (see {@link MavenUtils.PomParseMode#DEPENDENCIES}) and its dependencies, managed dependencies and
+ * repositories are compared with the ones that were last resolved. If they did not change, nothing is resolved.
+ * Otherwise the dependency graph is collected again in the same repository session, whose cache still holds the
+ * descriptors of all artifacts resolved before, so only the subtrees of changed dependencies are read and
+ * downloaded. Listeners are then told which files were added to and removed from the classpath.
+ * </p>
+ * <pre>{@code
+ * try (ResolvedProject project = new MavenUtils().resolveProject(new File("pom.xml"))) {
+ *   project.addListener(change -> System.out.println("added " + change.added() + ", removed " + change.removed()));
+ *   Set<File> classpath = project.getClasspath();
+ * }
+ * }</pre>
+ */
+public final class ResolvedProject implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResolvedProject.class);
+  /** How long to wait for more file events before resolving, editors often save a file in several writes. */
+  private static final long SETTLE_MILLIS = 100;
+
+  /**
+   * A change of the classpath.
+   *
+   * @param added the files that were added to the classpath
+   * @param removed the files that were removed from the classpath
+   * @param classpath the complete classpath after the change
+   */
+  public record ClasspathChange(Set<File> added, Set<File> removed, Set<File> classpath) {
+
+    /**
+     * @return true if the classpath did not change
+     */
+    public boolean isEmpty() {
+      return added.isEmpty() && removed.isEmpty();
+    }
+  }
+
+  private final MavenUtils mavenUtils;
+  private final File pomFile;
+  private final boolean testScope;
+  private final RepositorySystem repositorySystem;
+  private final DefaultRepositorySystemSession session;
+  private final List<Consumer<ClasspathChange>> listeners = new CopyOnWriteArrayList<>();
+  /** Changes waiting to be delivered, in the order they were resolved. */
+  private final Queue<ClasspathChange> pendingChanges = new ConcurrentLinkedQueue<>();
+  private final Object deliveryLock = new Object();
+  private final AtomicLong resolutions = new AtomicLong();
+  private final WatchService watchService;
+  private final Map<Path, WatchKey> watchedDirectories = new HashMap<>();
+  private final Thread watcher;
+  private volatile Set<Path> watchedFiles = Set.of();
+  private Model model;
+  private String resolvedInputs;
+  private Set<File> classpath = Set.of();
+  private volatile boolean closed;
+
+  ResolvedProject(MavenUtils mavenUtils, File pomFile, boolean testScope)
+      throws IOException, SettingsBuildingException, ModelBuildingException, DependenciesResolveException {
+    this.mavenUtils = mavenUtils;
+    this.pomFile = pomFile.getAbsoluteFile();
+    this.testScope = testScope;
+    this.repositorySystem = MavenUtils.getRepositorySystem();
+    this.session = MavenUtils.getRepositorySystemSession(repositorySystem);
+    // retained between resolutions, this is what makes re-resolving an unchanged subtree cheap
+    session.setCache(new DefaultRepositoryCache());
+    refresh();
+    this.watchService = this.pomFile.toPath().getFileSystem().newWatchService();
+    try {
+      watchPomFiles();
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+    this.watcher = new Thread(this::watch, "resolved-project-" + this.pomFile.getParentFile().getName());
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * Parse the pom again and resolve its dependencies if they changed. This happens automatically when the pom or
+   * one of its local parents is saved, but can also be called directly.
+   *
+   * @return the change of the classpath, empty if nothing changed
+   * @throws SettingsBuildingException if there was some issue with building the maven settings context
+   * @throws ModelBuildingException if there was some issue with the pom file
+   * @throws DependenciesResolveException if there was some issue resolving dependencies
+   */
+  public ClasspathChange refresh() throws SettingsBuildingException, ModelBuildingException,
+      DependenciesResolveException {
+    ClasspathChange change;
+    synchronized (this) {
+      Model parsed = mavenUtils.parsePom(pomFile, MavenUtils.PomParseMode.DEPENDENCIES);
+      String inputs = resolutionInputs(parsed);
+      model = parsed;
+      if (inputs.equals(resolvedInputs)) {
+        return new ClasspathChange(Set.of(), Set.of(), classpath);
+      }
+      Set<File> resolved = mavenUtils.resolveDependencies(pomFile, parsed, repositorySystem, session, testScope);
+      resolutions.incrementAndGet();
+      Set<File> added = new LinkedHashSet<>(resolved);
+      added.removeAll(classpath);
+      Set<File> removed = new LinkedHashSet<>(classpath);
+      removed.removeAll(resolved);
+      classpath = Collections.unmodifiableSet(resolved);
+      resolvedInputs = inputs;
+      change = new ClasspathChange(Collections.unmodifiableSet(added), Collections.unmodifiableSet(removed), classpath);
+      if (!change.isEmpty()) {
+        pendingChanges.add(change);
+      }
+    }
+    // listeners run outside the lock so they can read the project, the queue keeps overlapping refreshes in order
+    deliverChanges();
+    return change;
+  }
+
+  /**
+   * @param listener called with the change whenever the classpath changes, on the thread watching the pom files,
+   *                 changes are delivered in the order they were resolved
+   */
+  public void addListener(Consumer<ClasspathChange> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param listener a listener added with {@link #addListener(Consumer)}, it is not called for later changes
+   */
+  public void removeListener(Consumer<ClasspathChange> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * @return the resolved dependencies
+   */
+  public synchronized Set<File> getClasspath() {
+    return classpath;
+  }
+
+  /**
+   * @return the model of the pom as last parsed, see {@link MavenUtils.PomParseMode#DEPENDENCIES}
+   */
+  public synchronized Model getModel() {
+    return model;
+  }
+
+  /**
+   * @return the absolute path of the watched pom file
+   */
+  public File getPomFile() {
+    return pomFile;
+  }
+
+  /**
+   * @return how many times the dependencies were resolved, including the initial resolution
+   */
+  public long getResolutionCount() {
+    return resolutions.get();
+  }
+
+  /**
+   * Stop watching the pom files and wait for the watching thread to finish. Listeners are not called after the
+   * project is closed.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watcher.interrupt();
+    watchService.close();
+    if (Thread.currentThread() != watcher) {
+      try {
+        watcher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void deliverChanges() {
+    synchronized (deliveryLock) {
+      ClasspathChange change;
+      while ((change = pendingChanges.poll()) != null) {
+        if (closed) {
+          pendingChanges.clear();
+          return;
+        }
+        for (Consumer<ClasspathChange> listener : listeners) {
+          try {
+            listener.accept(change);
+          } catch (RuntimeException e) {
+            LOG.warn("Classpath listener failed for {}", pomFile, e);
+          }
+        }
+      }
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        boolean changed = isPomChange(watchService.take());
+        WatchKey key;
+        while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          changed |= isPomChange(key);
+        }
+        if (changed && !closed) {
+          try {
+            refresh();
+            // a parent may have been added, moved or removed
+            watchPomFiles();
+          } catch (Exception e) {
+            // most likely a pom that is saved halfway through an edit, keep the last resolved classpath
+            LOG.warn("Failed to resolve the dependencies of {}: {}", pomFile, e.toString());
+            LOG.debug("Resolution failure", e);
+          }
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      LOG.debug("Stopped watching {}", pomFile);
+    }
+  }
+
+  private boolean isPomChange(WatchKey key) {
+    Path directory = (Path) key.watchable();
+    boolean changed = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+          || watchedFiles.contains(directory.resolve((Path) event.context()))) {
+        changed = true;
+      }
+    }
+    key.reset();
+    return changed;
+  }
+
+  private synchronized void watchPomFiles() throws IOException {
+    Set<Path> files = new LinkedHashSet<>();
+    for (File file : Reactor.localPomChain(pomFile.toPath())) {
+      files.add(file.toPath().toAbsolutePath().normalize());
+    }
+    Set<Path> directories = new LinkedHashSet<>();
+    for (Path file : files) {
+      directories.add(file.getParent());
+    }
+    for (Path directory : directories) {
+      if (!watchedDirectories.containsKey(directory)) {
+        watchedDirectories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+      }
+    }
+    watchedDirectories.entrySet().removeIf(entry -> {
+      if (directories.contains(entry.getKey())) {
+        return false;
+      }
+      entry.getValue().cancel();
+      return true;
+    });
+    watchedFiles = Set.copyOf(files);
+  }
+
+  /**
+   * @return everything in the model that the resolved classpath depends on
+   */
+  private static String resolutionInputs(Model model) {
+    StringBuilder inputs = new StringBuilder();
+    appendDependencies(inputs, model.getDependencies());
+    DependencyManagement dependencyManagement = model.getDependencyManagement();
+    if (dependencyManagement != null) {
+      inputs.append("|managed");
+      appendDependencies(inputs, dependencyManagement.getDependencies());
+    }
+    inputs.append("|repositories");
+    for (Repository repository : model.getRepositories()) {
+      inputs.append(';').append(repository.getId()).append('=').append(repository.getUrl());
+    }
+    return inputs.toString();
+  }
+
+  private static void appendDependencies(StringBuilder inputs, List<Dependency> dependencies) {
+    for (Dependency dependency : dependencies) {
+      inputs.append(';').append(dependency.getManagementKey()).append(':').append(dependency.getVersion())
+          .append(':').append(dependency.getScope()).append(':').append(dependency.isOptional());
+      for (Exclusion exclusion : dependency.getExclusions()) {
+        inputs.append(":!").append(exclusion.getGroupId()).append(':').append(exclusion.getArtifactId());
+      }
+    }
+  }
+}
@@ -2,12 +2,49 @@ package se.alipsa.mavenutils;
 
 import org.apache.maven.artifact.versioning.ComparableVersion;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A version that is compared using the Maven version ordering ({@link ComparableVersion}).
+ * <p>
+ * The version is parsed once, when the SemanticVersion is created. Purely numeric versions (e.g. 1.2.3), which are
+ * the vast majority, are kept as an array of numbers and compared without any allocation; other versions keep
+ * their parsed {@link ComparableVersion}. The static {@link #compare(String, String)} reuses the parsed versions of
+ * recently compared strings from a shared cache.
+ * </p>
+ * <p>
+ * To sort, find the highest of or group many versions, use the bulk operations {@link #sort(Collection)},
+ * {@link #max(Collection)} and {@link #groupByMajor(Collection)} which parse every version exactly once.
+ * </p>
+ */
 public class SemanticVersion implements Comparable<SemanticVersion> {
 
+  private static final int MAX_INTERNED = 16_384;
+  private static final Map<String, SemanticVersion> INTERNED = new ConcurrentHashMap<>();
+  /** The most digits a numeric segment may have and still fit in a long. */
+  private static final int MAX_DIGITS = 18;
+
+  private record Keyed(String version, SemanticVersion key) {
+  }
+
   private final String versionString;
+  /** The numeric segments without trailing zeros, or null if the version is not purely numeric. */
+  @Nullable
+  private final long[] numbers;
+  @Nullable
+  private volatile ComparableVersion comparable;
 
   public SemanticVersion(String version) {
    this.versionString = version;
+   this.numbers = parseNumbers(version);
+   this.comparable = numbers == null ? new ComparableVersion(version) : null;
   }
 
   /**
@@ -18,7 +55,18 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
    */
   @Override
   public int compareTo(SemanticVersion another) {
-    return new ComparableVersion(versionString).compareTo(new ComparableVersion(another.versionString));
+    if (numbers != null && another.numbers != null) {
+      return compareNumbers(numbers, another.numbers);
+    }
+    return comparable().compareTo(another.comparable());
+  }
+
+  /**
+   * @return the version string
+   */
+  @Override
+  public String toString() {
+    return versionString;
   }
 
   /**
@@ -29,25 +77,198 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
    * @return &lt; 0 if smaller, 0 if equal, &gt; 0 if greater.
    */
   public static int compare(String first, String second) {
-    if (first.startsWith("v")) {
-      first = first.substring(1);
+    return interned(first).compareTo(interned(second));
+  }
+
+  /**
+   * Sort versions in ascending order. Each version is parsed once and large collections are sorted in parallel.
+   *
+   * @param versions the versions to sort, normalized as in {@link #compare(String, String)}
+   * @return a new list with the versions in ascending order, versions that compare equal keep their order
+   */
+  public static List<String> sort(Collection<String> versions) {
+    Keyed[] keyed = keyed(versions);
+    Arrays.parallelSort(keyed, (a, b) -> a.key().compareTo(b.key()));
+    List<String> sorted = new ArrayList<>(keyed.length);
+    for (Keyed entry : keyed) {
+      sorted.add(entry.version());
     }
-    if (second.startsWith("v")) {
-      second = second.substring(1);
+    return sorted;
+  }
+
+  /**
+   * Find the highest version in a single pass, parsing each version once.
+   *
+   * @param versions the versions, normalized as in {@link #compare(String, String)}
+   * @return the highest version (the first one if several compare equal), or null if the collection is empty
+   */
+  @Nullable
+  public static String max(Collection<String> versions) {
+    String max = null;
+    SemanticVersion maxKey = null;
+    for (String version : versions) {
+      SemanticVersion key = parse(version);
+      if (maxKey == null || key.compareTo(maxKey) > 0) {
+        max = version;
+        maxKey = key;
+      }
     }
-    if (first.contains("-jdk")) {
-      first = first.substring(0, first.indexOf("-jdk"));
+    return max;
+  }
+
+  /**
+   * Group versions by their major (leading) number, e.g. to find the newest version of each major.
+   *
+   * @param versions the versions, normalized as in {@link #compare(String, String)}
+   * @return the versions of each major in ascending order, keyed by the major in ascending order;
+   *     versions without a leading number are grouped under -1
+   */
+  public static Map<Long, List<String>> groupByMajor(Collection<String> versions) {
+    Keyed[] keyed = keyed(versions);
+    Arrays.parallelSort(keyed, (a, b) -> a.key().compareTo(b.key()));
+    Map<Long, List<String>> groups = new TreeMap<>();
+    for (Keyed entry : keyed) {
+      groups.computeIfAbsent(entry.key().major(), major -> new ArrayList<>()).add(entry.version());
     }
-    if (second.contains("-jdk")) {
-      second = second.substring(0, second.indexOf("-jdk"));
+    return groups;
+  }
+
+  private static Keyed[] keyed(Collection<String> versions) {
+    Keyed[] keyed = new Keyed[versions.size()];
+    int i = 0;
+    for (String version : versions) {
+      keyed[i++] = new Keyed(version, parse(version));
     }
-    if (first.contains(".jdk")) {
-      first = first.substring(0, first.indexOf(".jdk"));
+    return keyed;
+  }
+
+  /**
+   * @return the leading number of the version, or -1 if it does not start with a number
+   */
+  long major() {
+    if (numbers != null) {
+      return numbers.length == 0 ? 0 : numbers[0];
     }
-    if (second.contains(".jdk")) {
-      second = second.substring(0, second.indexOf(".jdk"));
+    int end = 0;
+    while (end < versionString.length() && end < MAX_DIGITS && Character.isDigit(versionString.charAt(end))) {
+      end++;
     }
+    return end == 0 ? -1 : Long.parseLong(versionString, 0, end, 10);
+  }
+
+  /**
+   * Parse a version string the way {@link #compare(String, String)} does: a leading "v" and any jdk suffix
+   * ("-jdk11", ".jdk8") are ignored.
+   *
+   * @param version the version
+   * @return the parsed version, its {@link #toString()} is the normalized version string
+   */
+  static SemanticVersion parse(String version) {
+    return new SemanticVersion(normalize(version));
+  }
+
+  /**
+   * Same as {@link #parse(String)} but reuses the result for recently parsed strings.
+   */
+  static SemanticVersion interned(String version) {
+    SemanticVersion parsed = INTERNED.get(version);
+    if (parsed == null) {
+      if (INTERNED.size() >= MAX_INTERNED) {
+        // a simple bound: versions are cheap to parse again, an unbounded cache is not
+        INTERNED.clear();
+      }
+      parsed = parse(version);
+      INTERNED.put(version, parsed);
+    }
+    return parsed;
+  }
+
+  static String normalize(String version) {
+    int start = version.startsWith("v") ? 1 : 0;
+    int end = version.length();
+    int jdk = version.indexOf("jdk", start);
+    while (jdk > start) {
+      char separator = version.charAt(jdk - 1);
+      if (separator == '-' || separator == '.') {
+        end = jdk - 1;
+        break;
+      }
+      jdk = version.indexOf("jdk", jdk + 3);
+    }
+    return start == 0 && end == version.length() ? version : version.substring(start, end);
+  }
 
-    return new ComparableVersion(first).compareTo(new ComparableVersion(second));
+  private ComparableVersion comparable() {
+    ComparableVersion parsed = comparable;
+    if (parsed == null) {
+      // only numeric versions get here, and only when compared with a non numeric one
+      parsed = new ComparableVersion(versionString);
+      comparable = parsed;
+    }
+    return parsed;
+  }
+
+  /**
+   * Parse a version made of dot separated numbers (e.g. 1.2.3) into its numbers without trailing zeros,
+   * which orders them exactly like {@link ComparableVersion} does.
+   *
+   * @return the numbers or null if the version is not purely numeric
+   */
+  @Nullable
+  private static long[] parseNumbers(String version) {
+    int length = version.length();
+    if (length == 0) {
+      return null;
+    }
+    int segments = 1;
+    int digits = 0;
+    for (int i = 0; i < length; i++) {
+      char c = version.charAt(i);
+      if (c == '.') {
+        if (digits == 0) {
+          return null;
+        }
+        segments++;
+        digits = 0;
+      } else if (c >= '0' && c <= '9') {
+        if (++digits > MAX_DIGITS) {
+          return null;
+        }
+      } else {
+        return null;
+      }
+    }
+    if (digits == 0) {
+      return null;
+    }
+    long[] numbers = new long[segments];
+    int segment = 0;
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      char c = version.charAt(i);
+      if (c == '.') {
+        numbers[segment++] = value;
+        value = 0;
+      } else {
+        value = value * 10 + (c - '0');
+      }
+    }
+    numbers[segment] = value;
+    int significant = segments;
+    while (significant > 0 && numbers[significant - 1] == 0) {
+      significant--;
+    }
+    return significant == segments ? numbers : Arrays.copyOf(numbers, significant);
+  }
+
+  private static int compareNumbers(long[] first, long[] second) {
+    int common = Math.min(first.length, second.length);
+    for (int i = 0; i < common; i++) {
+      if (first[i] != second[i]) {
+        return first[i] < second[i] ? -1 : 1;
+      }
+    }
+    // trailing zeros are trimmed, so a longer version has a non zero segment and is greater
+    return Integer.compare(first.length, second.length);
   }
 }
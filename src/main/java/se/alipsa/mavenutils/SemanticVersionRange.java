@@ -0,0 +1,223 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A Maven version range such as {@code [1.2,2.0)}, {@code (,3.1]}, {@code [1.5]} or a union like
+ * {@code [1.0,2.0),[3.0,)}, compiled once into {@link SemanticVersion} bounds.
+ * <p>
+ * Versions are ordered as in {@link SemanticVersion#compare(String, String)}. Testing a parsed version for membership
+ * does not allocate, and sorted versions are filtered by binary search for the bounds of each restriction, see
+ * {@link #filter(List)} and {@link VersionIndex#getInRange(SemanticVersionRange)}.
+ * Unlike Maven, a plain version without brackets (e.g. {@code 1.5}) is treated as the exact version {@code [1.5]}.
+ * </p>
+ */
+public final class SemanticVersionRange {
+
+  private final String spec;
+  private final Restriction[] restrictions;
+
+  /**
+   * One interval of a range.
+   *
+   * @param lower the lower bound, or null if there is none
+   * @param lowerInclusive true if the lower bound is part of the interval
+   * @param upper the upper bound, or null if there is none
+   * @param upperInclusive true if the upper bound is part of the interval
+   */
+  private record Restriction(@Nullable SemanticVersion lower, boolean lowerInclusive,
+                             @Nullable SemanticVersion upper, boolean upperInclusive) {
+
+    boolean contains(SemanticVersion version) {
+      if (lower != null) {
+        int comparison = version.compareTo(lower);
+        if (comparison < 0 || comparison == 0 && !lowerInclusive) {
+          return false;
+        }
+      }
+      if (upper != null) {
+        int comparison = version.compareTo(upper);
+        return comparison < 0 || comparison == 0 && upperInclusive;
+      }
+      return true;
+    }
+  }
+
+  private SemanticVersionRange(String spec, Restriction[] restrictions) {
+    this.spec = spec;
+    this.restrictions = restrictions;
+  }
+
+  /**
+   * Parse a range specification.
+   *
+   * @param spec the range, e.g. {@code [1.2,2.0)}
+   * @return the compiled range
+   * @throws IllegalArgumentException if the specification is not a valid range
+   */
+  public static SemanticVersionRange parse(String spec) {
+    String trimmed = spec.trim();
+    if (trimmed.isEmpty()) {
+      throw new IllegalArgumentException("Empty version range");
+    }
+    if (trimmed.charAt(0) != '[' && trimmed.charAt(0) != '(') {
+      SemanticVersion version = SemanticVersion.parse(trimmed);
+      return new SemanticVersionRange(spec, new Restriction[]{new Restriction(version, true, version, true)});
+    }
+    List<Restriction> restrictions = new ArrayList<>();
+    int pos = 0;
+    while (pos < trimmed.length()) {
+      char open = trimmed.charAt(pos);
+      if (open != '[' && open != '(') {
+        throw new IllegalArgumentException("Expected '[' or '(' at position " + pos + " in version range " + spec);
+      }
+      int close = pos + 1;
+      while (close < trimmed.length() && trimmed.charAt(close) != ']' && trimmed.charAt(close) != ')') {
+        close++;
+      }
+      if (close == trimmed.length()) {
+        throw new IllegalArgumentException("Unclosed version range " + spec);
+      }
+      Restriction restriction = restriction(trimmed.substring(pos + 1, close), open == '[',
+          trimmed.charAt(close) == ']', spec);
+      if (!restrictions.isEmpty()) {
+        Restriction previous = restrictions.get(restrictions.size() - 1);
+        if (previous.upper() == null || restriction.lower() == null
+            || restriction.lower().compareTo(previous.upper()) < 0) {
+          throw new IllegalArgumentException("Overlapping or unordered restrictions in version range " + spec);
+        }
+      }
+      restrictions.add(restriction);
+      pos = close + 1;
+      while (pos < trimmed.length() && (trimmed.charAt(pos) == ',' || Character.isWhitespace(trimmed.charAt(pos)))) {
+        pos++;
+      }
+    }
+    return new SemanticVersionRange(spec, restrictions.toArray(Restriction[]::new));
+  }
+
+  private static Restriction restriction(String content, boolean lowerInclusive, boolean upperInclusive,
+                                         String spec) {
+    int comma = content.indexOf(',');
+    if (comma < 0) {
+      if (!lowerInclusive || !upperInclusive || content.isBlank()) {
+        throw new IllegalArgumentException("A single version must be enclosed in [] in version range " + spec);
+      }
+      SemanticVersion version = SemanticVersion.parse(content.trim());
+      return new Restriction(version, true, version, true);
+    }
+    if (content.indexOf(',', comma + 1) >= 0) {
+      throw new IllegalArgumentException("Too many commas in version range " + spec);
+    }
+    String lower = content.substring(0, comma).trim();
+    String upper = content.substring(comma + 1).trim();
+    SemanticVersion lowerVersion = lower.isEmpty() ? null : SemanticVersion.parse(lower);
+    SemanticVersion upperVersion = upper.isEmpty() ? null : SemanticVersion.parse(upper);
+    if (lowerVersion == null && lowerInclusive || upperVersion == null && upperInclusive) {
+      throw new IllegalArgumentException("A missing bound must be exclusive in version range " + spec);
+    }
+    if (lowerVersion != null && upperVersion != null && lowerVersion.compareTo(upperVersion) > 0) {
+      throw new IllegalArgumentException("The lower bound is above the upper bound in version range " + spec);
+    }
+    return new Restriction(lowerVersion, lowerInclusive, upperVersion, upperInclusive);
+  }
+
+  /**
+   * @param version the version, normalized as in {@link SemanticVersion#compare(String, String)}
+   * @return true if the version is within the range
+   */
+  public boolean contains(String version) {
+    return contains(SemanticVersion.interned(version));
+  }
+
+  /**
+   * Test a parsed version, without allocating for numeric versions.
+   *
+   * @param version the version
+   * @return true if the version is within the range
+   */
+  public boolean contains(SemanticVersion version) {
+    for (Restriction restriction : restrictions) {
+      if (restriction.contains(version)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the range has an upper bound, i.e. the highest restriction has one
+   */
+  public boolean hasUpperBound() {
+    return restrictions[restrictions.length - 1].upper() != null;
+  }
+
+  /**
+   * @return true if the range has a lower bound, i.e. the lowest restriction has one
+   */
+  public boolean hasLowerBound() {
+    return restrictions[0].lower() != null;
+  }
+
+  /**
+   * Filter versions that are already sorted in ascending order, e.g. by
+   * {@link SemanticVersion#sort(java.util.Collection)}. Only the versions probed by the binary searches are parsed.
+   *
+   * @param sortedVersions the versions in ascending order
+   * @return the versions within the range, in ascending order
+   */
+  public List<String> filter(List<String> sortedVersions) {
+    List<String> matching = new ArrayList<>();
+    for (int[] slice : slices(sortedVersions.size(), i -> SemanticVersion.parse(sortedVersions.get(i)))) {
+      matching.addAll(sortedVersions.subList(slice[0], slice[1]));
+    }
+    return matching;
+  }
+
+  /**
+   * Find the [from, to) index slices of sorted keys that are within each restriction.
+   *
+   * @param size the number of sorted keys
+   * @param keys the key at an index
+   * @return one slice per restriction, possibly empty
+   */
+  List<int[]> slices(int size, IntFunction<SemanticVersion> keys) {
+    List<int[]> slices = new ArrayList<>(restrictions.length);
+    for (Restriction restriction : restrictions) {
+      int from = restriction.lower() == null ? 0
+          : search(size, keys, restriction.lower(), !restriction.lowerInclusive());
+      int to = restriction.upper() == null ? size
+          : search(size, keys, restriction.upper(), restriction.upperInclusive());
+      slices.add(new int[]{from, Math.max(from, to)});
+    }
+    return slices;
+  }
+
+  /**
+   * @param after false for the first index with a key not lower than the bound, true for the first index with
+   *              a key higher than the bound
+   */
+  private static int search(int size, IntFunction<SemanticVersion> keys, SemanticVersion bound,
+                            boolean after) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int comparison = keys.apply(mid).compareTo(bound);
+      if (comparison < 0 || after && comparison == 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public String toString() {
+    return spec;
+  }
+}
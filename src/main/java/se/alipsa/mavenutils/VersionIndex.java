@@ -0,0 +1,297 @@
+package se.alipsa.mavenutils;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * All versions of an artifact sorted once in ascending {@link SemanticVersion} order.
+ * <p>
+ * Each version is parsed into its {@link SemanticVersion} key when the index is built, so queries never parse or
+ * sort again: range queries ("newer than 1.4", "highest 2.x") are answered by binary search over the sorted keys, and
+ * predicate queries ("highest stable") scan from the highest version down and stop at the first match.
+ * An index is immutable and can be shared, see {@link ArtifactLookup#fetchVersionIndex(String, String)} which
+ * keeps one per artifact.
+ * </p>
+ */
+public final class VersionIndex {
+
+  private static final Pattern PRE_RELEASE = Pattern.compile(
+      "(?i)(^|[.\\-_])(alpha|a|beta|b|milestone|m|rc|cr|pre|preview|ea|dev|snapshot)[.\\-_]?\\d*([.\\-_]|$)");
+
+  private final String groupId;
+  private final String artifactId;
+  private final String[] versions;
+  private final SemanticVersion[] keys;
+  /** The leading number of each version (-1 if it has none), or null if it is not non-decreasing in key order. */
+  @Nullable
+  private final long[] majors;
+
+  private VersionIndex(String groupId, String artifactId, String[] versions, SemanticVersion[] keys,
+                       @Nullable long[] majors) {
+    this.groupId = groupId;
+    this.artifactId = artifactId;
+    this.versions = versions;
+    this.keys = keys;
+    this.majors = majors;
+  }
+
+  /**
+   * Build an index of all versions in the metadata, including the release and latest versions.
+   *
+   * @param metadata the metadata of the artifact
+   * @return the index
+   */
+  public static VersionIndex of(ArtifactMetadata metadata) {
+    List<String> all = new ArrayList<>(metadata.versions().size() + 2);
+    all.addAll(metadata.versions());
+    if (metadata.release() != null) {
+      all.add(metadata.release());
+    }
+    if (metadata.latest() != null) {
+      all.add(metadata.latest());
+    }
+    return of(metadata.groupId(), metadata.artifactId(), all);
+  }
+
+  /**
+   * Build an index of the given versions; duplicates are removed.
+   *
+   * @param groupId the group ID of the artifact
+   * @param artifactId the artifact ID
+   * @param versions the versions, in any order
+   * @return the index
+   */
+  public static VersionIndex of(String groupId, String artifactId, Collection<String> versions) {
+    Entry[] entries = new LinkedHashSet<>(versions).stream()
+        .map(version -> new Entry(version, SemanticVersion.parse(version)))
+        .toArray(Entry[]::new);
+    Arrays.parallelSort(entries, (a, b) -> a.key().compareTo(b.key()));
+    String[] sorted = new String[entries.length];
+    SemanticVersion[] keys = new SemanticVersion[entries.length];
+    long[] majors = new long[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      sorted[i] = entries[i].version();
+      keys[i] = entries[i].key();
+      majors[i] = entries[i].key().major();
+    }
+    // a leading number is not guaranteed to be non-decreasing for exotic version schemes, keep the major
+    // lookups correct by falling back to a scan when it is not
+    for (int i = 1; i < majors.length; i++) {
+      if (majors[i] < majors[i - 1]) {
+        majors = null;
+        break;
+      }
+    }
+    return new VersionIndex(groupId, artifactId, sorted, keys, majors);
+  }
+
+  private record Entry(String version, SemanticVersion key) {
+  }
+
+  /**
+   * @return the group ID of the artifact
+   */
+  public String getGroupId() {
+    return groupId;
+  }
+
+  /**
+   * @return the artifact ID
+   */
+  public String getArtifactId() {
+    return artifactId;
+  }
+
+  /**
+   * @return the number of versions in the index
+   */
+  public int size() {
+    return versions.length;
+  }
+
+  /**
+   * @return all versions in ascending order
+   */
+  public List<String> getVersions() {
+    return List.of(versions);
+  }
+
+  /**
+   * @param version the version to look for
+   * @return true if the index holds a version equal to the given one
+   */
+  public boolean contains(String version) {
+    return Arrays.binarySearch(keys, SemanticVersion.parse(version)) >= 0;
+  }
+
+  /**
+   * @return the highest version, or null if the index is empty
+   */
+  @Nullable
+  public String getHighest() {
+    return versions.length == 0 ? null : versions[versions.length - 1];
+  }
+
+  /**
+   * @return the highest version that is not a snapshot, milestone, alpha, beta or release candidate,
+   *     or null if there is none
+   * @see #isStable(String)
+   */
+  @Nullable
+  public String getHighestStable() {
+    return getHighest(VersionIndex::isStable);
+  }
+
+  /**
+   * @param filter the condition the version must meet
+   * @return the highest version matching the filter, or null if there is none
+   */
+  @Nullable
+  public String getHighest(Predicate<String> filter) {
+    return highestMatching(0, versions.length, filter);
+  }
+
+  /**
+   * Get the highest version with the given leading number, e.g. the highest 2.x for major 2.
+   *
+   * @param major the leading number of the version
+   * @param stableOnly true to skip pre-release versions
+   * @return the highest matching version, or null if there is none
+   */
+  @Nullable
+  public String getHighestInMajor(long major, boolean stableOnly) {
+    Predicate<String> filter = stableOnly ? VersionIndex::isStable : v -> true;
+    if (majors == null) {
+      return getHighest(filter.and(v -> SemanticVersion.parse(v).major() == major));
+    }
+    return highestMatching(firstMajorAtLeast(major), firstMajorAtLeast(major + 1), filter);
+  }
+
+  /**
+   * @param version the version to compare with, which does not have to be in the index
+   * @return all versions higher than the given one, in ascending order
+   */
+  public List<String> getNewerThan(String version) {
+    return slice(upperBound(SemanticVersion.parse(version)), versions.length);
+  }
+
+  /**
+   * Get the versions within a range.
+   *
+   * @param lowerInclusive the lowest version to include, or null for no lower limit
+   * @param upperExclusive the version above the range, or null for no upper limit
+   * @return the versions in the range, in ascending order
+   */
+  public List<String> getRange(@Nullable String lowerInclusive, @Nullable String upperExclusive) {
+    int from = lowerInclusive == null ? 0 : lowerBound(SemanticVersion.parse(lowerInclusive));
+    int to = upperExclusive == null ? versions.length : lowerBound(SemanticVersion.parse(upperExclusive));
+    return slice(from, Math.max(from, to));
+  }
+
+  /**
+   * @param range the range, e.g. {@code [1.2,2.0)}
+   * @return the versions within the range, in ascending order
+   */
+  public List<String> getInRange(SemanticVersionRange range) {
+    List<String> matching = new ArrayList<>();
+    for (int[] slice : range.slices(keys.length, i -> keys[i])) {
+      matching.addAll(slice(slice[0], slice[1]));
+    }
+    return matching;
+  }
+
+  /**
+   * @param filter the condition the versions must meet
+   * @return the matching versions, in ascending order
+   */
+  public List<String> filter(Predicate<String> filter) {
+    List<String> matching = new ArrayList<>();
+    for (String version : versions) {
+      if (filter.test(version)) {
+        matching.add(version);
+      }
+    }
+    return matching;
+  }
+
+  /**
+   * Check whether a version is a final release, i.e. not a snapshot, milestone, alpha, beta, release candidate,
+   * preview or early access version.
+   *
+   * @param version the version
+   * @return true if the version is stable
+   */
+  public static boolean isStable(String version) {
+    return !PRE_RELEASE.matcher(version).find();
+  }
+
+  @Override
+  public String toString() {
+    return "VersionIndex{" + groupId + ":" + artifactId + ", " + versions.length + " versions, highest="
+        + getHighest() + "}";
+  }
+
+  @Nullable
+  private String highestMatching(int from, int to, Predicate<String> filter) {
+    for (int i = to - 1; i >= from; i--) {
+      if (filter.test(versions[i])) {
+        return versions[i];
+      }
+    }
+    return null;
+  }
+
+  private List<String> slice(int from, int to) {
+    return List.of(Arrays.copyOfRange(versions, from, to));
+  }
+
+  /** The index of the first key not lower than the given key. */
+  private int lowerBound(SemanticVersion key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** The index of the first key higher than the given key. */
+  private int upperBound(SemanticVersion key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(key) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int firstMajorAtLeast(long major) {
+    int low = 0;
+    int high = majors.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (majors[mid] < major) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,141 @@
+package se.alipsa.mavenutils;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.VersionRangeResult;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of resolved version ranges shared by all {@link ModelResolver}s (including their copies), so that
+ * the parent version range of many poms is only resolved once.
+ * <p>
+ * Entries are keyed by the groupId, artifactId, range, local repository and the remote repositories (with their
+ * urls). How long an entry is used follows the update policy: the session's global update policy if set, otherwise
+ * the strictest release policy of the remote repositories. "always" disables caching, "never" and offline sessions
+ * keep entries until they are evicted, "daily" keeps them for a day and "interval:N" for N minutes.
+ * </p>
+ */
+final class VersionRangeCache {
+
+  static final int DEFAULT_MAX_ENTRIES = 1024;
+  private static final long FOREVER = Long.MAX_VALUE;
+
+  private final int maxEntries;
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private record Entry(VersionRangeResult result, long expiresAtMillis) {
+  }
+
+  VersionRangeCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > VersionRangeCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @return the cached result or null if there is none or it has expired
+   */
+  @Nullable
+  synchronized VersionRangeResult get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.expiresAtMillis() <= System.currentTimeMillis()) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.result();
+  }
+
+  /**
+   * Cache a result for as long as the update policy of the session and repositories allows.
+   */
+  void put(String key, VersionRangeResult result, @Nullable RepositorySystemSession session,
+           List<RemoteRepository> repositories) {
+    long ttl = timeToLiveMillis(session, repositories);
+    if (ttl <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long expiresAt = ttl == FOREVER || now > FOREVER - ttl ? FOREVER : now + ttl;
+    synchronized (this) {
+      entries.put(key, new Entry(result, expiresAt));
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  static String key(String groupId, String artifactId, String range, @Nullable RepositorySystemSession session,
+                    List<RemoteRepository> repositories) {
+    StringBuilder key = new StringBuilder(groupId).append(':').append(artifactId).append(':').append(range);
+    LocalRepository localRepository = session == null ? null : session.getLocalRepository();
+    key.append('|').append(localRepository == null ? "" : localRepository.getBasedir());
+    for (RemoteRepository repository : repositories) {
+      key.append('|').append(repository.getId()).append('=').append(repository.getUrl());
+    }
+    return key.toString();
+  }
+
+  static long timeToLiveMillis(@Nullable RepositorySystemSession session, List<RemoteRepository> repositories) {
+    if (session != null && session.isOffline()) {
+      return FOREVER;
+    }
+    String globalPolicy = session == null ? null : session.getUpdatePolicy();
+    if (globalPolicy != null && !globalPolicy.isEmpty()) {
+      return timeToLiveMillis(globalPolicy);
+    }
+    long ttl = FOREVER;
+    for (RemoteRepository repository : repositories) {
+      RepositoryPolicy policy = repository.getPolicy(false);
+      if (policy.isEnabled()) {
+        ttl = Math.min(ttl, timeToLiveMillis(policy.getUpdatePolicy()));
+      }
+    }
+    return ttl;
+  }
+
+  static long timeToLiveMillis(@Nullable String updatePolicy) {
+    if (RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals(updatePolicy)) {
+      return 0;
+    }
+    if (RepositoryPolicy.UPDATE_POLICY_NEVER.equals(updatePolicy)) {
+      return FOREVER;
+    }
+    if (updatePolicy != null && updatePolicy.startsWith(RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":")) {
+      try {
+        return TimeUnit.MINUTES.toMillis(Long.parseLong(
+            updatePolicy.substring(RepositoryPolicy.UPDATE_POLICY_INTERVAL.length() + 1).trim()));
+      } catch (NumberFormatException e) {
+        // fall through to daily
+      }
+    }
+    // daily, and like maven-resolver, a missing or unknown policy is treated as daily
+    return TimeUnit.DAYS.toMillis(1);
+  }
+}
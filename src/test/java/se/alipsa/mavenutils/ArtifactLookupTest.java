@@ -2,12 +2,31 @@ package se.alipsa.mavenutils;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 public class ArtifactLookupTest {
 
@@ -94,4 +113,441 @@ public class ArtifactLookupTest {
       server.stop(0);
     }
   }
+
+  @Test
+  public void testAsyncLookupsShareClientAndAcceptGzip() throws Exception {
+    List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    String xml = "<metadata><versioning><latest>2.1.0-SNAPSHOT</latest><release>2.0.1</release></versioning></metadata>";
+    server.createContext("/repo/se/alipsa/demo/maven-metadata.xml", exchange -> {
+      acceptEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")));
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(xml.getBytes(StandardCharsets.UTF_8));
+      }
+      byte[] payload = compressed.toByteArray();
+      exchange.getResponseHeaders().set("Content-Type", "application/xml");
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, payload.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(payload);
+      }
+    });
+    server.start();
+    try {
+      ArtifactLookup lookup = new ArtifactLookup("http://localhost:" + server.getAddress().getPort() + "/repo",
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(5));
+      CompletableFuture<String> latest = lookup.fetchLatestVersionAsync("se.alipsa", "demo");
+      CompletableFuture<CompareResult> compared = lookup.compareWithLatestAsync("se.alipsa", "demo", "2.0.0");
+      assertEquals("2.0.1", latest.get(10, TimeUnit.SECONDS));
+      assertTrue(compared.get(10, TimeUnit.SECONDS).compareResult() < 0);
+      assertEquals("2.0.1", lookup.fetchLatestVersion("se.alipsa", "demo"));
+      assertEquals(List.of("gzip", "gzip", "gzip"), acceptEncodings);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testHedgedLookupOverMirrors() throws Exception {
+    ExecutorService handlers = Executors.newCachedThreadPool();
+    HttpServer primary = HttpServer.create(new InetSocketAddress(0), 0);
+    primary.setExecutor(handlers);
+    primary.createContext("/repo/se/alipsa/demo/maven-metadata.xml", exchange -> {
+      try {
+        Thread.sleep(5000);
+        respond(exchange, "<metadata><versioning><release>1.0.0</release></versioning></metadata>");
+      } catch (InterruptedException | IOException e) {
+        exchange.close();
+      }
+    });
+    primary.createContext("/repo/se/alipsa/", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    HttpServer mirror = HttpServer.create(new InetSocketAddress(0), 0);
+    mirror.setExecutor(handlers);
+    mirror.createContext("/repo/se/alipsa/demo/maven-metadata.xml", exchange ->
+        respond(exchange, "<metadata><versioning><release>2.0.0</release></versioning></metadata>"));
+    mirror.createContext("/repo/se/alipsa/other/maven-metadata.xml", exchange ->
+        respond(exchange, "<metadata><versioning><release>3.0.0</release></versioning></metadata>"));
+    mirror.createContext("/repo/se/alipsa/missing/", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    primary.start();
+    mirror.start();
+    try {
+      String primaryUrl = "http://localhost:" + primary.getAddress().getPort() + "/repo/";
+      String mirrorUrl = "http://localhost:" + mirror.getAddress().getPort() + "/repo/";
+      ArtifactLookup lookup = new ArtifactLookup(List.of(primaryUrl, mirrorUrl),
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(10), null)
+          .withHedging(0.95, Duration.ofMillis(100));
+
+      long start = System.nanoTime();
+      assertEquals("2.0.0", lookup.fetchLatestVersion("se.alipsa", "demo"), "the hedged request to the mirror wins");
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 4000, "the slow primary was not awaited");
+      assertEquals("3.0.0", lookup.fetchLatestVersionAsync("se.alipsa", "other").get(10, TimeUnit.SECONDS),
+          "a not found in the primary falls through to the mirror");
+      assertThrows(NotFoundException.class, () -> lookup.fetchLatestVersion("se.alipsa", "missing"));
+
+      assertEquals(3, lookup.getLatencyHistogram(primaryUrl).getCount(), "the request that lost the race counts too");
+      assertEquals(3, lookup.getLatencyHistogram(mirrorUrl).getCount());
+      assertNull(lookup.getLatencyHistogram("http://localhost:1/unknown/"));
+      assertEquals(List.of(primaryUrl, mirrorUrl), lookup.getRepositoryUrls());
+    } finally {
+      primary.stop(0);
+      mirror.stop(0);
+      handlers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRequestLosingTheHedgeRaceIsRecorded() throws Exception {
+    ExecutorService handlers = Executors.newCachedThreadPool();
+    HttpServer primary = HttpServer.create(new InetSocketAddress(0), 0);
+    primary.setExecutor(handlers);
+    primary.createContext("/repo/", exchange -> {
+      try {
+        Thread.sleep(5000);
+        respond(exchange, "<metadata><versioning><release>1.0.0</release></versioning></metadata>");
+      } catch (InterruptedException | IOException e) {
+        exchange.close();
+      }
+    });
+    HttpServer mirror = HttpServer.create(new InetSocketAddress(0), 0);
+    mirror.setExecutor(handlers);
+    mirror.createContext("/repo/", exchange ->
+        respond(exchange, "<metadata><versioning><release>2.0.0</release></versioning></metadata>"));
+    primary.start();
+    mirror.start();
+    try {
+      String primaryUrl = "http://localhost:" + primary.getAddress().getPort() + "/repo/";
+      String mirrorUrl = "http://localhost:" + mirror.getAddress().getPort() + "/repo/";
+      ArtifactLookup lookup = new ArtifactLookup(List.of(primaryUrl, mirrorUrl),
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(10), null)
+          .withHedging(0.95, Duration.ofMillis(200));
+      LatencyHistogram primaryLatencies = lookup.getLatencyHistogram(primaryUrl);
+
+      assertEquals("2.0.0", lookup.fetchLatestVersion("se.alipsa", "demo"));
+      // the primary's request is cancelled right after the mirror has answered
+      long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (primaryLatencies.getCount() == 0 && System.nanoTime() < waitUntil) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, primaryLatencies.getCount(), "the cancelled request to the primary should be recorded");
+      assertTrue(primaryLatencies.getPercentile(1).toMillis() >= 200,
+          "the primary took at least the hedge delay but was recorded as " + primaryLatencies);
+      assertEquals(1, lookup.getLatencyHistogram(mirrorUrl).getCount());
+    } finally {
+      primary.stop(0);
+      mirror.stop(0);
+      handlers.shutdownNow();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, String xml) throws IOException {
+    byte[] payload = xml.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    exchange.sendResponseHeaders(200, payload.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(payload);
+    }
+  }
+
+  @Test
+  public void testAsyncLookupFailures() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/repo/", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.start();
+    try {
+      ArtifactLookup lookup = new ArtifactLookup("http://localhost:" + server.getAddress().getPort() + "/repo/");
+      ExecutionException notFound = assertThrows(ExecutionException.class,
+          () -> lookup.fetchLatestVersionAsync("se.alipsa", "missing").get(10, TimeUnit.SECONDS));
+      assertInstanceOf(NotFoundException.class, notFound.getCause());
+    } finally {
+      server.stop(0);
+    }
+    ArtifactLookup badHost = new ArtifactLookup("http://nonexistent.invalid.host.example");
+    ExecutionException network = assertThrows(ExecutionException.class,
+        () -> badHost.compareWithLatestAsync("org.slf4j", "slf4j-api", "1.0.0").get(30, TimeUnit.SECONDS));
+    assertInstanceOf(NetworkException.class, network.getCause());
+  }
+
+  @Test
+  public void testBulkLookupBoundsConcurrencyAndKeepsPerEntryErrors() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    ExecutorService executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.createContext("/repo/", exchange -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(50);
+        if (exchange.getRequestURI().getPath().contains("/missing/")) {
+          exchange.sendResponseHeaders(404, -1);
+          return;
+        }
+        byte[] payload = "<metadata><versioning><release>1.2.3</release></versioning></metadata>"
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(payload);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        inFlight.decrementAndGet();
+        exchange.close();
+      }
+    });
+    server.start();
+    try {
+      ArtifactLookup lookup = new ArtifactLookup("http://localhost:" + server.getAddress().getPort() + "/repo/");
+      List<String> coordinates = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        coordinates.add("se.alipsa:artifact" + i + ":1.0.0");
+      }
+      coordinates.add("se.alipsa:missing:1.0.0");
+      coordinates.add("malformed");
+      coordinates.add("se.alipsa:artifact0:1.0.0");
+
+      long start = System.nanoTime();
+      Map<String, LookupResult<CompareResult>> results = lookup.compareWithLatest(coordinates, 3, 100);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      assertEquals(14, results.size(), "duplicates should be looked up once");
+      assertEquals(coordinates.get(0), results.keySet().iterator().next(), "results keep the given order");
+      assertTrue(maxInFlight.get() <= 3, "at most 3 requests should be in flight but was " + maxInFlight.get());
+      assertTrue(elapsedMillis >= 120, "13 requests at 100 per second should take at least 120 ms");
+      LookupResult<CompareResult> ok = results.get("se.alipsa:artifact5:1.0.0");
+      assertTrue(ok.isSuccess());
+      assertEquals("1.2.3", ok.value().latestVersion());
+      assertTrue(ok.value().compareResult() < 0);
+      assertInstanceOf(NotFoundException.class, results.get("se.alipsa:missing:1.0.0").error());
+      assertInstanceOf(IllegalArgumentException.class, results.get("malformed").error());
+
+      Map<String, LookupResult<String>> versions = lookup.fetchLatestVersions(List.of("se.alipsa:artifact1",
+          "se.alipsa:missing"));
+      assertEquals("1.2.3", versions.get("se.alipsa:artifact1").value());
+      assertFalse(versions.get("se.alipsa:missing").isSuccess());
+    } finally {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMetadataCacheRevalidatesWithEtag() throws Exception {
+    AtomicInteger fullResponses = new AtomicInteger();
+    AtomicInteger notModifiedResponses = new AtomicInteger();
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    String xml = "<metadata><groupId>se.alipsa</groupId><artifactId>cached</artifactId><versioning>"
+        + "<latest>1.1.0</latest><release>1.1.0</release>"
+        + "<versions><version>1.0.0</version><version>1.1.0</version></versions>"
+        + "<lastUpdated>20240101120000</lastUpdated></versioning></metadata>";
+    server.createContext("/repo/se/alipsa/cached/maven-metadata.xml", exchange -> {
+      if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModifiedResponses.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      fullResponses.incrementAndGet();
+      byte[] payload = xml.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("ETag", "\"v1\"");
+      exchange.getResponseHeaders().set("Last-Modified", "Mon, 01 Jan 2024 12:00:00 GMT");
+      exchange.sendResponseHeaders(200, payload.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(payload);
+      }
+    });
+    server.start();
+    try {
+      String url = "http://localhost:" + server.getAddress().getPort() + "/repo/";
+      Path cacheDir = Files.createTempDirectory("metadata-cache");
+
+      MetadataCache freshCache = new MetadataCache(10, Duration.ofHours(1), cacheDir);
+      ArtifactLookup lookup = new ArtifactLookup(url, ArtifactLookup.newHttpClient(Duration.ofSeconds(5)),
+          Duration.ofSeconds(5), freshCache);
+      ArtifactMetadata metadata = lookup.fetchMetadata("se.alipsa", "cached");
+      assertEquals(List.of("1.0.0", "1.1.0"), metadata.versions());
+      assertEquals("20240101120000", metadata.lastUpdated());
+      assertEquals("1.1.0", lookup.fetchLatestVersion("se.alipsa", "cached"));
+      assertEquals("1.1.0", lookup.fetchLatestVersionAsync("se.alipsa", "cached").get(10, TimeUnit.SECONDS));
+      VersionIndex index = lookup.fetchVersionIndex("se.alipsa", "cached");
+      assertEquals(List.of("1.1.0"), index.getNewerThan("1.0.0"));
+      assertSame(index, lookup.fetchVersionIndexAsync("se.alipsa", "cached").get(10, TimeUnit.SECONDS),
+          "the index is only rebuilt when the metadata changes");
+      assertEquals(1, fullResponses.get());
+      assertEquals(1, freshCache.getMisses());
+      assertEquals(4, freshCache.getHits());
+
+      // a new cache on the same directory picks up the entry from disk and revalidates it when it is stale
+      MetadataCache staleCache = new MetadataCache(10, Duration.ZERO, cacheDir);
+      ArtifactLookup revalidating = new ArtifactLookup(url, ArtifactLookup.newHttpClient(Duration.ofSeconds(5)),
+          Duration.ofSeconds(5), staleCache);
+      assertEquals("1.1.0", revalidating.fetchLatestVersion("se.alipsa", "cached"));
+      assertEquals(List.of("1.0.0", "1.1.0"),
+          revalidating.fetchMetadataAsync("se.alipsa", "cached").get(10, TimeUnit.SECONDS).versions());
+      assertEquals(1, fullResponses.get());
+      assertEquals(2, notModifiedResponses.get());
+      assertEquals(2, staleCache.getRevalidations());
+      assertEquals(0, staleCache.getMisses());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testStreamingMetadataParser() {
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata>"
+        + "<groupId>se.alipsa</groupId><artifactId>big</artifactId><version>0.0.1</version><versioning>"
+        + "<latest>5000.0.0-SNAPSHOT</latest><release>4999.0.0</release><versions>");
+    for (int i = 1; i < 5000; i++) {
+      xml.append("<version>").append(i).append(".0.0</version>");
+    }
+    xml.append("<version>5000.0.0-SNAPSHOT</version></versions><lastUpdated>20240101120000</lastUpdated>"
+        + "</versioning></metadata>");
+    byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+
+    ArtifactMetadata full = MetadataXmlParser.parse(new ByteArrayInputStream(bytes), "se.alipsa", "big", false);
+    assertEquals("4999.0.0", full.release());
+    assertEquals("5000.0.0-SNAPSHOT", full.latest());
+    assertEquals(5000, full.versions().size(), "the top level version is not part of the version list");
+    assertEquals("1.0.0", full.versions().get(0));
+    assertEquals("20240101120000", full.lastUpdated());
+
+    ArtifactMetadata partial = MetadataXmlParser.parse(new ByteArrayInputStream(bytes), "se.alipsa", "big", true);
+    assertEquals("4999.0.0", partial.release());
+    assertEquals("5000.0.0-SNAPSHOT", partial.latest());
+    assertTrue(partial.versions().isEmpty(), "parsing should stop at the release version");
+
+    byte[] doctype = ("<!DOCTYPE metadata [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+        + "<metadata><versioning><release>&xxe;</release></versioning></metadata>").getBytes(StandardCharsets.UTF_8);
+    assertThrows(NetworkException.class,
+        () -> MetadataXmlParser.parse(new ByteArrayInputStream(doctype), "se.alipsa", "big", true));
+    assertThrows(NetworkException.class, () -> MetadataXmlParser.parse(
+        new ByteArrayInputStream("<metadata><release>".getBytes(StandardCharsets.UTF_8)), "se.alipsa", "big", true));
+  }
+
+  @Test
+  public void testBulkLookupRateLimitsEachHostContacted() throws Exception {
+    File localRepo = Files.createTempDirectory("throttled-local-repo").toFile();
+    List<String> localCoordinates = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Path artifactDir = Files.createDirectories(localRepo.toPath().resolve("se/alipsa/installed" + i));
+      Files.writeString(artifactDir.resolve("maven-metadata-central.xml"),
+          "<metadata><versioning><release>1.0</release></versioning></metadata>");
+      localCoordinates.add("se.alipsa:installed" + i);
+    }
+    List<Long> mirrorRequests = new CopyOnWriteArrayList<>();
+    HttpServer primary = HttpServer.create(new InetSocketAddress(0), 0);
+    primary.createContext("/repo/", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    HttpServer mirror = HttpServer.create(new InetSocketAddress(0), 0);
+    mirror.createContext("/repo/", exchange -> {
+      mirrorRequests.add(System.nanoTime());
+      respond(exchange, "<metadata><versioning><release>2.0</release></versioning></metadata>");
+    });
+    primary.start();
+    mirror.start();
+    try {
+      // different host names, so the primary and the mirror are limited separately
+      String primaryUrl = "http://localhost:" + primary.getAddress().getPort() + "/repo/";
+      String mirrorUrl = "http://127.0.0.1:" + mirror.getAddress().getPort() + "/repo/";
+      ArtifactLookup lookup = new ArtifactLookup(List.of(primaryUrl, mirrorUrl),
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(10), null)
+          .withLocalRepository(localRepo, ArtifactLookup.ResolutionMode.LOCAL_FIRST, Duration.ofHours(1));
+
+      long start = System.nanoTime();
+      Map<String, LookupResult<String>> local = lookup.fetchLatestVersions(localCoordinates, 4, 2);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000,
+          "answers from the local repository send no request and should not be throttled");
+      assertTrue(local.values().stream().allMatch(result -> "1.0".equals(result.value())), local.toString());
+      assertTrue(mirrorRequests.isEmpty());
+
+      Map<String, LookupResult<String>> remote = lookup.fetchLatestVersions(List.of("se.alipsa:remote0",
+          "se.alipsa:remote1", "se.alipsa:remote2", "se.alipsa:remote3"), 4, 5);
+      assertTrue(remote.values().stream().allMatch(result -> "2.0".equals(result.value())), remote.toString());
+      assertEquals(4, mirrorRequests.size());
+      List<Long> sorted = mirrorRequests.stream().sorted().toList();
+      for (int i = 1; i < sorted.size(); i++) {
+        long gapMillis = TimeUnit.NANOSECONDS.toMillis(sorted.get(i) - sorted.get(i - 1));
+        assertTrue(gapMillis >= 150, "requests to the mirror should be 200 ms apart but were " + gapMillis + " ms");
+      }
+    } finally {
+      primary.stop(0);
+      mirror.stop(0);
+    }
+  }
+
+  @Test
+  public void testOfflineAndLocalFirstLookups() throws Exception {
+    File localRepo = Files.createTempDirectory("local-lookup-repo").toFile();
+    Path artifactDir = localRepo.toPath().resolve("se/alipsa/local-demo");
+    Files.createDirectories(artifactDir);
+    Files.writeString(artifactDir.resolve("maven-metadata-central.xml"), "<metadata><versioning><release>1.1</release>"
+        + "<versions><version>1.0</version><version>1.1</version></versions></versioning></metadata>");
+    Files.createDirectories(artifactDir.resolve("1.2"));
+    Files.writeString(artifactDir.resolve("1.2/local-demo-1.2.pom"), "<project/>");
+    Files.createDirectories(artifactDir.resolve("2.0-SNAPSHOT"));
+    Files.writeString(artifactDir.resolve("2.0-SNAPSHOT/local-demo-2.0-SNAPSHOT.pom"), "<project/>");
+    Files.createDirectories(artifactDir.resolve("3.0"));
+
+    ArtifactLookup offline = new ArtifactLookup("http://nonexistent.invalid.host.example")
+        .withLocalRepository(localRepo, ArtifactLookup.ResolutionMode.OFFLINE, Duration.ZERO);
+    assertEquals(ArtifactLookup.ResolutionMode.OFFLINE, offline.getResolutionMode());
+    assertEquals("1.2", offline.fetchLatestVersion("se.alipsa", "local-demo"));
+    ArtifactMetadata metadata = offline.fetchMetadata("se.alipsa", "local-demo");
+    assertEquals(List.of("1.0", "1.1", "1.2", "2.0-SNAPSHOT"), metadata.versions(),
+        "directories without a pom or jar are not versions");
+    assertEquals("2.0-SNAPSHOT", metadata.latest());
+    assertTrue(offline.compareWithLatestAsync("se.alipsa", "local-demo", "1.0").get(1, TimeUnit.SECONDS)
+        .compareResult() < 0);
+    assertThrows(NotFoundException.class, () -> offline.fetchLatestVersion("se.alipsa", "not-installed"));
+    Map<String, LookupResult<String>> bulk = offline.fetchLatestVersions(List.of("se.alipsa:local-demo",
+        "se.alipsa:not-installed"));
+    assertEquals("1.2", bulk.get("se.alipsa:local-demo").value());
+    assertInstanceOf(NotFoundException.class, bulk.get("se.alipsa:not-installed").error());
+
+    // stale local data falls back to local when the remote repository cannot be reached
+    ArtifactLookup staleLocal = new ArtifactLookup("http://nonexistent.invalid.host.example")
+        .withLocalRepository(localRepo, ArtifactLookup.ResolutionMode.LOCAL_FIRST, Duration.ZERO);
+    assertEquals("1.2", staleLocal.fetchLatestVersion("se.alipsa", "local-demo"));
+    assertEquals("1.2", staleLocal.fetchLatestVersionAsync("se.alipsa", "local-demo").get(30, TimeUnit.SECONDS));
+
+    AtomicInteger remoteRequests = new AtomicInteger();
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/repo/", exchange -> {
+      remoteRequests.incrementAndGet();
+      byte[] payload = "<metadata><versioning><release>1.3</release></versioning></metadata>"
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, payload.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(payload);
+      }
+    });
+    server.start();
+    try {
+      String url = "http://localhost:" + server.getAddress().getPort() + "/repo/";
+      ArtifactLookup freshLocal = new ArtifactLookup(url)
+          .withLocalRepository(localRepo, ArtifactLookup.ResolutionMode.LOCAL_FIRST, Duration.ofHours(1));
+      assertEquals("1.2", freshLocal.fetchLatestVersion("se.alipsa", "local-demo"));
+      assertEquals(0, remoteRequests.get(), "fresh local metadata should not go remote");
+      assertEquals("1.3", freshLocal.fetchLatestVersion("se.alipsa", "not-installed"));
+      ArtifactLookup remote = new ArtifactLookup(url)
+          .withLocalRepository(localRepo, ArtifactLookup.ResolutionMode.LOCAL_FIRST, Duration.ZERO);
+      assertEquals("1.3", remote.fetchLatestVersion("se.alipsa", "local-demo"));
+      assertEquals(2, remoteRequests.get());
+    } finally {
+      server.stop(0);
+    }
+  }
 }
@@ -0,0 +1,169 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AsyncInvocationOutputHandlerTest {
+
+  @Test
+  public void concurrentProducersLoseNoLinesWhenBlocking() throws Exception {
+    List<String> written = Collections.synchronizedList(new ArrayList<>());
+    int producers = 4;
+    int linesPerProducer = 20_000;
+    AsyncInvocationOutputHandler handler = new AsyncInvocationOutputHandler(listSink(written), 64,
+        AsyncInvocationOutputHandler.OverflowPolicy.BLOCK);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < linesPerProducer; i++) {
+          handler.consumeLine(producer + ":" + i);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    handler.close();
+
+    assertEquals(producers * linesPerProducer, written.size());
+    assertEquals(producers * linesPerProducer, handler.getWrittenLines());
+    assertEquals(0, handler.getDroppedLines());
+    assertEquals(0, handler.getPendingLines());
+    assertEquals(64, handler.getCapacity());
+    // lines from one producer keep their order
+    int last = -1;
+    for (String line : written) {
+      if (line.startsWith("0:")) {
+        int i = Integer.parseInt(line.substring(2));
+        assertTrue(i > last, "lines of a producer should be written in order");
+        last = i;
+      }
+    }
+  }
+
+  @Test
+  public void slowSinkDropsLinesWhenConfigured() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> written = Collections.synchronizedList(new ArrayList<>());
+    AsyncInvocationOutputHandler handler = new AsyncInvocationOutputHandler(new AsyncInvocationOutputHandler.Sink() {
+      @Override
+      public void write(List<String> lines) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        written.addAll(lines);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 8, AsyncInvocationOutputHandler.OverflowPolicy.DROP);
+    for (int i = 0; i < 100; i++) {
+      handler.consumeLine("line " + i);
+    }
+    release.countDown();
+    handler.close();
+
+    assertTrue(handler.getDroppedLines() > 0, "lines should be dropped when the buffer is full");
+    assertEquals(100, handler.getDroppedLines() + written.size());
+    handler.consumeLine("after close");
+    assertEquals(100 - written.size() + 1, handler.getDroppedLines());
+  }
+
+  @Test
+  public void writesBatchesToFileAndPrintStream() throws Exception {
+    Path file = Files.createTempFile("async-output", ".log");
+    try (AsyncInvocationOutputHandler handler = AsyncInvocationOutputHandler.toFile(file)) {
+      for (int i = 0; i < 1000; i++) {
+        handler.consumeLine("line " + i);
+      }
+    }
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(1000, lines.size());
+    assertEquals("line 999", lines.get(999));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+    AsyncInvocationOutputHandler handler = new AsyncInvocationOutputHandler(
+        AsyncInvocationOutputHandler.printStreamSink(out));
+    handler.consumeLine("first");
+    handler.consumeLine("second");
+    handler.close();
+    assertEquals("first" + System.lineSeparator() + "second" + System.lineSeparator(),
+        bytes.toString(StandardCharsets.UTF_8));
+    assertTrue(handler.getBatches() >= 1);
+  }
+
+  @Test
+  public void nullLinesAreWrittenAsEmptyLines() {
+    List<String> written = Collections.synchronizedList(new ArrayList<>());
+    AsyncInvocationOutputHandler handler = new AsyncInvocationOutputHandler(listSink(written));
+    handler.consumeLine("before");
+    handler.consumeLine(null);
+    handler.consumeLine("after");
+    assertTimeoutPreemptively(Duration.ofSeconds(10), handler::close);
+    assertEquals(List.of("before", "", "after"), written);
+  }
+
+  @Test
+  public void linesRacingCloseAreWrittenOrCountedAsDropped() throws Exception {
+    for (int round = 0; round < 50; round++) {
+      List<String> written = Collections.synchronizedList(new ArrayList<>());
+      AsyncInvocationOutputHandler handler = new AsyncInvocationOutputHandler(listSink(written), 16,
+          AsyncInvocationOutputHandler.OverflowPolicy.BLOCK);
+      AtomicLong attempted = new AtomicLong();
+      CountDownLatch started = new CountDownLatch(4);
+      List<Thread> threads = new ArrayList<>();
+      for (int p = 0; p < 4; p++) {
+        Thread thread = new Thread(() -> {
+          started.countDown();
+          for (int i = 0; i < 5_000; i++) {
+            attempted.incrementAndGet();
+            handler.consumeLine("line " + i);
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      started.await();
+      assertTimeoutPreemptively(Duration.ofSeconds(10), handler::close);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(attempted.get(), written.size() + handler.getDroppedLines(), "round " + round);
+      assertEquals(written.size(), handler.getWrittenLines());
+      assertEquals(0, handler.getPendingLines());
+    }
+  }
+
+  private static AsyncInvocationOutputHandler.Sink listSink(List<String> target) {
+    return new AsyncInvocationOutputHandler.Sink() {
+      @Override
+      public void write(List<String> lines) {
+        target.addAll(lines);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
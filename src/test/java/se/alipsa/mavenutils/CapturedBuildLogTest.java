@@ -0,0 +1,80 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class CapturedBuildLogTest {
+
+  @Test
+  public void randomAccessTailAndGrep() throws IOException {
+    Path dir;
+    try (CapturedBuildLog log = CapturedBuildLog.createTemp()) {
+      dir = log.getDirectory();
+      for (int i = 0; i < 100_000; i++) {
+        log.append(i % 1000 == 0 ? "[ERROR] failure " + i : "[DEBUG] line " + i + " åäö", i % 1000 == 0);
+      }
+      log.append("", false);
+
+      assertEquals(100_001, log.getLineCount());
+      CapturedBuildLog.Line line = log.getLine(12_345);
+      assertEquals("[DEBUG] line 12345 åäö", line.text());
+      assertFalse(line.error());
+      assertEquals(12_345, line.number());
+      assertEquals("", log.getLine(100_000).text());
+      assertThrows(IndexOutOfBoundsException.class, () -> log.getLine(100_001));
+
+      List<CapturedBuildLog.Line> tail = log.tail(2);
+      assertEquals(List.of("[DEBUG] line 99999 åäö", ""), tail.stream().map(CapturedBuildLog.Line::text).toList());
+
+      List<CapturedBuildLog.Line> errors = log.grep(Pattern.compile("^\\[ERROR]"), 1000);
+      assertEquals(100, errors.size());
+      assertTrue(errors.stream().allMatch(CapturedBuildLog.Line::error));
+      assertEquals(3, log.grep(Pattern.compile("ERROR"), 3).size());
+    }
+    assertFalse(Files.exists(dir), "temporary log files should be deleted on close");
+  }
+
+  @Test
+  public void linesSpanningRegionsAreReadBack() throws IOException {
+    Path dir = Files.createTempDirectory("captured-log");
+    String longLine = "x".repeat(5 * 1024 * 1024);
+    try (CapturedBuildLog log = new CapturedBuildLog(dir)) {
+      for (int i = 0; i < 4; i++) {
+        log.append(i + longLine, false);
+      }
+      assertEquals("3" + longLine, log.getLine(3).text());
+      // each line is its number, the long line and a newline
+      assertEquals(4L * (longLine.length() + 2), log.getSizeInBytes());
+    }
+    assertEquals(4L * (longLine.length() + 2), Files.size(dir.resolve("build.log")));
+    List<String> lines = Files.readAllLines(dir.resolve("build.log"));
+    assertEquals(4, lines.size());
+    assertEquals("2" + longLine, lines.get(2));
+  }
+
+  @Test
+  public void runResultExposesCapturedLog() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("captured-run",
+        "for i in $(seq 1 500); do echo \"[INFO] step $i\"; done\n"
+        + "echo \"[WARNING] careful\" >&2\n");
+
+    MavenUtils.MavenRunResult result = MavenUtils.runMavenWithSelection(pomFile, new String[]{"validate"}, null,
+        new MavenUtils.MavenExecutionOptions().withLogCapture(true), line -> { }, line -> { });
+    try (CapturedBuildLog log = result.getCapturedLog()) {
+      assertNotNull(log);
+      assertEquals(501, log.getLineCount());
+      assertEquals("[INFO] step 500", log.filter(text -> text.startsWith("[INFO]"), 1000).get(499).text());
+      List<CapturedBuildLog.Line> warnings = log.grep(Pattern.compile("WARNING"), 10);
+      assertEquals(1, warnings.size());
+      assertTrue(warnings.get(0).error());
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginManagement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DependencyUpdateReportTest {
+
+  private static final Map<String, String> RELEASES = Map.of(
+      "/repo/org/demo/major/maven-metadata.xml", "3.0.0",
+      "/repo/org/demo/minor/maven-metadata.xml", "1.5.0",
+      "/repo/org/demo/patch/maven-metadata.xml", "1.2.4",
+      "/repo/org/demo/current/maven-metadata.xml", "2.0",
+      "/repo/org/demo/parent/maven-metadata.xml", "1.1",
+      "/repo/org/apache/maven/plugins/maven-compiler-plugin/maven-metadata.xml", "3.13.0");
+
+  @Test
+  public void testUpdatesAreGroupedByDrift() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server = startRepository(requests);
+    try {
+      Model model = new Model();
+      model.setGroupId("org.demo");
+      model.setArtifactId("app");
+      model.setVersion("1.0");
+      model.addDependency(dependency("major", "2.9.1"));
+      model.addDependency(dependency("minor", "1.2.3"));
+      model.addDependency(dependency("patch", "1.2.3"));
+      model.addDependency(dependency("missing", "1.0"));
+      model.addDependency(dependency("unresolved", "${demo.version}"));
+      DependencyManagement dependencyManagement = new DependencyManagement();
+      dependencyManagement.addDependency(dependency("current", "2.0.0"));
+      dependencyManagement.addDependency(dependency("patch", "1.2.3"));
+      model.setDependencyManagement(dependencyManagement);
+      Build build = new Build();
+      Plugin compiler = new Plugin();
+      compiler.setArtifactId("maven-compiler-plugin");
+      compiler.setVersion("3.11.0");
+      PluginManagement pluginManagement = new PluginManagement();
+      pluginManagement.addPlugin(compiler);
+      build.setPluginManagement(pluginManagement);
+      Plugin unversioned = new Plugin();
+      unversioned.setArtifactId("maven-surefire-plugin");
+      build.addPlugin(unversioned);
+      model.setBuild(build);
+
+      ArtifactLookup lookup = new ArtifactLookup("http://localhost:" + server.getAddress().getPort() + "/repo/",
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(5));
+      DependencyUpdateReport report = DependencyUpdateReport.create(model, lookup, 4, 1000);
+
+      assertEquals("org.demo:app:1.0", report.getProject());
+      assertEquals(6, requests.get(), "each distinct coordinate is looked up once");
+      assertEquals(6, report.getEntries().size());
+      Map<DependencyUpdateReport.Drift, List<DependencyUpdateReport.Entry>> byDrift = report.getUpdatesByDrift();
+      assertEquals(List.of("org.demo:major:2.9.1"), coordinates(byDrift.get(DependencyUpdateReport.Drift.MAJOR)));
+      assertEquals(List.of("org.demo:minor:1.2.3", "org.apache.maven.plugins:maven-compiler-plugin:3.11.0"),
+          coordinates(byDrift.get(DependencyUpdateReport.Drift.MINOR)));
+      assertEquals(List.of(DependencyUpdateReport.Section.DEPENDENCY, DependencyUpdateReport.Section.MANAGED_DEPENDENCY),
+          report.getUpdates(DependencyUpdateReport.Drift.PATCH).stream().map(DependencyUpdateReport.Entry::section)
+              .toList());
+      assertEquals(List.of("org.demo:current:2.0.0"), coordinates(report.getUpToDate()));
+      assertEquals(5, report.getUpdates().size());
+      assertEquals(1, report.getFailures().size());
+      assertEquals("org.demo:missing:1.0", report.getFailures().get(0).coordinates());
+      assertInstanceOf(NotFoundException.class, report.getFailures().get(0).error());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testCheckForUpdatesReportsDeclaredCoordinatesOnly(@TempDir Path dir) throws Exception {
+    Files.writeString(dir.resolve("pom.xml"), """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          <groupId>org.demo</groupId>
+          <artifactId>parent</artifactId>
+          <version>1.0</version>
+          <packaging>pom</packaging>
+          <build><pluginManagement><plugins><plugin>
+            <artifactId>maven-compiler-plugin</artifactId><version>3.11.0</version>
+          </plugin></plugins></pluginManagement></build>
+        </project>
+        """);
+    Path child = Files.createDirectories(dir.resolve("child")).resolve("pom.xml");
+    Files.writeString(child, """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          <parent><groupId>org.demo</groupId><artifactId>parent</artifactId><version>1.0</version></parent>
+          <artifactId>child</artifactId>
+          <dependencies><dependency>
+            <groupId>org.demo</groupId><artifactId>minor</artifactId><version>1.2.3</version>
+          </dependency></dependencies>
+        </project>
+        """);
+    HttpServer server = startRepository(new AtomicInteger());
+    try {
+      ArtifactLookup lookup = new ArtifactLookup("http://localhost:" + server.getAddress().getPort() + "/repo/",
+          ArtifactLookup.newHttpClient(Duration.ofSeconds(5)), Duration.ofSeconds(5));
+      DependencyUpdateReport report = new MavenUtils(List.of()).checkForUpdates(child.toFile(), lookup);
+
+      assertEquals("org.demo:child:1.0", report.getProject());
+      // neither the super pom's pluginManagement nor the parent added as a pom dependency is reported
+      assertEquals(List.of("org.demo:parent:1.0", "org.demo:minor:1.2.3",
+              "org.apache.maven.plugins:maven-compiler-plugin:3.11.0"),
+          coordinates(report.getEntries()));
+      assertEquals(List.of(DependencyUpdateReport.Section.PARENT, DependencyUpdateReport.Section.DEPENDENCY,
+              DependencyUpdateReport.Section.MANAGED_PLUGIN),
+          report.getEntries().stream().map(DependencyUpdateReport.Entry::section).toList());
+      assertEquals(List.of(), report.getFailures());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testDrift() {
+    assertEquals(DependencyUpdateReport.Drift.MAJOR, DependencyUpdateReport.drift("1.9", new CompareResult("2", -1)));
+    assertEquals(DependencyUpdateReport.Drift.MINOR, DependencyUpdateReport.drift("v1.9", new CompareResult("1.10", -1)));
+    assertEquals(DependencyUpdateReport.Drift.PATCH,
+        DependencyUpdateReport.drift("1.10.0-beta1", new CompareResult("1.10.0", -1)));
+    assertEquals(DependencyUpdateReport.Drift.PATCH, DependencyUpdateReport.drift("1.10", new CompareResult("1.10.1", -1)));
+    assertNull(DependencyUpdateReport.drift("1.10", new CompareResult("1.10", 0)));
+    assertNull(DependencyUpdateReport.drift("2.0-SNAPSHOT", new CompareResult("1.9", 1)));
+  }
+
+  private static HttpServer startRepository(AtomicInteger requests) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/repo/", exchange -> {
+      requests.incrementAndGet();
+      String release = RELEASES.get(exchange.getRequestURI().getPath());
+      if (release == null) {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+        return;
+      }
+      byte[] payload = ("<metadata><versioning><release>" + release + "</release></versioning></metadata>")
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, payload.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(payload);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  private static Dependency dependency(String artifactId, String version) {
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("org.demo");
+    dependency.setArtifactId(artifactId);
+    dependency.setVersion(version);
+    return dependency;
+  }
+
+  private static List<String> coordinates(List<DependencyUpdateReport.Entry> entries) {
+    return entries.stream().map(DependencyUpdateReport.Entry::coordinates).toList();
+  }
+}
@@ -0,0 +1,77 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MavenBuildSchedulerTest {
+
+  @Test
+  public void cpuLimitBoundsConcurrentBuilds() throws Exception {
+    List<MavenBuildScheduler.Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      jobs.add(new MavenBuildScheduler.Job(createSleepingProject("sched-cpu", 1), "validate"));
+    }
+    try (MavenBuildScheduler scheduler = new MavenBuildScheduler(1, 4096)) {
+      List<CompletableFuture<MavenUtils.MavenRunResult>> futures = scheduler.submitAll(jobs);
+      assertEquals(1, scheduler.getRunningJobs());
+      assertEquals(2, scheduler.getQueueDepth());
+      assertEquals(1.0, scheduler.getCpuUtilization());
+
+      for (CompletableFuture<MavenUtils.MavenRunResult> future : futures) {
+        MavenUtils.MavenRunResult result = future.get(60, TimeUnit.SECONDS);
+        assertEquals(0, result.getInvocationResult().getExitCode());
+        assertEquals(MavenUtils.MavenDistributionMode.WRAPPER, result.getDistributionSelection().getMode());
+      }
+      assertEquals(3, scheduler.getCompletedJobs());
+      assertEquals(0, scheduler.getQueueDepth());
+      assertEquals(0.0, scheduler.getMemoryUtilization());
+      jobs.forEach(job -> assertTrue(scheduler.getEstimatedDurationMillis(job) >= 0, "duration should be recorded"));
+    }
+  }
+
+  @Test
+  public void memoryLimitBoundsConcurrentBuilds() throws Exception {
+    MavenBuildScheduler.Job first = new MavenBuildScheduler.Job(createSleepingProject("sched-mem", 1),
+        new String[]{"validate"}, null, null, null, null, 1, 600);
+    MavenBuildScheduler.Job second = new MavenBuildScheduler.Job(createSleepingProject("sched-mem", 1),
+        new String[]{"validate"}, null, null, null, null, 1, 600);
+    try (MavenBuildScheduler scheduler = new MavenBuildScheduler(4, 1000)) {
+      List<CompletableFuture<MavenUtils.MavenRunResult>> futures = scheduler.submitAll(List.of(first, second));
+      assertEquals(1, scheduler.getRunningJobs());
+      assertEquals(0.6, scheduler.getMemoryUtilization(), 0.0001);
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void expensiveJobsStartFirst() throws Exception {
+    List<String> started = Collections.synchronizedList(new ArrayList<>());
+    MavenBuildScheduler.Job blocker = new MavenBuildScheduler.Job(createSleepingProject("sched-block", 1), "validate");
+    MavenBuildScheduler.Job cheap = new MavenBuildScheduler.Job(createSleepingProject("sched-cheap", 0),
+        new String[]{"validate"}, null, null, line -> started.add("cheap"), null, 1, 0);
+    MavenBuildScheduler.Job expensive = new MavenBuildScheduler.Job(createSleepingProject("sched-expensive", 0),
+        new String[]{"validate"}, null, null, line -> started.add("expensive"), null, 1, 0);
+    try (MavenBuildScheduler scheduler = new MavenBuildScheduler(1, 4096)) {
+      scheduler.recordDuration(cheap, 10);
+      scheduler.recordDuration(expensive, 10_000);
+      CompletableFuture<MavenUtils.MavenRunResult> blocked = scheduler.submit(blocker);
+      List<CompletableFuture<MavenUtils.MavenRunResult>> futures = scheduler.submitAll(List.of(cheap, expensive));
+      blocked.get(60, TimeUnit.SECONDS);
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+    }
+    assertEquals("expensive", started.get(0));
+  }
+
+  private static File createSleepingProject(String prefix, int sleepSeconds) throws IOException {
+    return TestProjects.createWrapperProject(prefix, "echo \"building $*\"\nsleep " + sleepSeconds + "\n");
+  }
+}
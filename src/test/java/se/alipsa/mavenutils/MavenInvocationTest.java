@@ -0,0 +1,124 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.shared.invoker.InvocationResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MavenInvocationTest {
+
+  @Test
+  public void outputIsDeliveredOffThePumpThread() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-output",
+        "for i in $(seq 1 100); do echo \"line $i\"; done\necho oops >&2\n");
+    List<String> outLines = Collections.synchronizedList(new ArrayList<>());
+    List<String> errLines = Collections.synchronizedList(new ArrayList<>());
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+    MavenInvocation invocation = MavenUtils.runMavenAsync(pomFile, new String[]{"validate"}, null, null,
+        line -> {
+          threads.add(Thread.currentThread().getName());
+          outLines.add(line);
+        },
+        errLines::add,
+        Duration.ofMinutes(1));
+    MavenUtils.MavenRunResult result = invocation.getResult().get(60, TimeUnit.SECONDS);
+
+    assertEquals(0, result.getInvocationResult().getExitCode());
+    assertEquals(MavenUtils.MavenDistributionMode.WRAPPER, result.getDistributionSelection().getMode());
+    assertEquals(100, outLines.size());
+    assertEquals("line 1", outLines.get(0));
+    assertEquals(List.of("oops"), errLines);
+    assertTrue(threads.stream().allMatch(name -> name.startsWith("maven-invocation-delivery-")));
+    assertFalse(invocation.isTimedOut());
+    assertEquals(0, invocation.getDroppedLines());
+  }
+
+  @Test
+  public void deadlineCancelsTheProcessTree() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-deadline", "echo started\nsleep 60\n");
+    long start = System.nanoTime();
+    MavenInvocation invocation = MavenUtils.runMavenAsync(pomFile, new String[]{"validate"}, null, null,
+        line -> { }, line -> { }, Duration.ofMillis(500));
+    InvocationResult result = invocation.getResult().get(30, TimeUnit.SECONDS).getInvocationResult();
+
+    assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30, "deadline should stop the build");
+    assertTrue(invocation.isTimedOut());
+    assertTrue(invocation.isCancelled());
+    assertNotEquals(0, result.getExitCode());
+    assertNotNull(result.getExecutionException());
+  }
+
+  @Test
+  public void forcedCancelKillsTheBuild() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-cancel", "trap '' TERM\necho started\nsleep 60\n");
+    CountDownLatch started = new CountDownLatch(1);
+    MavenInvocation invocation = MavenUtils.runMavenAsync(pomFile, new String[]{"validate"}, null, null,
+        line -> started.countDown(), line -> { }, null);
+    // cancelling before the wrapper has started sleep would leave sleep running with the output pipes open
+    assertTrue(started.await(30, TimeUnit.SECONDS), "the wrapper should start");
+    assertTrue(invocation.isAlive());
+    invocation.cancelForcibly();
+    InvocationResult result = invocation.getResult().get(30, TimeUnit.SECONDS).getInvocationResult();
+
+    assertFalse(invocation.isAlive());
+    assertTrue(invocation.isCancelled());
+    assertFalse(invocation.isTimedOut());
+    assertNotEquals(0, result.getExitCode());
+  }
+
+  @Test
+  public void slowConsumerDropsLinesInsteadOfStallingMaven() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-slow", "for i in $(seq 1 2000); do echo \"line $i\"; done\n");
+    AtomicInteger delivered = new AtomicInteger();
+    MavenInvocation invocation = MavenUtils.runMavenAsync(pomFile, new String[]{"validate"}, null, null,
+        line -> {
+          try {
+            Thread.sleep(1);
+            delivered.incrementAndGet();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        },
+        line -> { }, Duration.ofMinutes(1), 10);
+    MavenUtils.MavenRunResult result = invocation.getResult().get(60, TimeUnit.SECONDS);
+
+    assertEquals(0, result.getInvocationResult().getExitCode());
+    assertTrue(invocation.getDroppedLines() > 0, "a full buffer should drop lines");
+    assertEquals(2000, delivered.get() + invocation.getDroppedLines(), "all kept lines are delivered before the result");
+  }
+
+  @Test
+  public void unsupportedOptionsAreRejected() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-options", "echo never\n");
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions(pomFile.getParentFile(), null, true);
+    for (MavenUtils.MavenExecutionOptions unsupported : List.of(options.withLogCapture(true),
+        options.withBuildEvents(true),
+        options.withRunCache(new MavenRunCache(Files.createTempDirectory("async-run-cache").toFile(), 10)))) {
+      assertThrows(IllegalArgumentException.class, () -> MavenUtils.runMavenAsync(pomFile, new String[]{"validate"},
+          null, unsupported, line -> { }, line -> { }, null));
+    }
+  }
+
+  @Test
+  public void daemonLeaseIsReleasedWhenStartFails() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("async-lease", "echo never\n");
+    MavenDaemonPool pool = new MavenDaemonPool(TestProjects.createFakeDaemonHome(), 1, Duration.ofMinutes(5));
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions(pomFile.getParentFile(), null, true)
+        .withDaemonPool(pool);
+    // a buffer without capacity is rejected after the daemon worker has been leased
+    assertThrows(IllegalArgumentException.class, () -> MavenUtils.runMavenAsync(pomFile, new String[]{"validate"},
+        null, options, line -> { }, line -> { }, null, 0));
+    assertEquals(1, pool.getAvailableWorkers(null), "the lease should be released");
+  }
+}
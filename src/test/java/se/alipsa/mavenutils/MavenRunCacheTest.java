@@ -0,0 +1,150 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MavenRunCacheTest {
+
+  @Test
+  public void unchangedProjectIsReplayedFromCache() throws Exception {
+    File counter = Files.createTempFile("run-cache-counter", ".txt").toFile();
+    File pomFile = createWrapperProject("run-cache", counter, 0);
+    MavenRunCache cache = new MavenRunCache(Files.createTempDirectory("run-cache-store").toFile(), 10);
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions().withRunCache(cache);
+
+    List<String> firstOutput = new ArrayList<>();
+    MavenUtils.MavenRunResult first = MavenUtils.runMavenWithSelection(pomFile, new String[]{"compile"}, null,
+        options, firstOutput::add, line -> { });
+    assertFalse(first.isFromCache());
+    assertEquals(1, countRuns(counter));
+
+    List<String> replayedOutput = new ArrayList<>();
+    MavenUtils.MavenRunResult second = MavenUtils.runMavenWithSelection(pomFile, new String[]{"compile"}, null,
+        options, replayedOutput::add, line -> { });
+    assertTrue(second.isFromCache());
+    assertEquals(0, second.getInvocationResult().getExitCode());
+    assertEquals(MavenUtils.MavenDistributionMode.WRAPPER, second.getDistributionSelection().getMode());
+    assertEquals(1, countRuns(counter), "maven should not run again");
+    assertEquals(firstOutput, replayedOutput);
+    assertEquals(1, cache.getHits());
+
+    Files.writeString(pomFile.toPath().resolveSibling("src/main/java/Foo.java"), "class Foo { int x; }");
+    MavenUtils.MavenRunResult third = MavenUtils.runMavenWithSelection(pomFile, new String[]{"compile"}, null,
+        options, line -> { }, line -> { });
+    assertFalse(third.isFromCache());
+    assertEquals(2, countRuns(counter), "a changed source file should trigger a new run");
+
+    MavenUtils.MavenRunResult otherArgs = MavenUtils.runMavenWithSelection(pomFile, new String[]{"test"}, null,
+        options, line -> { }, line -> { });
+    assertFalse(otherArgs.isFromCache());
+    assertEquals(3, countRuns(counter), "different arguments should trigger a new run");
+  }
+
+  @Test
+  public void failedRunsAreNotCached() throws Exception {
+    File counter = Files.createTempFile("run-cache-counter", ".txt").toFile();
+    File pomFile = createWrapperProject("run-cache-fail", counter, 1);
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions()
+        .withRunCache(new MavenRunCache(Files.createTempDirectory("run-cache-store").toFile(), 10));
+
+    for (int i = 0; i < 2; i++) {
+      MavenUtils.MavenRunResult result = MavenUtils.runMavenWithSelection(pomFile, new String[]{"compile"}, null,
+          options, line -> { }, line -> { });
+      assertFalse(result.isFromCache());
+      assertEquals(1, result.getInvocationResult().getExitCode());
+    }
+    assertEquals(2, countRuns(counter));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+    File cacheDir = Files.createTempDirectory("run-cache-store").toFile();
+    MavenRunCache cache = new MavenRunCache(cacheDir, 2);
+    for (String fingerprint : List.of("a", "b", "c")) {
+      MavenRunCache.Recording recording = cache.record();
+      recording.tee(line -> { }, false).consumeLine("output of " + fingerprint);
+      cache.store(fingerprint, 0, recording);
+      // make sure the modification times differ
+      new File(cacheDir, fingerprint + "/result.properties").setLastModified(System.currentTimeMillis()
+          - 10_000 + fingerprint.charAt(0));
+    }
+    assertFalse(new File(cacheDir, "a").exists(), "the oldest entry should be evicted");
+    List<String> replayed = new ArrayList<>();
+    assertNotNull(cache.replay("c", replayed::add, line -> { }));
+    assertEquals(List.of("output of c"), replayed);
+    assertNull(cache.replay("a", line -> { }, line -> { }));
+  }
+
+  @Test
+  public void daemonFingerprintFollowsTheBundledMavenVersion() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("run-cache-daemon", "");
+    File mvndHome = TestProjects.createFakeDaemonHome();
+    Path mvnLib = Files.createDirectories(mvndHome.toPath().resolve("mvn/lib"));
+    Path coreJar = Files.createFile(mvnLib.resolve("maven-core-3.9.5.jar"));
+    MavenUtils.MavenDistributionSelection selection = MavenUtils.selectMavenDistribution(pomFile,
+        new MavenUtils.MavenExecutionOptions().withDaemonPool(new MavenDaemonPool(mvndHome, 1, Duration.ofMinutes(5))));
+    assertEquals(MavenUtils.MavenDistributionMode.DAEMON, selection.getMode());
+    MavenRunCache cache = new MavenRunCache(Files.createTempDirectory("run-cache-store").toFile(), 10);
+
+    String before = cache.fingerprint(pomFile, new String[]{"compile"}, null, selection);
+    Files.move(coreJar, mvnLib.resolve("maven-core-3.9.6.jar"));
+    assertNotEquals(before, cache.fingerprint(pomFile, new String[]{"compile"}, null, selection),
+        "upgrading the maven bundled with mvnd should change the fingerprint");
+  }
+
+  @Test
+  public void wrapperFingerprintFollowsTheInstalledDistribution() throws Exception {
+    File pomFile = TestProjects.createWrapperProject("run-cache-wrapper", "");
+    Path wrapperProperties = pomFile.toPath().resolveSibling(".mvn/wrapper/maven-wrapper.properties");
+    Files.writeString(wrapperProperties, "distributionUrl=https://repo.maven.apache.org/maven2/org/apache/maven/"
+        + "apache-maven/3.9.5/apache-maven-3.9.5-bin.zip\n");
+    MavenUtils.MavenDistributionSelection selection = MavenUtils.selectMavenDistribution(pomFile, null);
+    assertEquals(MavenUtils.MavenDistributionMode.WRAPPER, selection.getMode());
+    MavenRunCache cache = new MavenRunCache(Files.createTempDirectory("run-cache-store").toFile(), 10);
+
+    Path userHome = Files.createTempDirectory("run-cache-user-home");
+    Path lib = Files.createDirectories(userHome.resolve(
+        ".m2/wrapper/dists/apache-maven-3.9.5-bin/abc123/apache-maven-3.9.5/lib"));
+    Path coreJar = Files.createFile(lib.resolve("maven-core-3.9.5.jar"));
+    String originalUserHome = System.getProperty("user.home");
+    System.setProperty("user.home", userHome.toString());
+    try {
+      String installed = cache.fingerprint(pomFile, new String[]{"compile"}, null, selection);
+      Files.move(coreJar, lib.resolve("maven-core-3.9.6.jar"));
+      assertNotEquals(installed, cache.fingerprint(pomFile, new String[]{"compile"}, null, selection),
+          "a different installed distribution should change the fingerprint");
+    } finally {
+      System.setProperty("user.home", originalUserHome);
+    }
+    String upgraded = cache.fingerprint(pomFile, new String[]{"compile"}, null, selection);
+    Files.writeString(wrapperProperties, "distributionUrl=https://repo.maven.apache.org/maven2/org/apache/maven/"
+        + "apache-maven/3.9.6/apache-maven-3.9.6-bin.zip\n");
+    assertNotEquals(upgraded, cache.fingerprint(pomFile, new String[]{"compile"}, null, selection),
+        "changing the wrapper distribution should change the fingerprint");
+  }
+
+  private static int countRuns(File counter) throws IOException {
+    return Files.readAllLines(counter.toPath()).size();
+  }
+
+  private static File createWrapperProject(String prefix, File counter, int exitCode) throws IOException {
+    File projectDir = Files.createTempDirectory(prefix).toFile();
+    File pomFile = TestProjects.createMinimalPom(projectDir);
+    Path sourceDir = Files.createDirectories(projectDir.toPath().resolve("src/main/java"));
+    Files.writeString(sourceDir.resolve("Foo.java"), "class Foo { }");
+    TestProjects.createWrapper(projectDir, "echo run >> \"" + counter.getAbsolutePath() + "\"\n"
+        + "echo \"building $*\"\n"
+        + "mkdir -p target && echo built > target/out.txt\n"
+        + "exit " + exitCode + "\n");
+    return pomFile;
+  }
+}
@@ -29,6 +29,9 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
 
@@ -70,6 +73,59 @@ public class MavenUtilsTest {
     assertEquals("compile", dependency.getScope(), "Scope is wrong");
   }
 
+  @Test
+  public void dependencyParseModeMatchesFullModel() throws Exception {
+    MavenUtils mavenUtils = new MavenUtils();
+    for (String pom : List.of("simple.xml", "tablesaw_excel.xml", "transientPom.xml", "candles.xml")) {
+      File pomFile = Paths.get(getClass().getResource("/pom/" + pom).toURI()).toFile();
+      long start = System.nanoTime();
+      Model full = mavenUtils.parsePom(pomFile);
+      long fullNanos = System.nanoTime() - start;
+      start = System.nanoTime();
+      Model light = mavenUtils.parsePom(pomFile, MavenUtils.PomParseMode.DEPENDENCIES);
+      long lightNanos = System.nanoTime() - start;
+      LOG.info("{}: full parse {} us, dependency parse {} us", pom, fullNanos / 1000, lightNanos / 1000);
+
+      assertEquals(full.getId(), light.getId(), pom);
+      assertEquals(dependencies(full.getDependencies()), dependencies(light.getDependencies()), pom);
+      assertEquals(dependencies(full.getDependencyManagement() == null ? List.of() : full.getDependencyManagement().getDependencies()),
+          dependencies(light.getDependencyManagement() == null ? List.of() : light.getDependencyManagement().getDependencies()), pom);
+      assertEquals(full.getRepositories().stream().map(r -> r.getId() + "=" + r.getUrl()).toList(),
+          light.getRepositories().stream().map(r -> r.getId() + "=" + r.getUrl()).toList(), pom);
+    }
+  }
+
+  @Test
+  public void dependencyParseModeAppliesDependencyManagement() throws Exception {
+    File pomFile = Files.createTempFile("managed", ".xml").toFile();
+    pomFile.deleteOnExit();
+    Files.writeString(pomFile.toPath(), """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          <groupId>se.alipsa.test</groupId>
+          <artifactId>managed</artifactId>
+          <version>1.0</version>
+          <dependencyManagement><dependencies><dependency>
+            <groupId>org.slf4j</groupId><artifactId>slf4j-api</artifactId><version>2.0.17</version><scope>test</scope>
+          </dependency></dependencies></dependencyManagement>
+          <dependencies><dependency>
+            <groupId>org.slf4j</groupId><artifactId>slf4j-api</artifactId>
+          </dependency></dependencies>
+        </project>
+        """);
+    MavenUtils mavenUtils = new MavenUtils(List.of());
+    Model full = mavenUtils.parsePom(pomFile);
+    Model light = mavenUtils.parsePom(pomFile, MavenUtils.PomParseMode.DEPENDENCIES);
+    assertEquals(List.of("org.slf4j:slf4j-api:jar:2.0.17:test:0"), dependencies(full.getDependencies()));
+    assertEquals(dependencies(full.getDependencies()), dependencies(light.getDependencies()));
+  }
+
+  private static List<String> dependencies(List<Dependency> dependencies) {
+    return dependencies.stream()
+        .map(d -> d.getManagementKey() + ":" + d.getVersion() + ":" + d.getScope() + ":" + d.getExclusions().size())
+        .toList();
+  }
+
   @Test
   public void resolveSimplePom() throws SettingsBuildingException, ModelBuildingException, DependenciesResolveException, URISyntaxException {
     File pomFile = Paths.get(getClass().getResource("/pom/simple.xml").toURI()).toFile();
@@ -123,6 +179,44 @@ public class MavenUtilsTest {
     assertTrue(outLines.size() > 0 || errLines.size() > 0, "should have captured some output");
   }
 
+  @Test
+  public void runMavenWithBuildEventsReportsMojoTimings() throws Exception {
+    File projectDir = Files.createTempDirectory("build-events").toFile();
+    File pomFile = new File(projectDir, "pom.xml");
+    Files.copy(Paths.get(getClass().getResource("/pom/simple.xml").toURI()), pomFile.toPath());
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions(projectDir, null, true)
+        .withBuildEvents(true);
+
+    MavenUtils.MavenRunResult result = MavenUtils.runMavenWithSelection(pomFile, new String[]{"resources:resources"},
+        null, options, line -> { }, line -> { });
+    assertEquals(0, result.getInvocationResult().getExitCode(), "exit code");
+
+    BuildTimingReport report = result.getTimingReport();
+    assertNotNull(report, "timing report should be collected");
+    assertEquals(1, report.getProjectTimings().size(), "projects in " + report);
+    assertEquals("SUCCESS", report.getProjectTimings().get(0).status());
+    assertEquals(1, report.getMojoTimings().size(), "mojos in " + report);
+    BuildTimingReport.MojoTiming mojo = report.getMojoTimings().get(0);
+    assertTrue(mojo.mojo().startsWith("maven-resources-plugin:"), mojo.mojo());
+    assertTrue(mojo.durationMillis() >= 0);
+    assertEquals(mojo, report.getSlowestMojos(1).get(0));
+  }
+
+  @Test
+  public void buildTimingReportParsesEvents() {
+    BuildTimingReport report = BuildTimingReport.fromEvents(List.of(
+        "PROJECT_STARTED\t1000\tse.alipsa:a:1.0",
+        "MOJO_STARTED\t1010\tse.alipsa:a:1.0\tmaven-compiler-plugin:3.13.0:compile (default-compile)",
+        "ARTIFACT_DOWNLOADED\t1020\torg.slf4j:slf4j-api:jar:2.0.17\tcentral\t68000",
+        "MOJO_FINISHED\t1510\tse.alipsa:a:1.0\tmaven-compiler-plugin:3.13.0:compile (default-compile)\tSUCCESS",
+        "PROJECT_FINISHED\t1600\tse.alipsa:a:1.0\tSUCCESS"
+    ));
+    assertEquals(600, report.getProjectTimings().get(0).durationMillis());
+    assertEquals(500, report.getMojoTimings().get(0).durationMillis());
+    assertEquals(68000, report.getTotalDownloadedBytes());
+    assertEquals(500L, report.getTotalMillisPerMojo().get("maven-compiler-plugin:3.13.0:compile (default-compile)"));
+  }
+
   @Test
   public void buildInvocationRequestSeparatesGoalsAndFlags() throws URISyntaxException {
     File pomFile = Paths.get(getClass().getResource("/pom/simple.xml").toURI()).toFile();
@@ -309,6 +403,57 @@ public class MavenUtilsTest {
     }
   }
 
+  @Test
+  public void daemonPoolBeatsWrapper() throws Exception {
+    File projectDir = Files.createTempDirectory("daemon-wins").toFile();
+    File pomFile = TestProjects.createMinimalPom(projectDir);
+    createWrapper(projectDir, new File(projectDir, "fake-wrapper-home").getAbsolutePath(), 0);
+    File mvndHome = TestProjects.createFakeDaemonHome();
+    MavenDaemonPool pool = new MavenDaemonPool(mvndHome, 1, java.time.Duration.ofMinutes(5));
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions(projectDir, null, true)
+        .withDaemonPool(pool);
+
+    MavenUtils.MavenRunResult runResult = MavenUtils.runMavenWithSelection(
+        pomFile,
+        new String[]{"validate"},
+        null,
+        options,
+        line -> { },
+        line -> { }
+    );
+    assertEquals(0, runResult.getInvocationResult().getExitCode());
+    assertEquals(MavenUtils.MavenDistributionMode.DAEMON, runResult.getDistributionSelection().getMode());
+    assertEquals(mvndHome.getAbsolutePath(), runResult.getDistributionSelection().getMavenHome().getAbsolutePath());
+    assertEquals(1, pool.getAvailableWorkers(null), "worker should be returned to the pool");
+    assertTrue(pool.isHealthy(null));
+  }
+
+  @Test
+  public void daemonPoolBoundsConcurrentWorkers() throws Exception {
+    MavenDaemonPool pool = new MavenDaemonPool(TestProjects.createFakeDaemonHome(), 2, java.time.Duration.ofMinutes(5));
+    File javaHome = new File(System.getProperty("java.home"));
+    try (MavenDaemonPool.Lease first = pool.acquire(javaHome)) {
+      assertEquals(1, pool.getAvailableWorkers(javaHome));
+      try (MavenDaemonPool.Lease second = pool.acquire(javaHome)) {
+        assertEquals(0, pool.getAvailableWorkers(javaHome));
+        assertEquals(2, pool.getAvailableWorkers(null), "workers are keyed by java home");
+      }
+    }
+    assertEquals(2, pool.getAvailableWorkers(javaHome));
+  }
+
+  @Test
+  public void missingDaemonFallsBackToDefaultSelection() throws IOException {
+    File projectDir = Files.createTempDirectory("daemon-missing").toFile();
+    TestProjects.createMinimalPom(projectDir);
+    File emptyMvndHome = Files.createTempDirectory("empty-mvnd-home").toFile();
+    MavenUtils.MavenExecutionOptions options = new MavenUtils.MavenExecutionOptions(projectDir, null, true)
+        .withDaemonPool(new MavenDaemonPool(emptyMvndHome, 1, java.time.Duration.ofMinutes(5)));
+
+    MavenUtils.MavenDistributionSelection selection = MavenUtils.selectMavenDistribution(new File(projectDir, "pom.xml"), options);
+    assertEquals(MavenUtils.MavenDistributionMode.DEFAULT, selection.getMode());
+  }
+
   @Test
   public void wrapperDetectionSupportsUnixAndWindowsScripts() throws IOException {
     File unixProjectDir = Files.createTempDirectory("wrapper-unix").toFile();
@@ -400,6 +545,70 @@ public class MavenUtilsTest {
     LOG.info("Class resolved to {}", clazz);
   }
 
+  @Test
+  public void resolvedProjectFollowsPomEdits() throws Exception {
+    try (SystemPropertyOverride ignored = overrideSystemProperty("user.home", Files.createTempDirectory("fake-user-home").toString())) {
+      File localRepo = Files.createTempDirectory("isolated-local-repo").toFile();
+      createUserSettingsWithLocalRepo(new File(System.getProperty("user.home")), localRepo);
+      File remoteRepoRoot = Files.createTempDirectory("watched-remote-repo").toFile();
+      createArtifactInFileRepo(remoteRepoRoot, "se.alipsa.test", "watched", "1.0");
+      createArtifactInFileRepo(remoteRepoRoot, "se.alipsa.test", "watched", "1.1");
+      File pomFile = new File(Files.createTempDirectory("watched-project").toFile(), "pom.xml");
+      createPomWithRepositoryAndDependency(pomFile, remoteRepoRoot, "se.alipsa.test", "watched", "1.0");
+
+      try (ResolvedProject project = new MavenUtils(List.of()).resolveProject(pomFile)) {
+        assertEquals(Set.of("watched-1.0.jar"), names(project.getClasspath()));
+        BlockingQueue<ResolvedProject.ClasspathChange> changes = new LinkedBlockingQueue<>();
+        project.addListener(changes::add);
+
+        createPomWithRepositoryAndDependency(pomFile, remoteRepoRoot, "se.alipsa.test", "watched", "1.1");
+        ResolvedProject.ClasspathChange change = changes.poll(30, TimeUnit.SECONDS);
+        assertNotNull(change, "no change was reported after the pom was saved");
+        assertEquals(Set.of("watched-1.1.jar"), names(change.added()));
+        assertEquals(Set.of("watched-1.0.jar"), names(change.removed()));
+        assertEquals(Set.of("watched-1.1.jar"), names(project.getClasspath()));
+
+        // saving the pom without changing its dependencies parses it again but does not resolve them again
+        long resolutions = project.getResolutionCount();
+        Model lastParsed = project.getModel();
+        Files.writeString(pomFile.toPath(), Files.readString(pomFile.toPath()) + "<!-- saved again -->\n");
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (project.getModel() == lastParsed && System.nanoTime() < waitUntil) {
+          Thread.sleep(50);
+        }
+        assertNotSame(lastParsed, project.getModel(), "the pom was not parsed again after it was saved");
+        assertEquals(resolutions, project.getResolutionCount());
+        assertTrue(changes.isEmpty(), "no classpath change should be reported: " + changes);
+      }
+    }
+  }
+
+  @Test
+  public void closedResolvedProjectDoesNotNotifyListeners() throws Exception {
+    try (SystemPropertyOverride ignored = overrideSystemProperty("user.home", Files.createTempDirectory("fake-user-home").toString())) {
+      File localRepo = Files.createTempDirectory("isolated-local-repo").toFile();
+      createUserSettingsWithLocalRepo(new File(System.getProperty("user.home")), localRepo);
+      File remoteRepoRoot = Files.createTempDirectory("closed-remote-repo").toFile();
+      createArtifactInFileRepo(remoteRepoRoot, "se.alipsa.test", "closed", "1.0");
+      createArtifactInFileRepo(remoteRepoRoot, "se.alipsa.test", "closed", "1.1");
+      File pomFile = new File(Files.createTempDirectory("closed-project").toFile(), "pom.xml");
+      createPomWithRepositoryAndDependency(pomFile, remoteRepoRoot, "se.alipsa.test", "closed", "1.0");
+
+      ResolvedProject project = new MavenUtils(List.of()).resolveProject(pomFile);
+      BlockingQueue<ResolvedProject.ClasspathChange> changes = new LinkedBlockingQueue<>();
+      project.addListener(changes::add);
+      project.close();
+
+      createPomWithRepositoryAndDependency(pomFile, remoteRepoRoot, "se.alipsa.test", "closed", "1.1");
+      assertEquals(Set.of("closed-1.1.jar"), names(project.refresh().added()));
+      assertNull(changes.poll(1, TimeUnit.SECONDS), "listeners should not be called once the project is closed");
+    }
+  }
+
+  private static Set<String> names(Set<File> files) {
+    return files.stream().map(File::getName).collect(Collectors.toSet());
+  }
+
   @Test
   public void testFetchArtifactFromSnapshot() throws Exception {
     try (SystemPropertyOverride ignored = overrideSystemProperty("user.home", Files.createTempDirectory("fake-user-home").toString())) {
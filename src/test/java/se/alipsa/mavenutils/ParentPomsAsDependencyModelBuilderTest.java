@@ -0,0 +1,65 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ParentPomsAsDependencyModelBuilderTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testEffectiveModelIsAugmentedOnce() throws Exception {
+    // a chain of local parents resolved through relativePath, so no repository is needed
+    int depth = 6;
+    Path pom = null;
+    for (int level = 0; level < depth; level++) {
+      Path moduleDir = Files.createDirectories(dir.resolve("level" + level));
+      pom = moduleDir.resolve("pom.xml");
+      String parent = level == 0 ? "" : """
+            <parent>
+              <groupId>se.alipsa.test</groupId>
+              <artifactId>level%d</artifactId>
+              <version>1.0</version>
+              <relativePath>../level%d/pom.xml</relativePath>
+            </parent>
+          """.formatted(level - 1, level - 1);
+      Files.writeString(pom, """
+          <project xmlns="http://maven.apache.org/POM/4.0.0">
+            <modelVersion>4.0.0</modelVersion>
+          %s  <groupId>se.alipsa.test</groupId>
+            <artifactId>level%d</artifactId>
+            <version>1.0</version>
+            <packaging>pom</packaging>
+          </project>
+          """.formatted(parent, level));
+    }
+
+    ModelBuildingRequest request = new DefaultModelBuildingRequest();
+    request.setPomFile(pom.toFile());
+    request.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
+    request.setSystemProperties(System.getProperties());
+    ModelBuildingResult result = new ParentPomsAsDependencyModelBuilder().build(request);
+
+    Model effectiveModel = result.getEffectiveModel();
+    assertSame(effectiveModel, result.getEffectiveModel(), "the effective model is not copied on every call");
+    List<Dependency> parentDependencies = effectiveModel.getDependencies().stream()
+        .filter(d -> "pom".equals(d.getType()))
+        .toList();
+    assertEquals(1, parentDependencies.size());
+    assertEquals("level" + (depth - 2), parentDependencies.get(0).getArtifactId());
+    assertEquals("compile", parentDependencies.get(0).getScope());
+    assertEquals(depth, result.getModelIds().size() - 1, "the chain ends with the super pom");
+  }
+}
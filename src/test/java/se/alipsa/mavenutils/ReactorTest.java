@@ -0,0 +1,135 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ReactorTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testModulesAreBuiltFromTheWorkingTreeInReactorOrder() throws Exception {
+    writeReactor();
+
+    Reactor reactor = Reactor.discover(dir);
+    assertEquals(List.of("se.alipsa.test:root", "se.alipsa.test:lib", "se.alipsa.test:bom", "se.alipsa.test:app"),
+        reactor.getModules().stream().map(Reactor.Module::key).toList());
+    assertNotNull(reactor.resolveRawModel("se.alipsa.test", "lib", "1.0-SNAPSHOT"));
+    assertNull(reactor.resolveRawModel("se.alipsa.test", "lib", "2.0"));
+    assertNull(reactor.resolveRawModel("se.alipsa.test", "unknown", "1.0-SNAPSHOT"));
+
+    Map<String, Model> models = new MavenUtils(List.of()).parsePoms(dir.resolve("pom.xml"));
+    assertEquals(List.of("se.alipsa.test:root", "se.alipsa.test:lib", "se.alipsa.test:bom", "se.alipsa.test:app"),
+        List.copyOf(models.keySet()));
+    Model app = models.get("se.alipsa.test:app");
+    assertEquals("1.0-SNAPSHOT", app.getVersion(), "the version is inherited from the parent in the working tree");
+    assertEquals("2.1", dependency(app, "managed").getVersion(), "the BOM is imported from the working tree");
+    assertEquals("1.0-SNAPSHOT", dependency(app, "lib").getVersion());
+    assertEquals("5.0", app.getProperties().getProperty("shared.version"));
+  }
+
+  @Test
+  public void testCyclesAreRejected() throws Exception {
+    writePom(dir, "root", null, "<packaging>pom</packaging><modules><module>a</module><module>b</module></modules>");
+    writePom(dir.resolve("a"), "a", "root", dependencies("b", "1.0-SNAPSHOT"));
+    writePom(dir.resolve("b"), "b", "root", dependencies("a", "1.0-SNAPSHOT"));
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Reactor.discover(dir));
+    assertTrue(e.getMessage().contains("se.alipsa.test:a"), e.getMessage());
+  }
+
+  @Test
+  public void testSiblingModulesResolveToTheirOutputDirectories() throws Exception {
+    writePom(dir, "root", null, "<packaging>pom</packaging><modules><module>app</module><module>lib</module></modules>");
+    writePom(dir.resolve("lib"), "lib", "root", "<build><outputDirectory>build/classes</outputDirectory></build>");
+    writePom(dir.resolve("app"), "app", "root", dependencies("lib", "${project.version}").replace("</dependencies>", """
+          <dependency>
+            <groupId>se.alipsa.test</groupId><artifactId>lib</artifactId><version>${project.version}</version>
+            <type>test-jar</type><scope>test</scope>
+          </dependency>
+        </dependencies>
+        """));
+
+    MavenUtils mavenUtils = new MavenUtils(List.of());
+    Map<String, Set<File>> classpaths = mavenUtils.resolveReactorDependencies(dir);
+    assertEquals(List.of("se.alipsa.test:root", "se.alipsa.test:lib", "se.alipsa.test:app"),
+        List.copyOf(classpaths.keySet()));
+    File libClasses = dir.resolve("lib/build/classes").toFile();
+    File libTestClasses = dir.resolve("lib/target/test-classes").toFile();
+    assertTrue(classpaths.get("se.alipsa.test:app").contains(libClasses), classpaths.toString());
+    assertFalse(classpaths.get("se.alipsa.test:app").contains(libTestClasses), classpaths.toString());
+    assertTrue(mavenUtils.resolveReactorDependencies(dir, true).get("se.alipsa.test:app").contains(libTestClasses));
+
+    ReactorWorkspaceReader reader = new ReactorWorkspaceReader(mavenUtils.parsePoms(dir).values());
+    assertEquals(dir.resolve("lib/pom.xml").toFile(),
+        reader.findArtifact(new DefaultArtifact("se.alipsa.test:lib:pom:1.0-SNAPSHOT")));
+    assertNull(reader.findArtifact(new DefaultArtifact("se.alipsa.test:lib:jar:sources:1.0-SNAPSHOT")));
+    assertNull(reader.findArtifact(new DefaultArtifact("se.alipsa.test:lib:jar:0.9")));
+    assertEquals(List.of("1.0-SNAPSHOT"), reader.findVersions(new DefaultArtifact("se.alipsa.test:lib:jar:1.0-SNAPSHOT")));
+  }
+
+  private void writeReactor() throws IOException {
+    writePom(dir, "root", null, """
+        <packaging>pom</packaging>
+        <properties><shared.version>5.0</shared.version></properties>
+        <modules><module>app</module><module>lib</module><module>bom</module></modules>
+        """);
+    writePom(dir.resolve("app"), "app", "root", """
+        <dependencyManagement><dependencies><dependency>
+          <groupId>se.alipsa.test</groupId><artifactId>bom</artifactId><version>${project.version}</version>
+          <type>pom</type><scope>import</scope>
+        </dependency></dependencies></dependencyManagement>
+        """ + dependencies("lib", "${project.version}").replace("</dependencies>", """
+          <dependency><groupId>se.alipsa.test</groupId><artifactId>managed</artifactId></dependency>
+        </dependencies>
+        """));
+    writePom(dir.resolve("lib"), "lib", "root", "");
+    writePom(dir.resolve("bom"), "bom", "root", """
+        <packaging>pom</packaging>
+        <dependencyManagement><dependencies><dependency>
+          <groupId>se.alipsa.test</groupId><artifactId>managed</artifactId><version>2.1</version>
+        </dependency></dependencies></dependencyManagement>
+        """);
+  }
+
+  private static String dependencies(String artifactId, String version) {
+    return """
+        <dependencies><dependency>
+          <groupId>se.alipsa.test</groupId><artifactId>%s</artifactId><version>%s</version>
+        </dependency></dependencies>
+        """.formatted(artifactId, version);
+  }
+
+  private static void writePom(Path moduleDir, String artifactId, String parent, String body) throws IOException {
+    Files.createDirectories(moduleDir);
+    String parentElement = parent == null ? "<groupId>se.alipsa.test</groupId><version>1.0-SNAPSHOT</version>" : """
+        <parent><groupId>se.alipsa.test</groupId><artifactId>%s</artifactId><version>1.0-SNAPSHOT</version></parent>
+        """.formatted(parent);
+    Files.writeString(moduleDir.resolve("pom.xml"), """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          %s
+          <artifactId>%s</artifactId>
+          %s
+        </project>
+        """.formatted(parentElement, artifactId, body));
+  }
+
+  private static Dependency dependency(Model model, String artifactId) {
+    return model.getDependencies().stream().filter(d -> artifactId.equals(d.getArtifactId())).findFirst()
+        .orElseThrow(() -> new AssertionError(artifactId + " not found in " + model.getDependencies()));
+  }
+}
@@ -0,0 +1,73 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.model.Repository;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class RepositorySetTest {
+
+  private static final RemoteRepository CENTRAL = new RemoteRepository.Builder("central", "default",
+      "https://repo1.maven.org/maven2/").build();
+
+  @Test
+  public void testSetIsIndexedAndImmutable() {
+    RemoteRepository mirror = new RemoteRepository.Builder("mirror", "default", CENTRAL.getUrl()).build();
+    RepositorySet set = RepositorySet.of(List.of(CENTRAL));
+    RepositorySet extended = set.with(mirror);
+    assertEquals(List.of(CENTRAL), set.asList());
+    assertEquals(List.of(CENTRAL, mirror), extended.asList());
+    assertSame(extended, extended.with(mirror));
+    assertSame(mirror, extended.get("mirror"));
+    assertNull(set.get("mirror"));
+    assertEquals(List.of(CENTRAL, mirror), extended.getByUrl(CENTRAL.getUrl()));
+    assertEquals(List.of(mirror), extended.without("central").asList());
+    assertSame(extended, extended.without("unknown"));
+    assertThrows(UnsupportedOperationException.class, () -> extended.asList().add(CENTRAL));
+
+    RepositorySet withId = extended.withPomRepositoryId("mirror");
+    assertTrue(withId.isPomRepository("mirror"));
+    assertFalse(extended.isPomRepository("mirror"));
+    assertTrue(withId.without("central").isPomRepository("mirror"));
+  }
+
+  @Test
+  public void testResolverSharesRepositoriesWithCopies() {
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    ModelResolver resolver = new ModelResolver(List.of(CENTRAL), session, null);
+
+    resolver.addRepository(repository("snapshots", "https://snapshots.example/"), false);
+    // the same repository declared again further up the parent chain is a no-op
+    RepositorySet afterFirstAdd = resolver.repositories;
+    resolver.addRepository(repository("snapshots", "https://other.example/"), false);
+    assertSame(afterFirstAdd, resolver.repositories);
+    // a repository with the id of an initial one does not replace it
+    resolver.addRepository(repository("central", "https://not-central.example/"), false);
+    assertEquals(List.of("central", "snapshots"), ids(resolver));
+    assertEquals(CENTRAL.getUrl(), resolver.getRepositories().get(0).getUrl());
+
+    ModelResolver copy = (ModelResolver) resolver.newCopy();
+    assertSame(resolver.repositories, copy.repositories);
+    copy.addRepository(repository("snapshots", "https://replaced.example/"), true);
+    copy.addRepository(repository("releases", "https://releases.example/"), false);
+    assertEquals(List.of("central", "snapshots", "releases"), ids(copy));
+    assertEquals("https://replaced.example/", copy.repositories.get("snapshots").getUrl());
+    assertEquals(List.of("central", "snapshots"), ids(resolver), "the original is not affected by its copy");
+    assertEquals("https://snapshots.example/", resolver.repositories.get("snapshots").getUrl());
+  }
+
+  private static Repository repository(String id, String url) {
+    Repository repository = new Repository();
+    repository.setId(id);
+    repository.setUrl(url);
+    return repository;
+  }
+
+  private static List<String> ids(ModelResolver resolver) {
+    return resolver.getRepositories().stream().map(RemoteRepository::getId).toList();
+  }
+}
@@ -0,0 +1,77 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.resolution.UnresolvableModelException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class SemanticVersionRangeTest {
+
+  private static final List<String> SORTED = SemanticVersion.sort(List.of(
+      "0.9", "1.0", "1.2", "1.2.1", "1.5-beta1", "1.5", "2.0-SNAPSHOT", "2.0", "2.1", "3.0", "3.1", "3.1.1", "4.0"));
+
+  @Test
+  public void testMembership() {
+    SemanticVersionRange range = SemanticVersionRange.parse("[1.2,2.0)");
+    assertTrue(range.contains("1.2"));
+    assertTrue(range.contains("1.2.0"));
+    assertTrue(range.contains("v1.9.9"));
+    assertTrue(range.contains("2.0-SNAPSHOT"));
+    assertFalse(range.contains("2.0"));
+    assertFalse(range.contains("1.1"));
+    assertTrue(range.hasLowerBound());
+    assertTrue(range.hasUpperBound());
+
+    SemanticVersionRange open = SemanticVersionRange.parse("(,3.1]");
+    assertTrue(open.contains("0.1"));
+    assertTrue(open.contains("3.1"));
+    assertFalse(open.contains("3.1.1"));
+    assertFalse(open.hasLowerBound());
+
+    assertTrue(SemanticVersionRange.parse("[1.5]").contains("1.5.0"));
+    assertFalse(SemanticVersionRange.parse("[1.5]").contains("1.5.1"));
+    assertTrue(SemanticVersionRange.parse("1.5").contains("1.5"));
+    assertFalse(SemanticVersionRange.parse("(1.0,)").contains("1.0"));
+    assertFalse(SemanticVersionRange.parse("[1.0,)").hasUpperBound());
+    assertEquals("[1.2,2.0)", range.toString());
+  }
+
+  @Test
+  public void testFilterSortedVersions() {
+    assertEquals(List.of("1.2", "1.2.1", "1.5-beta1", "1.5", "2.0-SNAPSHOT"),
+        SemanticVersionRange.parse("[1.2,2.0)").filter(SORTED));
+    assertEquals(List.of("0.9", "1.0", "1.2", "1.2.1", "1.5-beta1", "1.5", "2.0-SNAPSHOT", "2.0", "2.1", "3.0", "3.1"),
+        SemanticVersionRange.parse("(,3.1]").filter(SORTED));
+    assertEquals(List.of("1.0", "1.2", "3.1.1", "4.0"), SemanticVersionRange.parse("[1.0,1.2], (3.1,)").filter(SORTED));
+    assertEquals(List.of(), SemanticVersionRange.parse("[5,6)").filter(SORTED));
+
+    VersionIndex index = VersionIndex.of("se.alipsa", "demo", SORTED);
+    assertEquals(List.of("2.0", "2.1", "3.0"), index.getInRange(SemanticVersionRange.parse("[2.0,3.1)")));
+    assertEquals(List.of("1.0", "1.2", "3.1.1", "4.0"),
+        index.getInRange(SemanticVersionRange.parse("[1.0,1.2],(3.1,)")));
+  }
+
+  @Test
+  public void testInvalidRanges() {
+    for (String invalid : List.of("", "[1.0", "[,1.0)", "(1.0,]", "(1.0)", "[2.0,1.0]", "[1,2,3]",
+        "[1.0,3.0),[2.0,4.0)", "[1.0,2.0)x")) {
+      assertThrows(IllegalArgumentException.class, () -> SemanticVersionRange.parse(invalid), invalid);
+    }
+  }
+
+  @Test
+  public void testParentRangeWithoutUpperBoundFailsFast() {
+    // no repository system is needed, the range is rejected before any lookup
+    ModelResolver resolver = new ModelResolver(List.of(), null, null);
+    Parent parent = new Parent();
+    parent.setGroupId("se.alipsa");
+    parent.setArtifactId("parent");
+    parent.setVersion("[1.0,)");
+    UnresolvableModelException e = assertThrows(UnresolvableModelException.class,
+        () -> resolver.resolveModel(parent));
+    assertTrue(e.getMessage().contains("does not specify an upper bound"), e.getMessage());
+  }
+}
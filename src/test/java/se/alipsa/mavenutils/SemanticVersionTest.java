@@ -1,10 +1,18 @@
 package se.alipsa.mavenutils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 public class SemanticVersionTest {
 
   @Test
@@ -41,4 +49,60 @@ public class SemanticVersionTest {
     assertTrue(SemanticVersion.compare("1.2.40-beta22", "1.2.40-alpha92") > 0);
     assertTrue(SemanticVersion.compare("3.5.3", "0.9.2709") > 0);
   }
+
+  @Test
+  public void normalization() {
+    assertEquals("1.2", SemanticVersion.normalize("v1.2"));
+    assertEquals("1.2.9", SemanticVersion.normalize("1.2.9-jdk11"));
+    assertEquals("1.2.9", SemanticVersion.normalize("1.2.9.jdk8-jdk11"));
+    assertEquals("2.0-openjdk", SemanticVersion.normalize("2.0-openjdk"));
+    assertEquals(0, SemanticVersion.compare("v2.0.1", "2.0.1.jdk17"));
+  }
+
+  @Test
+  public void numericFastPathOrdersLikeComparableVersion() {
+    Random random = new Random(42);
+    String[] qualifiers = {"", "", "", "-SNAPSHOT", "-beta1", "-M2", "-rc1", ".Final", "-jre", "-1"};
+    List<String> versions = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      StringBuilder version = new StringBuilder();
+      int segments = 1 + random.nextInt(4);
+      for (int s = 0; s < segments; s++) {
+        version.append(s == 0 ? "" : ".").append(random.nextInt(4) == 0 ? 0 : random.nextInt(12));
+      }
+      versions.add(version + qualifiers[random.nextInt(qualifiers.length)]);
+    }
+    versions.add("01.002");
+    versions.add("123456789012345678.1");
+    versions.add("1234567890123456789012");
+    for (String first : versions) {
+      for (String second : versions) {
+        int expected = Integer.signum(new ComparableVersion(first).compareTo(new ComparableVersion(second)));
+        assertEquals(expected, Integer.signum(new SemanticVersion(first).compareTo(new SemanticVersion(second))),
+            first + " vs " + second);
+        assertEquals(expected, Integer.signum(SemanticVersion.compare(first, second)), first + " vs " + second);
+      }
+    }
+  }
+
+  @Test
+  public void bulkOperations() {
+    List<String> versions = List.of("v2.0.1", "1.10", "1.9.2-jdk11", "2.0.1", "10.0-M1", "1.9.2", "latest", "0.9");
+    assertEquals(List.of("latest", "0.9", "1.9.2-jdk11", "1.9.2", "1.10", "v2.0.1", "2.0.1", "10.0-M1"),
+        SemanticVersion.sort(versions));
+    assertEquals("10.0-M1", SemanticVersion.max(versions));
+    assertNull(SemanticVersion.max(List.of()));
+    assertEquals(Map.of(-1L, List.of("latest"), 0L, List.of("0.9"), 1L, List.of("1.9.2-jdk11", "1.9.2", "1.10"),
+        2L, List.of("v2.0.1", "2.0.1"), 10L, List.of("10.0-M1")), SemanticVersion.groupByMajor(versions));
+
+    List<String> many = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      many.add((i % 7) + "." + (i % 13) + "." + i);
+    }
+    List<String> expected = new ArrayList<>(many);
+    expected.sort(SemanticVersion::compare);
+    Collections.shuffle(many, new Random(7));
+    assertEquals(expected, SemanticVersion.sort(many));
+    assertEquals(expected.get(expected.size() - 1), SemanticVersion.max(many));
+  }
 }
@@ -0,0 +1,80 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Throwaway maven projects for the tests, built with a fake maven wrapper instead of a real maven distribution.
+ */
+final class TestProjects {
+
+  private TestProjects() {
+    // utility class
+  }
+
+  /**
+   * Create a project in a new temp directory with a minimal pom and a maven wrapper running the given script.
+   *
+   * @param prefix the prefix of the temp directory
+   * @param script the bash script the wrapper runs, the wrapper exits with 0 unless the script exits first
+   * @return the pom file of the project
+   */
+  static File createWrapperProject(String prefix, String script) throws IOException {
+    File projectDir = Files.createTempDirectory(prefix).toFile();
+    File pomFile = createMinimalPom(projectDir);
+    createWrapper(projectDir, script + "exit 0\n");
+    return pomFile;
+  }
+
+  /**
+   * Write a pom.xml with only a groupId, artifactId and version to the project directory.
+   *
+   * @return the pom file
+   */
+  static File createMinimalPom(File projectDir) throws IOException {
+    File pomFile = new File(projectDir, "pom.xml");
+    Files.writeString(
+        pomFile.toPath(),
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"\n"
+            + "         xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+            + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>se.alipsa</groupId>\n"
+            + "  <artifactId>temp-project</artifactId>\n"
+            + "  <version>1.0.0</version>\n"
+            + "</project>\n"
+    );
+    return pomFile;
+  }
+
+  /**
+   * Write the maven wrapper config and an executable mvnw running the given bash script to the project directory.
+   */
+  static void createWrapper(File projectDir, String script) throws IOException {
+    Path wrapperConfigDir = projectDir.toPath().resolve(".mvn/wrapper");
+    Files.createDirectories(wrapperConfigDir);
+    Files.writeString(wrapperConfigDir.resolve("maven-wrapper.properties"), "distributionUrl=https://example.invalid");
+
+    Path unixWrapper = projectDir.toPath().resolve("mvnw");
+    Files.writeString(unixWrapper, "#!/usr/bin/env bash\n" + script);
+    assertTrue(unixWrapper.toFile().setExecutable(true));
+  }
+
+  /**
+   * Create an mvnd installation whose mvnd only echoes its arguments.
+   *
+   * @return the mvnd home
+   */
+  static File createFakeDaemonHome() throws IOException {
+    File mvndHome = Files.createTempDirectory("fake-mvnd-home").toFile();
+    Path binDir = Files.createDirectories(mvndHome.toPath().resolve("bin"));
+    Path mvnd = binDir.resolve("mvnd");
+    Files.writeString(mvnd, "#!/usr/bin/env bash\necho \"mvnd $*\"\nexit 0\n");
+    assertTrue(mvnd.toFile().setExecutable(true));
+    return mvndHome;
+  }
+}
@@ -0,0 +1,65 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class VersionIndexTest {
+
+  private static final VersionIndex INDEX = VersionIndex.of("se.alipsa", "demo", List.of(
+      "2.0.0", "1.10.0", "1.9.2", "2.1.0-M1", "3.0.0-SNAPSHOT", "1.2", "2.0.1", "1.9.2", "2.1.0-RC2", "0.9-beta1",
+      "2.0.1-jdk11", "10.0.0-alpha"));
+
+  @Test
+  public void testVersionsAreSortedOnce() {
+    assertEquals(List.of("0.9-beta1", "1.2", "1.9.2", "1.10.0", "2.0.0", "2.0.1", "2.0.1-jdk11", "2.1.0-M1",
+        "2.1.0-RC2", "3.0.0-SNAPSHOT", "10.0.0-alpha"), INDEX.getVersions());
+    assertEquals(11, INDEX.size());
+    assertEquals("10.0.0-alpha", INDEX.getHighest());
+    assertTrue(INDEX.contains("1.9.2"));
+    assertTrue(INDEX.contains("v1.10"));
+    assertFalse(INDEX.contains("1.9.3"));
+  }
+
+  @Test
+  public void testQueries() {
+    assertEquals("2.0.1-jdk11", INDEX.getHighestStable());
+    assertEquals("2.1.0-RC2", INDEX.getHighestInMajor(2, false));
+    assertEquals("2.0.1-jdk11", INDEX.getHighestInMajor(2, true));
+    assertEquals("1.10.0", INDEX.getHighestInMajor(1, true));
+    assertNull(INDEX.getHighestInMajor(4, false));
+    assertEquals(List.of("2.0.0", "2.0.1", "2.0.1-jdk11", "2.1.0-M1", "2.1.0-RC2", "3.0.0-SNAPSHOT",
+        "10.0.0-alpha"), INDEX.getNewerThan("1.10.0"));
+    assertEquals(List.of("2.1.0-M1", "2.1.0-RC2", "3.0.0-SNAPSHOT", "10.0.0-alpha"), INDEX.getNewerThan("2.0.5"));
+    assertEquals(List.of(), INDEX.getNewerThan("11"));
+    assertEquals(List.of("1.9.2", "1.10.0"), INDEX.getRange("1.9", "2.0.0"));
+    assertEquals(List.of("0.9-beta1", "1.2"), INDEX.getRange(null, "1.9"));
+    assertEquals(List.of(), INDEX.getRange("3", "2"));
+    assertEquals(List.of("2.1.0-M1", "2.1.0-RC2"), INDEX.filter(v -> v.startsWith("2.1")));
+    assertEquals("1.2", INDEX.getHighest(v -> v.length() == 3));
+  }
+
+  @Test
+  public void testStableVersions() {
+    for (String stable : List.of("1.0", "1.2.3.Final", "33.0.0-jre", "2.0.0.RELEASE", "1.0-GA", "5.10.1")) {
+      assertTrue(VersionIndex.isStable(stable), stable);
+    }
+    for (String preRelease : List.of("1.0-SNAPSHOT", "2.0.0-M1", "1.0-beta-2", "4.0.0-alpha-7", "3.0.0-rc1",
+        "6.0.0.CR2", "21-ea", "1.0.0-preview3", "2.0.0-m2")) {
+      assertFalse(VersionIndex.isStable(preRelease), preRelease);
+    }
+  }
+
+  @Test
+  public void testIndexFromMetadata() {
+    VersionIndex index = VersionIndex.of(new ArtifactMetadata("se.alipsa", "demo", "1.1", "1.2-SNAPSHOT",
+        List.of("1.0", "1.1"), null));
+    assertEquals(List.of("1.0", "1.1", "1.2-SNAPSHOT"), index.getVersions());
+    assertEquals("se.alipsa", index.getGroupId());
+    assertEquals("demo", index.getArtifactId());
+    assertEquals(0, VersionIndex.of("se.alipsa", "empty", List.of()).size());
+    assertNull(VersionIndex.of("se.alipsa", "empty", List.of()).getHighest());
+  }
+}
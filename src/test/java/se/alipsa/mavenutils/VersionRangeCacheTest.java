@@ -0,0 +1,99 @@
+package se.alipsa.mavenutils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.maven.model.Parent;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VersionRangeCacheTest {
+
+  @Test
+  public void testTimeToLiveFollowsUpdatePolicy() {
+    assertEquals(0, VersionRangeCache.timeToLiveMillis(RepositoryPolicy.UPDATE_POLICY_ALWAYS));
+    assertEquals(Long.MAX_VALUE, VersionRangeCache.timeToLiveMillis(RepositoryPolicy.UPDATE_POLICY_NEVER));
+    assertEquals(TimeUnit.DAYS.toMillis(1), VersionRangeCache.timeToLiveMillis(RepositoryPolicy.UPDATE_POLICY_DAILY));
+    assertEquals(TimeUnit.MINUTES.toMillis(30), VersionRangeCache.timeToLiveMillis("interval:30"));
+    assertEquals(TimeUnit.DAYS.toMillis(1), VersionRangeCache.timeToLiveMillis("interval:soon"));
+    assertEquals(TimeUnit.DAYS.toMillis(1), VersionRangeCache.timeToLiveMillis(null));
+
+    RemoteRepository hourly = new RemoteRepository.Builder("hourly", "default", "https://hourly.example/")
+        .setReleasePolicy(new RepositoryPolicy(true, "interval:60", RepositoryPolicy.CHECKSUM_POLICY_WARN)).build();
+    RemoteRepository never = new RemoteRepository.Builder("never", "default", "https://never.example/")
+        .setReleasePolicy(new RepositoryPolicy(true, "never", RepositoryPolicy.CHECKSUM_POLICY_WARN)).build();
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    assertEquals(TimeUnit.MINUTES.toMillis(60), VersionRangeCache.timeToLiveMillis(session, List.of(never, hourly)));
+    session.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+    assertEquals(0, VersionRangeCache.timeToLiveMillis(session, List.of(never, hourly)));
+    session.setOffline(true);
+    assertEquals(Long.MAX_VALUE, VersionRangeCache.timeToLiveMillis(session, List.of(never, hourly)));
+  }
+
+  @Test
+  public void testParentRangesAreResolvedOnceAndFixedVersionsNever() throws Exception {
+    File pom = Files.createTempFile("parent", ".pom").toFile();
+    pom.deleteOnExit();
+    List<String> resolvedArtifacts = new ArrayList<>();
+    RepositorySystem repositorySystem = (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{RepositorySystem.class}, (proxy, method, args) -> {
+          if (!method.getName().equals("resolveArtifact")) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          ArtifactRequest request = (ArtifactRequest) args[1];
+          resolvedArtifacts.add(request.getArtifact().toString());
+          return new ArtifactResult(request).setArtifact(request.getArtifact().setFile(pom));
+        });
+    RemoteRepository repository = new RemoteRepository.Builder("range-test", "default",
+        "https://range-test.example/").build();
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    AtomicInteger rangeResolutions = new AtomicInteger();
+    GenericVersionScheme scheme = new GenericVersionScheme();
+
+    List<ModelResolver> resolvers = new ArrayList<>();
+    ModelResolver first = new ModelResolver(new ArrayList<>(List.of(repository)), session, repositorySystem);
+    resolvers.add(first);
+    resolvers.add((ModelResolver) first.newCopy());
+    for (ModelResolver resolver : resolvers) {
+      resolver.versionRangeResolver = (repositorySession, request) -> {
+        rangeResolutions.incrementAndGet();
+        VersionRangeResult result = new VersionRangeResult(request);
+        try {
+          result.setVersionConstraint(scheme.parseVersionConstraint(request.getArtifact().getVersion()));
+          result.addVersion(scheme.parseVersion("1.4"));
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        return result;
+      };
+      resolver.resolveModel(parent("[1.0,2.0)"));
+      resolver.resolveModel(parent("1.1"));
+    }
+
+    assertEquals(1, rangeResolutions.get(), "the copy reuses the range resolved by the first resolver");
+    assertEquals(List.of("se.alipsa.test:range-parent:pom:1.4", "se.alipsa.test:range-parent:pom:1.1",
+        "se.alipsa.test:range-parent:pom:1.4", "se.alipsa.test:range-parent:pom:1.1"), resolvedArtifacts);
+  }
+
+  private static Parent parent(String version) {
+    Parent parent = new Parent();
+    parent.setGroupId("se.alipsa.test");
+    parent.setArtifactId("range-parent");
+    parent.setVersion(version);
+    return parent;
+  }
+}